@@ -0,0 +1,81 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a 10k object catalog into the memory-mapped
+ * {@link TleStore} with reading it line by line into {@link Tle} objects
+ * <p>
+ * Run with <code>./gradlew jmh</code>; add <code>-prof gc</code> to the JMH
+ * arguments to see the allocation rate of each approach.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TleStoreBenchmark {
+
+    private static final int OBJECTS = 10_000;
+
+    private Path catalog;
+
+    @Setup
+    public void setup() throws IOException {
+
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<>();
+
+        for (int i = 1; i <= OBJECTS; i++) {
+            lines.add(String.format(Locale.ROOT, "OBJECT %-17d", i));
+            lines.add(String.format(Locale.ROOT,
+                    "1 %05dU 98030A   21%03d.%08d  .00000036  00000-0  %05d-4 0  999%d",
+                    i, 1 + random.nextInt(365), random.nextInt(100_000_000), random.nextInt(100_000), i % 10));
+            lines.add(String.format(Locale.ROOT, "2 %05d %8.4f %8.4f %07d %8.4f %8.4f %11.8f%05d%d",
+                    i, random.nextDouble() * 180, random.nextDouble() * 360, random.nextInt(10_000_000),
+                    random.nextDouble() * 360, random.nextDouble() * 360, 1 + random.nextDouble() * 15,
+                    random.nextInt(100_000), i % 10));
+        }
+
+        catalog = Files.createTempFile("catalog", ".tle");
+        Files.write(catalog, lines, StandardCharsets.US_ASCII);
+
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(catalog);
+    }
+
+    @Benchmark
+    public TleStore memoryMapped() throws IOException {
+        return TleStore.load(catalog);
+    }
+
+    @Benchmark
+    public List<Tle> lineBased() throws IOException {
+        return Tle.parseAll(Files.readAllLines(catalog, StandardCharsets.US_ASCII));
+    }
+
+}
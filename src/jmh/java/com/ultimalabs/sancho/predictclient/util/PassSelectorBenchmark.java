@@ -0,0 +1,88 @@
+package com.ultimalabs.sancho.predictclient.util;
+
+import com.ultimalabs.sancho.common.config.SatelliteData;
+import com.ultimalabs.sancho.common.model.PassEventDataPoint;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pass selection over a 3 day horizon of 300 satellites, about 13000 passes
+ * <p>
+ * Run with <code>./gradlew jmh</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PassSelectorBenchmark {
+
+    private static final int SATELLITES = 300;
+    private static final long HORIZON = 3 * 86_400_000L;
+
+    private List<SatellitePass> passes;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42);
+        passes = new ArrayList<>();
+
+        for (int i = 0; i < SATELLITES; i++) {
+
+            SatelliteData sat = new SatelliteData(Integer.toString(10000 + i), "SAT" + i, 0, 0, 10, 20,
+                    1 + random.nextInt(3), 0.5, 0, random.nextBoolean(), false, "", "");
+            long period = 90 * 60_000L + random.nextInt(30 * 60_000);
+
+            // a few passes in a row, then nothing for the rest of the day
+            for (long t = random.nextInt(86_400_000); t < HORIZON; t += period) {
+
+                long duration = 5 * 60_000L + random.nextInt(10 * 60_000);
+                SatellitePass pass = new SatellitePass();
+                PassEventDataPoint rise = new PassEventDataPoint();
+                PassEventDataPoint mid = new PassEventDataPoint();
+                PassEventDataPoint set = new PassEventDataPoint();
+
+                rise.setT(new Date(t));
+                mid.setT(new Date(t + duration / 2));
+                mid.setEl(10 + random.nextDouble() * 80);
+                set.setT(new Date(t + duration));
+                pass.setRisePoint(rise);
+                pass.setMidPoint(mid);
+                pass.setSetPoint(set);
+                pass.setDuration(duration / 1000.0);
+                pass.setSatelliteData(sat);
+                passes.add(pass);
+
+                if (passes.size() % 5 == 0) {
+                    t += 86_400_000L - 5 * period;
+                }
+
+            }
+
+        }
+
+    }
+
+    @Benchmark
+    public List<SatellitePass> select() {
+        return PassSelector.select(passes, 60_000);
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.ultimalabs.sancho.rotctldclient.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the byte buffer response parser with the String-based parsing
+ * it replaced (decode the line, contains("RPRT 0"), split(","), replace(), parseDouble())
+ * <p>
+ * Run with <code>./gradlew jmh</code>; add <code>-prof gc</code> to the JMH
+ * arguments to see the allocation rate of each approach.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HamlibResponseParserBenchmark {
+
+    private static final byte[] GET_POS =
+            "get_pos:,Azimuth: 180.500000,Elevation: 45.250000,RPRT 0\n".getBytes(StandardCharsets.US_ASCII);
+
+    private ByteBuffer buffer;
+    private int lineEnd;
+
+    @Setup
+    public void setup() {
+        buffer = ByteBuffer.allocateDirect(4096);
+        buffer.put(GET_POS);
+        buffer.flip();
+        lineEnd = GET_POS.length - 1;
+    }
+
+    @Benchmark
+    public void stringParsing(Blackhole bh) {
+
+        byte[] line = new byte[lineEnd];
+
+        for (int i = 0; i < lineEnd; i++) {
+            line[i] = buffer.get(i);
+        }
+
+        String message = new String(line, StandardCharsets.US_ASCII);
+
+        if (!message.contains("RPRT 0")) {
+            return;
+        }
+
+        String[] parts = message.split(",");
+        bh.consume(Double.parseDouble(parts[1].replace("Azimuth: ", "")));
+        bh.consume(Double.parseDouble(parts[2].replace("Elevation: ", "")));
+
+    }
+
+    @Benchmark
+    public void bufferParsing(Blackhole bh) {
+
+        if (!HamlibResponseParser.isOk(buffer, 0, lineEnd)) {
+            return;
+        }
+
+        bh.consume(HamlibResponseParser.numericField(buffer, 0, lineEnd, 1));
+        bh.consume(HamlibResponseParser.numericField(buffer, 0, lineEnd, 2));
+
+    }
+
+}
@@ -1,13 +1,18 @@
 package com.ultimalabs.sancho.api.status.controller;
 
+import com.ultimalabs.sancho.api.status.model.StatusSummary;
+import com.ultimalabs.sancho.api.status.model.TimelineEntry;
 import com.ultimalabs.sancho.api.status.service.StatusService;
 import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
 import com.ultimalabs.sancho.rotctldclient.model.RadioParams;
+import com.ultimalabs.sancho.rotctldclient.model.TrackingReport;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -18,6 +23,16 @@ import java.util.List;
 @RequestMapping("/api/v1/status")
 public class StatusController {
 
+    /**
+     * Timeline range used if none is given, in milliseconds
+     */
+    private static final long DEFAULT_TIMELINE_RANGE = 24 * 3_600_000L;
+
+    /**
+     * Largest timeline page
+     */
+    private static final int MAX_TIMELINE_PAGE = 1000;
+
     private final StatusService statusService;
 
     /**
@@ -31,9 +46,9 @@ public class StatusController {
     }
 
     /**
-     * Get the current rotator position
+     * Get the rotator position, as last polled
      *
-     * @return current rotator position
+     * @return rotator position
      */
     @GetMapping(value = "/rotatorPosition", produces = "application/json")
     public AzimuthElevation getRotatorPosition() {
@@ -41,14 +56,72 @@ public class StatusController {
     }
 
     /**
-     * Get the current radio frequency, in Hz
+     * Get the radio frequency, in Hz, as last polled
      *
-     * @return current radio frequency
+     * @return radio frequency
      */
     @GetMapping(value = "/radioParams", produces = "application/json")
     public RadioParams getRadioParams() {
         return statusService.getRadioParams();
     }
 
+    /**
+     * Get pointing reports of the most recent tracked passes
+     *
+     * @return tracking reports, oldest first
+     */
+    @GetMapping(value = "/trackingReports", produces = "application/json")
+    public List<TrackingReport> getTrackingReports() {
+        return statusService.getTrackingReports();
+    }
+
+    /**
+     * Get scheduled tasks, rotator position and radio parameters in a single response
+     *
+     * @return status summary
+     */
+    @GetMapping(value = "/summary", produces = "application/json")
+    public StatusSummary getStatusSummary() {
+        return statusService.getStatusSummary();
+    }
+
+    /**
+     * Get a page of the passes and scheduled tasks in a time range
+     * <p>
+     * With from = to, returns what's active at that time.
+     *
+     * @param from   range start (epoch, milliseconds); now by default
+     * @param to     range end (epoch, milliseconds); 24 hours after the start by default
+     * @param offset number of entries to skip
+     * @param limit  maximum number of entries, up to 1000
+     * @return passes and tasks, ordered by start time
+     */
+    @GetMapping(value = "/timeline", produces = "application/json")
+    public List<TimelineEntry> getTimeline(@RequestParam(required = false) Long from,
+                                           @RequestParam(required = false) Long to,
+                                           @RequestParam(defaultValue = "0") int offset,
+                                           @RequestParam(defaultValue = "100") int limit) {
+
+        long start = from != null ? from : System.currentTimeMillis();
+        long end = to != null ? to : start + DEFAULT_TIMELINE_RANGE;
+
+        return statusService.getTimeline(new Date(start), new Date(end), Math.max(0, offset),
+                Math.max(0, Math.min(limit, MAX_TIMELINE_PAGE)));
+
+    }
+
+    /**
+     * Get the earliest time window without scheduled tasks
+     *
+     * @param from   earliest window start (epoch, milliseconds); now by default
+     * @param length window length, in seconds
+     * @return free time window
+     */
+    @GetMapping(value = "/nextFreeWindow", produces = "application/json")
+    public TimelineEntry getNextFreeWindow(@RequestParam(required = false) Long from,
+                                           @RequestParam long length) {
+        return statusService.getNextFreeWindow(new Date(from != null ? from : System.currentTimeMillis()),
+                Math.max(0, length) * 1000);
+    }
 
 }
@@ -0,0 +1,41 @@
+package com.ultimalabs.sancho.api.status.model;
+
+import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.model.RadioParams;
+import com.ultimalabs.sancho.scheduler.model.TaskCounts;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Scheduled tasks and device state, in a single response
+ */
+@Data
+public class StatusSummary {
+
+    /**
+     * Scheduled tasks
+     */
+    private final List<String> scheduledTasks;
+
+    /**
+     * Number of scheduled tasks in each state
+     */
+    private final TaskCounts taskCounts;
+
+    /**
+     * Rotator position; null if unknown
+     */
+    private final AzimuthElevation rotatorPosition;
+
+    /**
+     * Radio parameters; null if unknown or radio control is disabled
+     */
+    private final RadioParams radioParams;
+
+    /**
+     * Timestamp (epoch, milliseconds) of the device state; zero if it hasn't been read yet
+     */
+    private final long deviceStateTimestamp;
+
+}
@@ -0,0 +1,48 @@
+package com.ultimalabs.sancho.api.status.model;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Timeline entry - a pass, a scheduled task, or a free time window
+ */
+@Data
+public class TimelineEntry {
+
+    /**
+     * Pass in the horizon, scheduled or not
+     */
+    public static final String PASS = "pass";
+
+    /**
+     * Scheduled task
+     */
+    public static final String TASK = "task";
+
+    /**
+     * Time window without scheduled tasks
+     */
+    public static final String FREE = "free";
+
+    /**
+     * Entry type - pass, task or free
+     */
+    private final String type;
+
+    /**
+     * Entry description
+     */
+    private final String description;
+
+    /**
+     * Start time
+     */
+    private final Date start;
+
+    /**
+     * End time; same as the start time for tasks that don't take up time
+     */
+    private final Date end;
+
+}
@@ -1,8 +1,12 @@
 package com.ultimalabs.sancho.api.status.service;
 
+import com.ultimalabs.sancho.api.status.model.StatusSummary;
+import com.ultimalabs.sancho.api.status.model.TimelineEntry;
 import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
 import com.ultimalabs.sancho.rotctldclient.model.RadioParams;
+import com.ultimalabs.sancho.rotctldclient.model.TrackingReport;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -18,17 +22,51 @@ public interface StatusService {
     List<String> getScheduledTasks();
 
     /**
-     * Get current rotator position
+     * Get the last polled rotator position
      *
-     * @return current rotator position
+     * @return rotator position
      */
     AzimuthElevation getRotatorPosition();
 
     /**
-     * Get current radio parameters
+     * Get the last polled radio parameters
      *
-     * @return current radio parameters
+     * @return radio parameters
      */
     RadioParams getRadioParams();
 
+    /**
+     * Get pointing reports of the most recent tracked passes
+     *
+     * @return tracking reports, oldest first
+     */
+    List<TrackingReport> getTrackingReports();
+
+    /**
+     * Get scheduled tasks and the last polled device state
+     *
+     * @return status summary
+     */
+    StatusSummary getStatusSummary();
+
+    /**
+     * Get a page of the passes and scheduled tasks in a time range
+     *
+     * @param from   range start
+     * @param to     range end
+     * @param offset number of entries to skip
+     * @param limit  maximum number of entries
+     * @return passes and tasks, ordered by start time
+     */
+    List<TimelineEntry> getTimeline(Date from, Date to, int offset, int limit);
+
+    /**
+     * Get the earliest time window without scheduled tasks
+     *
+     * @param from   earliest window start
+     * @param length window length, in milliseconds
+     * @return free time window
+     */
+    TimelineEntry getNextFreeWindow(Date from, long length);
+
 }
@@ -1,22 +1,33 @@
 package com.ultimalabs.sancho.api.status.service;
 
+import com.ultimalabs.sancho.api.status.model.StatusSummary;
+import com.ultimalabs.sancho.api.status.model.TimelineEntry;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import com.ultimalabs.sancho.predictclient.service.PassHorizon;
 import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.model.DeviceState;
 import com.ultimalabs.sancho.rotctldclient.model.RadioParams;
+import com.ultimalabs.sancho.rotctldclient.model.TrackingReport;
+import com.ultimalabs.sancho.rotctldclient.service.DeviceStatePoller;
 import com.ultimalabs.sancho.rotctldclient.service.HamlibClientService;
 import com.ultimalabs.sancho.scheduler.model.ScheduledTaskDetails;
-import com.ultimalabs.sancho.scheduler.service.SchedulerService;
+import com.ultimalabs.sancho.scheduler.service.ScheduledTaskRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 
 @RequiredArgsConstructor
 @Service
 public class StatusServiceImpl implements StatusService {
 
-    private final SchedulerService schedulerService;
+    private final ScheduledTaskRegistry taskRegistry;
     private final HamlibClientService hamlibClientService;
+    private final DeviceStatePoller deviceStatePoller;
+    private final PassHorizon passHorizon;
 
     /**
      * {@inheritDoc}
@@ -25,7 +36,7 @@ public class StatusServiceImpl implements StatusService {
     public List<String> getScheduledTasks() {
         List<String> listOfTasks = new ArrayList<>();
 
-        for (ScheduledTaskDetails taskDetails : schedulerService.getScheduledTasks()) {
+        for (ScheduledTaskDetails taskDetails : taskRegistry.getTasks()) {
             listOfTasks.add(taskDetails.getStartTime().toString() + " - " + taskDetails.getDescription());
         }
 
@@ -35,11 +46,10 @@ public class StatusServiceImpl implements StatusService {
 
     /**
      * {@inheritDoc}
-     * @return
      */
     @Override
     public AzimuthElevation getRotatorPosition() {
-        return hamlibClientService.getAzEl();
+        return deviceStatePoller.getState().getRotatorPosition();
     }
 
 
@@ -48,6 +58,67 @@ public class StatusServiceImpl implements StatusService {
      */
     @Override
     public RadioParams getRadioParams() {
-        return hamlibClientService.getRadioParams();
+        return deviceStatePoller.getState().getRadioParams();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TrackingReport> getTrackingReports() {
+        return hamlibClientService.getTrackingReports();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StatusSummary getStatusSummary() {
+        DeviceState state = deviceStatePoller.getState();
+        return new StatusSummary(getScheduledTasks(), taskRegistry.getCounts(), state.getRotatorPosition(),
+                state.getRadioParams(), state.getTimestamp());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Takes the first offset + limit passes and tasks in the range from
+     * their indexes, merges them and returns the requested page.
+     */
+    @Override
+    public List<TimelineEntry> getTimeline(Date from, Date to, int offset, int limit) {
+
+        int count = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        List<TimelineEntry> entries = new ArrayList<>();
+
+        for (SatellitePass pass : passHorizon.getPasses(from, to, 0, count)) {
+            entries.add(new TimelineEntry(TimelineEntry.PASS,
+                    pass.getSatelliteData().getName() + ", max elevation " + pass.getMidPoint().getEl(),
+                    pass.getRisePoint().getT(), pass.getSetPoint().getT()));
+        }
+
+        for (ScheduledTaskDetails task : taskRegistry.getTasks(from, to, 0, count)) {
+            entries.add(new TimelineEntry(TimelineEntry.TASK, task.getDescription(), task.getStartTime(),
+                    task.getEndTime()));
+        }
+
+        entries.sort(Comparator.comparing(TimelineEntry::getStart));
+
+        if (offset >= entries.size()) {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(entries.subList(offset, Math.min(entries.size(), count)));
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TimelineEntry getNextFreeWindow(Date from, long length) {
+        Date start = taskRegistry.getNextFreeWindow(from, length);
+        return new TimelineEntry(TimelineEntry.FREE, "No scheduled tasks", start,
+                new Date(start.getTime() + length));
     }
 }
@@ -0,0 +1,217 @@
+package com.ultimalabs.sancho.common.config;
+
+import lombok.Data;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Antenna chain config - a rotator and a radio that track a pass together
+ * <p>
+ * Chains track independently, so passes that overlap can be tracked in
+ * parallel on different chains. A chain can have its own tracking and
+ * Doppler correction settings, or use the shared ones, see
+ * {@link RotatorConfig} and {@link RadioConfig}.
+ */
+@Data
+@Validated
+public class AntennaChain {
+
+    /**
+     * Chain name, used in logs, metrics and task descriptions
+     */
+    @NotBlank(message = "Antenna chain name should not be empty")
+    private final String name;
+
+    /**
+     * Rotctld host address
+     *
+     * Use empty string if the chain has no rotator
+     */
+    @NotNull
+    private final String rotctldHost;
+
+    /**
+     * Rotctld port
+     *
+     * Use 0 if the chain has no rotator
+     */
+    @Min(value = 0, message = "Invalid rotctldPort - minimum value is 0")
+    @Max(value = 65535, message = "Invalid rotctldPort - maximum value is 65535")
+    private final int rotctldPort;
+
+    /**
+     * Rigctld host address
+     *
+     * Use empty string if the chain has no radio control
+     */
+    @NotNull
+    private final String rigctldHost;
+
+    /**
+     * Rigctld port
+     *
+     * Use 0 if the chain has no radio control
+     */
+    @Min(value = 0, message = "Invalid rigctldPort - minimum value is 0")
+    @Max(value = 65535, message = "Invalid rigctldPort - maximum value is 65535")
+    private final int rigctldPort;
+
+    /**
+     * Lowest radio frequency the chain can receive (Hz)
+     *
+     * Use 0 for no limit
+     */
+    @DecimalMin(value = "0", message = "Min frequency should not be less than 0")
+    private final double minFrequency;
+
+    /**
+     * Highest radio frequency the chain can receive (Hz)
+     *
+     * Use 0 for no limit
+     */
+    @DecimalMin(value = "0", message = "Max frequency should not be less than 0")
+    private final double maxFrequency;
+
+    /**
+     * Tracking settings of the chain's rotator
+     *
+     * Optional, the shared rotator config is used if not set; the rotctld
+     * endpoint is the chain's, and isn't taken from these settings
+     */
+    private final RotatorConfig rotator;
+
+    /**
+     * Doppler correction settings of the chain's radio
+     *
+     * Optional, the shared radio config is used if not set; the rigctld
+     * endpoint is the chain's, and isn't taken from these settings
+     */
+    private final RadioConfig radio;
+
+    /**
+     * Constructor used for deserialization from JSON to AntennaChain object
+     */
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    public AntennaChain(
+            @JsonProperty("name") String name,
+            @JsonProperty("rotctldHost") String rotctldHost,
+            @JsonProperty("rotctldPort") int rotctldPort,
+            @JsonProperty("rigctldHost") String rigctldHost,
+            @JsonProperty("rigctldPort") int rigctldPort,
+            @JsonProperty("minFrequency") double minFrequency,
+            @JsonProperty("maxFrequency") double maxFrequency,
+            @JsonProperty("rotator") RotatorConfig rotator,
+            @JsonProperty("radio") RadioConfig radio
+        ) {
+
+        this.name = name;
+        this.rotctldHost = rotctldHost;
+        this.rotctldPort = rotctldPort;
+        this.rigctldHost = rigctldHost;
+        this.rigctldPort = rigctldPort;
+        this.minFrequency = minFrequency;
+        this.maxFrequency = maxFrequency;
+        this.rotator = rotator;
+        this.radio = radio;
+    }
+
+    /**
+     * Antenna chains of a station
+     * <p>
+     * Without configured chains, the station has a single chain, with the
+     * rotctld and rigctld endpoints and settings from the rotator and
+     * radio config.
+     *
+     * @param config config object
+     * @return antenna chains, at least one
+     */
+    public static List<AntennaChain> of(SanchoConfig config) {
+
+        if (config.getAntennaChains() != null && !config.getAntennaChains().isEmpty()) {
+            return config.getAntennaChains();
+        }
+
+        return Collections.singletonList(new AntennaChain("default",
+                config.getRotator().getRotctldHost(), config.getRotator().getRotctldPort(),
+                config.getRadio().getRigctldHost(), config.getRadio().getRigctldPort(), 0, 0, null, null));
+
+    }
+
+    /**
+     * Tracking settings of the chain's rotator
+     *
+     * @param config config object
+     * @return the chain's rotator settings, or the shared ones if it has none
+     */
+    public RotatorConfig rotatorSettings(SanchoConfig config) {
+        return rotator != null ? rotator : config.getRotator();
+    }
+
+    /**
+     * Doppler correction settings of the chain's radio
+     *
+     * @param config config object
+     * @return the chain's radio settings, or the shared ones if it has none
+     */
+    public RadioConfig radioSettings(SanchoConfig config) {
+        return radio != null ? radio : config.getRadio();
+    }
+
+    /**
+     * Whether the chain has a rotator
+     *
+     * @return true if rotctld is configured
+     */
+    public boolean hasRotator() {
+        return !rotctldHost.isEmpty() && rotctldPort != 0;
+    }
+
+    /**
+     * Whether the chain has radio control
+     *
+     * @return true if rigctld is configured
+     */
+    public boolean hasRadio() {
+        return !rigctldHost.isEmpty() && rigctldPort != 0;
+    }
+
+    /**
+     * Whether the chain can handle a satellite's passes
+     * <p>
+     * The satellite's radio frequency has to be in the chain's range, and
+     * satellites that need the rotator or radio control need a chain that
+     * has them.
+     *
+     * @param sat satellite data
+     * @return true if the chain can handle the satellite
+     */
+    public boolean canHandle(SatelliteData sat) {
+
+        if (minFrequency > 0 && sat.getRadioFrequency() < minFrequency) {
+            return false;
+        }
+
+        if (maxFrequency > 0 && sat.getRadioFrequency() > maxFrequency) {
+            return false;
+        }
+
+        if (sat.isRotatorEnabled() && sat.getStepSize() != 0.0 && !hasRotator()) {
+            return false;
+        }
+
+        return !sat.isRadioControlEnabled() || hasRadio();
+
+    }
+
+}
@@ -3,9 +3,9 @@ package com.ultimalabs.sancho.common.config;
 import lombok.Data;
 import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
-import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -20,9 +20,8 @@ public class RadioConfig {
     /**
      * Rigctld host address
      *
-     * Use empty string if rigctld is not used
+     * Use empty string, or leave it out, if rigctld is not used
      */
-    @NotNull
     private final String rigctldHost;
 
     /**
@@ -34,16 +33,34 @@ public class RadioConfig {
     @Max(value = 65535, message = "Invalid rigctldPort - maximum value is 65535")
     private final int rigctldPort;
 
+    /**
+     * Interval between two Doppler correction updates (seconds)
+     *
+     * Use 0 to disable Doppler correction
+     */
+    @DecimalMin(value = "0", message = "Doppler step size should not be less than 0")
+    private final double dopplerStepSize;
+
+    /**
+     * Frequency change that triggers a Doppler correction update (Hz)
+     */
+    @DecimalMin(value = "0", message = "Doppler threshold should not be less than 0")
+    private final double dopplerThreshold;
+
     /**
      * Constructor used for deserialization from JSON to RadioConfig object
      */
     @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
     public RadioConfig(
             @JsonProperty("rigctldHost") String rigctldHost, 
-            @JsonProperty("rigctldPort") int rigctldPort
+            @JsonProperty("rigctldPort") int rigctldPort,
+            @JsonProperty("dopplerStepSize") double dopplerStepSize,
+            @JsonProperty("dopplerThreshold") double dopplerThreshold
         ) {
 
-        this.rigctldHost = rigctldHost;
+        this.rigctldHost = rigctldHost != null ? rigctldHost : "";
         this.rigctldPort = rigctldPort;
+        this.dopplerStepSize = dopplerStepSize;
+        this.dopplerThreshold = dopplerThreshold;
     }
 }
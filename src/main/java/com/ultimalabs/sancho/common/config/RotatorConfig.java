@@ -6,7 +6,6 @@ import org.springframework.validation.annotation.Validated;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
-import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -21,9 +20,8 @@ public class RotatorConfig {
     /**
      * Rotctld host address
      *
-     * Use empty string if rotctld is not used
+     * Use empty string, or leave it out, if rotctld is not used
      */
-    @NotNull
     private final String rotctldHost;
 
     /**
@@ -41,6 +39,51 @@ public class RotatorConfig {
     @DecimalMin(value = "0.01", message = "Step size should not be less than 0.01")
     private final double stepSize;
 
+    /**
+     * Antenna half-power (-3 dB) beamwidth (degrees)
+     *
+     * Use 0 to command the rotator whenever the position changes
+     */
+    @DecimalMin(value = "0", message = "Beamwidth should not be less than 0")
+    private final double beamwidth;
+
+    /**
+     * Pointing loss tolerated before the rotator is moved (dB)
+     *
+     * Together with the beamwidth, defines the pointing error tolerance
+     */
+    @DecimalMin(value = "0", message = "Max pointing loss should not be less than 0")
+    private final double maxPointingLoss;
+
+    /**
+     * Maximum number of "set position" commands per second
+     *
+     * Use 0 for no limit
+     */
+    @DecimalMin(value = "0", message = "Max command rate should not be less than 0")
+    private final double maxCommandRate;
+
+    /**
+     * Whether positions are commanded ahead, by the measured rotator lag
+     */
+    private final boolean leadCompensation;
+
+    /**
+     * Interval between rotator position readings during tracking (seconds)
+     *
+     * Use 0 to read the position only after commands
+     */
+    @DecimalMin(value = "0", message = "Feedback interval should not be less than 0")
+    private final double feedbackInterval;
+
+    /**
+     * Time the rotator needs to move from the end of one pass to the start of the next (seconds)
+     *
+     * Passes tracked by the rotator are only scheduled if there's at least this much time before them
+     */
+    @DecimalMin(value = "0", message = "Reposition time should not be less than 0")
+    private final double repositionTime;
+
     /**
      * Constructor used for deserialization from JSON to RotatorConfig object
      */
@@ -48,11 +91,23 @@ public class RotatorConfig {
     public RotatorConfig(
             @JsonProperty("rotctldHost") String rotctldHost,
             @JsonProperty("rotctldPort") int rotctldPort,
-            @JsonProperty("stepSize") double stepSize
+            @JsonProperty("stepSize") double stepSize,
+            @JsonProperty("beamwidth") double beamwidth,
+            @JsonProperty("maxPointingLoss") double maxPointingLoss,
+            @JsonProperty("maxCommandRate") double maxCommandRate,
+            @JsonProperty("leadCompensation") boolean leadCompensation,
+            @JsonProperty("feedbackInterval") double feedbackInterval,
+            @JsonProperty("repositionTime") double repositionTime
         ) {
 
-        this.rotctldHost = rotctldHost;
+        this.rotctldHost = rotctldHost != null ? rotctldHost : "";
         this.stepSize = stepSize;
         this.rotctldPort = rotctldPort;
+        this.beamwidth = beamwidth;
+        this.maxPointingLoss = maxPointingLoss;
+        this.maxCommandRate = maxCommandRate;
+        this.leadCompensation = leadCompensation;
+        this.feedbackInterval = feedbackInterval;
+        this.repositionTime = repositionTime;
     }
 }
@@ -5,6 +5,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
@@ -35,12 +36,37 @@ public class SanchoConfig {
     @Min(value = 1, message = "schedulerErrorWait should not be less than 1")
     private final int schedulerErrorWait;
 
+    /**
+     * How often we poll the rotator and radio state for the status API (seconds)
+     *
+     * Use 0 to disable polling
+     */
+    @DecimalMin(value = "0", message = "statusPollInterval should not be less than 0")
+    private final double statusPollInterval;
+
+    /**
+     * How long before a pass the station leaves idle mode (seconds)
+     *
+     * Outside passes and this window, status polling is paused and the task
+     * scheduler shrinks to a single thread. Use 0 to disable idle mode
+     */
+    @Min(value = 0, message = "idleWindow should not be less than 0")
+    private final int idleWindow;
+
     /**
      * SatTrackAPI base URL
      */
     @NotBlank(message = "SatTrackAPI base URL should not be empty")
     private final String satTrackApiUrl;
 
+    /**
+     * TLE file for local pass prediction
+     *
+     * If set, passes are predicted locally from the element sets in this file,
+     * instead of being fetched from SatTrackAPI
+     */
+    private final String tleFile;
+
     /**
      * Station details
      */
@@ -59,6 +85,14 @@ public class SanchoConfig {
     @NotNull(message = "Radio transceiver control config should not be empty")
     private final RadioConfig radio;
 
+    /**
+     * Antenna chains
+     *
+     * Leave empty for a single chain, with the rotctld and rigctld endpoints
+     * from the rotator and radio config
+     */
+    private final List<AntennaChain> antennaChains;
+
     /**
      * List of satellites we're tracking
      */
@@ -73,19 +107,27 @@ public class SanchoConfig {
     public SanchoConfig(
             @JsonProperty("schedulerAutoStartDisabled") boolean schedulerAutoStartDisabled, 
             @JsonProperty("schedulerErrorWait") int schedulerErrorWait, 
+            @JsonProperty("statusPollInterval") double statusPollInterval,
+            @JsonProperty("idleWindow") int idleWindow,
             @JsonProperty("satTrackApiUrl") String satTrackApiUrl,
+            @JsonProperty("tleFile") String tleFile,
             @JsonProperty("station") StationDetails station,
             @JsonProperty("rotator") RotatorConfig rotator,
             @JsonProperty("radio") RadioConfig radio,
+            @JsonProperty("antennaChains") List<AntennaChain> antennaChains,
             @JsonProperty("satelliteData") List<SatelliteData> satelliteData
         ) {
 
         this.schedulerAutoStartDisabled = schedulerAutoStartDisabled;
         this.schedulerErrorWait = schedulerErrorWait;
+        this.statusPollInterval = statusPollInterval;
+        this.idleWindow = idleWindow;
         this.satTrackApiUrl = satTrackApiUrl;
+        this.tleFile = tleFile;
         this.station = station;
         this.rotator = rotator;
         this.radio = radio;
+        this.antennaChains = antennaChains;
         this.satelliteData = satelliteData;
     }
 
@@ -37,6 +37,14 @@ public class SatelliteData {
      */
     private final double radioFrequency;
 
+    /**
+     * Satellite transponder's uplink radio frequency (Hz)
+     * <p>
+     * Use zero if there's no uplink.
+     */
+    @Min(value = 0, message = "Uplink frequency should not be less than 0")
+    private final double uplinkFrequency;
+
     /**
      * Elevation threshold for passes
      */
@@ -51,6 +59,15 @@ public class SatelliteData {
     @Max(value = 90, message = "Tracking elevation threshold should not be greater than 90")
     private final double trackingElevationThreshold;
 
+    /**
+     * Priority of this satellite's passes, relative to other satellites
+     * <p>
+     * Weights the pass duration when choosing between overlapping passes.
+     * Use zero for the default priority, 1.
+     */
+    @Min(value = 0, message = "Priority should not be less than 0")
+    private final double priority;
+
     /**
      * Tracking step size (duration n seconds), for use with rotators
      * <p>
@@ -58,6 +75,15 @@ public class SatelliteData {
      */
     private final double stepSize;
 
+    /**
+     * Step size (duration in seconds) pass details are fetched with
+     * <p>
+     * If greater than stepSize, a coarse trajectory is fetched and densified
+     * locally to stepSize. Use zero to fetch at stepSize.
+     */
+    @Min(value = 0, message = "Fetch step size should not be less than 0")
+    private final double fetchStepSize;
+
     /**
      * Whether the rotator is used with this satellite
      */
@@ -100,9 +126,12 @@ public class SatelliteData {
             @JsonProperty("id") String id, 
             @JsonProperty("name") String name, 
             @JsonProperty("radioFrequency") double radioFrequency, 
+            @JsonProperty("uplinkFrequency") double uplinkFrequency, 
             @JsonProperty("minElevation") double minElevation, 
             @JsonProperty("trackingElevationThreshold") double trackingElevationThreshold, 
+            @JsonProperty("priority") double priority, 
             @JsonProperty("stepSize") double stepSize, 
+            @JsonProperty("fetchStepSize") double fetchStepSize, 
             @JsonProperty("rotatorEnabled") boolean rotatorEnabled, 
             @JsonProperty("radioControlEnabled") boolean radioControlEnabled, 
             @JsonProperty("satRiseShellCmdTemplate") String satRiseShellCmdTemplate, 
@@ -111,9 +140,12 @@ public class SatelliteData {
         this.id = id;
         this.name = name;
         this.radioFrequency = radioFrequency;
+        this.uplinkFrequency = uplinkFrequency;
         this.minElevation = minElevation;
         this.trackingElevationThreshold = trackingElevationThreshold;
+        this.priority = priority;
         this.stepSize = stepSize;
+        this.fetchStepSize = fetchStepSize;
         this.rotatorEnabled = rotatorEnabled;
         this.radioControlEnabled = radioControlEnabled;
         this.satRiseShellCmdTemplate = satRiseShellCmdTemplate;
@@ -0,0 +1,123 @@
+package com.ultimalabs.sancho.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the times Sancho's threads wake up to do something
+ * <p>
+ * Each wakeup source (a timer firing, the Hamlib event loop returning from
+ * select, a status poll) records its wakeups here. The totals are exposed
+ * as the <code>sancho.wakeups</code> counters, tagged by source, and the
+ * number of wakeups in the last minute as the
+ * <code>sancho.wakeups.per.minute</code> gauge. The gauge is computed when
+ * it's read, so measuring doesn't add wakeups.
+ */
+@Component
+public class WakeupMeter {
+
+    /**
+     * Length of the rate window, in seconds
+     */
+    private static final int WINDOW = 60;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Wakeup counters, by source
+     */
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Wakeups in each second of the window, guarded by this
+     */
+    private final long[] counts = new long[WINDOW];
+
+    /**
+     * Second (epoch) each count belongs to, guarded by this
+     */
+    private final long[] seconds = new long[WINDOW];
+
+    /**
+     * Constructor
+     *
+     * @param meterRegistry meter registry
+     */
+    public WakeupMeter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("sancho.wakeups.per.minute", this, meter -> meter.perMinute(System.currentTimeMillis()))
+                .description("Number of thread wakeups in the last minute")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a wakeup
+     *
+     * @param source wakeup source
+     */
+    public void record(String source) {
+        record(source, System.currentTimeMillis());
+    }
+
+    /**
+     * Number of wakeups in the last minute
+     *
+     * @return wakeups per minute
+     */
+    public long perMinute() {
+        return perMinute(System.currentTimeMillis());
+    }
+
+    /**
+     * Records a wakeup
+     *
+     * @param source wakeup source
+     * @param now    current time (epoch, milliseconds)
+     */
+    void record(String source, long now) {
+
+        counters.computeIfAbsent(source, s -> Counter.builder("sancho.wakeups")
+                .description("Number of thread wakeups, by source")
+                .tag("source", s)
+                .register(meterRegistry)).increment();
+
+        long second = now / 1000;
+        int slot = (int) (second % WINDOW);
+
+        synchronized (this) {
+            if (seconds[slot] != second) {
+                seconds[slot] = second;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+        }
+
+    }
+
+    /**
+     * Number of wakeups in the minute before a time
+     *
+     * @param now current time (epoch, milliseconds)
+     * @return wakeups per minute
+     */
+    synchronized long perMinute(long now) {
+
+        long second = now / 1000;
+        long total = 0;
+
+        for (int slot = 0; slot < WINDOW; slot++) {
+            if (second - seconds[slot] < WINDOW) {
+                total += counts[slot];
+            }
+        }
+
+        return total;
+
+    }
+
+}
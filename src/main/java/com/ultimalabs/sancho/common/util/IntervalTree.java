@@ -0,0 +1,401 @@
+package com.ultimalabs.sancho.common.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Index of time intervals
+ * <p>
+ * A treap ordered by interval start, where each node also keeps the latest
+ * end in its subtree, so subtrees that end before a query can be skipped.
+ * Finding the intervals that overlap a time range takes O(log n + k) for k
+ * results, adding and removing an interval O(log n), all expected. Intervals
+ * are closed; an interval with the same start and end is an instant.
+ * <p>
+ * Values are compared by identity, and a value can only be added once.
+ * Not thread safe.
+ *
+ * @param <T> type of the values
+ */
+public class IntervalTree<T> {
+
+    /**
+     * Node priorities
+     */
+    private final Random random = new Random();
+
+    /**
+     * Nodes by value, for removal
+     */
+    private final Map<T, Node<T>> nodes = new IdentityHashMap<>();
+
+    /**
+     * Root node; null if the tree is empty
+     */
+    private Node<T> root;
+
+    /**
+     * Sequence number of the last added node, breaks ties between equal starts
+     */
+    private long lastSeq;
+
+    /**
+     * Adds an interval
+     *
+     * @param start interval start (epoch, milliseconds)
+     * @param end   interval end (epoch, milliseconds), not before start
+     * @param value value, not already in the tree
+     */
+    public void add(long start, long end, T value) {
+
+        if (end < start) {
+            throw new IllegalArgumentException("Interval ends before it starts: " + start + " - " + end);
+        }
+
+        if (nodes.containsKey(value)) {
+            throw new IllegalArgumentException("Value already added: " + value);
+        }
+
+        Node<T> node = new Node<>(start, end, ++lastSeq, random.nextInt(), value);
+        Node<T>[] parts = split(root, start, node.seq);
+
+        root = merge(merge(parts[0], node), parts[1]);
+        nodes.put(value, node);
+
+    }
+
+    /**
+     * Removes a value
+     *
+     * @param value value
+     * @return true if the value was in the tree
+     */
+    public boolean remove(T value) {
+
+        Node<T> node = nodes.remove(value);
+
+        if (node == null) {
+            return false;
+        }
+
+        Node<T>[] lower = split(root, node.start, node.seq);
+        Node<T>[] upper = split(lower[1], node.start, node.seq + 1);
+
+        root = merge(lower[0], upper[1]);
+
+        return true;
+
+    }
+
+    /**
+     * Removes the values that match a condition
+     *
+     * @param filter condition
+     * @return number of removed values
+     */
+    public int removeIf(Predicate<? super T> filter) {
+
+        List<T> matching = new ArrayList<>();
+
+        for (T value : nodes.keySet()) {
+            if (filter.test(value)) {
+                matching.add(value);
+            }
+        }
+
+        for (T value : matching) {
+            remove(value);
+        }
+
+        return matching.size();
+
+    }
+
+    /**
+     * Number of intervals
+     *
+     * @return number of intervals
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * All values
+     *
+     * @return values, ordered by interval start
+     */
+    public List<T> values() {
+        return overlapping(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Values whose intervals overlap a time range
+     *
+     * @param from range start (epoch, milliseconds)
+     * @param to   range end (epoch, milliseconds)
+     * @return values, ordered by interval start
+     */
+    public List<T> overlapping(long from, long to) {
+        return overlapping(from, to, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * A page of values whose intervals overlap a time range
+     *
+     * @param from   range start (epoch, milliseconds)
+     * @param to     range end (epoch, milliseconds)
+     * @param offset number of values to skip
+     * @param limit  maximum number of values
+     * @return values, ordered by interval start
+     */
+    public List<T> overlapping(long from, long to, int offset, int limit) {
+
+        Collector<T> collector = new Collector<>(offset, limit);
+
+        if (limit > 0) {
+            collect(root, from, to, collector);
+        }
+
+        return collector.values;
+
+    }
+
+    /**
+     * Values whose intervals contain a time
+     *
+     * @param time time (epoch, milliseconds)
+     * @return values, ordered by interval start
+     */
+    public List<T> activeAt(long time) {
+        return overlapping(time, time);
+    }
+
+    /**
+     * Finds the earliest free window of a given length
+     * <p>
+     * A window is free if no interval starts or ends inside it; intervals
+     * may end at its start, or start at its end.
+     *
+     * @param from   earliest window start (epoch, milliseconds)
+     * @param length window length, in milliseconds
+     * @return window start (epoch, milliseconds)
+     */
+    public long nextFreeWindow(long from, long length) {
+
+        long start = from;
+        Node<T> blocking = firstBlocking(root, start, start + length);
+
+        while (blocking != null) {
+            start = blocking.end;
+            blocking = firstBlocking(root, start, start + length);
+        }
+
+        return start;
+
+    }
+
+    /**
+     * Collects the values overlapping a range, in order
+     *
+     * @return false when the collector is full
+     */
+    private static <T> boolean collect(Node<T> node, long from, long to, Collector<T> collector) {
+
+        if (node == null || node.maxEnd < from) {
+            return true;
+        }
+
+        if (!collect(node.left, from, to, collector)) {
+            return false;
+        }
+
+        if (node.start > to) {
+            return true;
+        }
+
+        if (node.end >= from && !collector.accept(node.value)) {
+            return false;
+        }
+
+        return collect(node.right, from, to, collector);
+
+    }
+
+    /**
+     * Finds the interval with the earliest start that takes up time in the (from, to) range
+     *
+     * @return node, or null if there's none
+     */
+    private static <T> Node<T> firstBlocking(Node<T> node, long from, long to) {
+
+        if (node == null || node.maxEnd <= from) {
+            return null;
+        }
+
+        Node<T> left = firstBlocking(node.left, from, to);
+
+        if (left != null) {
+            return left;
+        }
+
+        if (node.start >= to) {
+            return null;
+        }
+
+        if (node.end > from) {
+            return node;
+        }
+
+        return firstBlocking(node.right, from, to);
+
+    }
+
+    /**
+     * Splits a subtree into the nodes before a key, and the rest
+     *
+     * @return nodes before the key, nodes at or after the key
+     */
+    private static <T> Node<T>[] split(Node<T> node, long start, long seq) {
+
+        if (node == null) {
+            return pair(null, null);
+        }
+
+        if (node.start < start || node.start == start && node.seq < seq) {
+            Node<T>[] parts = split(node.right, start, seq);
+            node.right = parts[0];
+            node.update();
+            return pair(node, parts[1]);
+        }
+
+        Node<T>[] parts = split(node.left, start, seq);
+        node.left = parts[1];
+        node.update();
+
+        return pair(parts[0], node);
+
+    }
+
+    /**
+     * Builds the result of a split
+     *
+     * @return array of the two subtrees
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] pair(Node<T> first, Node<T> second) {
+        return (Node<T>[]) new Node<?>[]{first, second};
+    }
+
+    /**
+     * Merges two subtrees, where all the nodes of the first come before the nodes of the second
+     *
+     * @return merged subtree
+     */
+    private static <T> Node<T> merge(Node<T> first, Node<T> second) {
+
+        if (first == null) {
+            return second;
+        }
+
+        if (second == null) {
+            return first;
+        }
+
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        }
+
+        second.left = merge(first, second.left);
+        second.update();
+
+        return second;
+
+    }
+
+    /**
+     * Tree node
+     */
+    private static final class Node<T> {
+
+        private final long start;
+        private final long end;
+        private final long seq;
+        private final int priority;
+        private final T value;
+
+        /**
+         * Latest end in the subtree
+         */
+        private long maxEnd;
+
+        private Node<T> left;
+        private Node<T> right;
+
+        private Node(long start, long end, long seq, int priority, T value) {
+            this.start = start;
+            this.end = end;
+            this.seq = seq;
+            this.priority = priority;
+            this.value = value;
+            this.maxEnd = end;
+        }
+
+        /**
+         * Recomputes the latest end after a child changed
+         */
+        private void update() {
+
+            maxEnd = end;
+
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+
+        }
+
+    }
+
+    /**
+     * Collects a page of values
+     */
+    private static final class Collector<T> {
+
+        private final List<T> values = new ArrayList<>();
+        private int skip;
+        private final int limit;
+
+        private Collector(int offset, int limit) {
+            this.skip = offset;
+            this.limit = limit;
+        }
+
+        /**
+         * @return false when the page is full
+         */
+        private boolean accept(T value) {
+
+            if (skip > 0) {
+                skip--;
+                return true;
+            }
+
+            values.add(value);
+
+            return values.size() < limit;
+
+        }
+
+    }
+
+}
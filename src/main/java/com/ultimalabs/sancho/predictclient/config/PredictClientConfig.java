@@ -0,0 +1,66 @@
+package com.ultimalabs.sancho.predictclient.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Shared REST client and thread pool for fetching pass data
+ */
+@Slf4j
+@Configuration
+public class PredictClientConfig {
+
+    /**
+     * SatTrackAPI connect timeout, in seconds
+     */
+    private static final int CONNECT_TIMEOUT = 5;
+
+    /**
+     * SatTrackAPI read timeout, in seconds
+     */
+    private static final int READ_TIMEOUT = 20;
+
+    /**
+     * Maximum number of satellites fetched at once
+     * <p>
+     * A fetch that misses the fetch deadline (60 seconds) keeps its thread
+     * until its request times out, since canceling it doesn't interrupt a
+     * blocked read; a SatTrackAPI fetch is a single request, so that's at
+     * most the connect and read timeouts (25 seconds) past the deadline.
+     */
+    private static final int FETCH_THREADS = 8;
+
+    /**
+     * REST client for SatTrackAPI
+     * <p>
+     * Shared by all fetches; the JDK keeps the connections alive between requests.
+     *
+     * @param builder REST client builder
+     * @return REST client
+     */
+    @Bean
+    public RestTemplate satTrackApiRestTemplate(RestTemplateBuilder builder) {
+        return builder
+                .setConnectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT))
+                .setReadTimeout(Duration.ofSeconds(READ_TIMEOUT))
+                .build();
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor passFetchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(FETCH_THREADS);
+        executor.setMaxPoolSize(FETCH_THREADS);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("PassFetch");
+        log.info("Created pass fetch executor bean.");
+        return executor;
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.ultimalabs.sancho.predictclient.service;
+
+import com.ultimalabs.sancho.common.config.AntennaChain;
+import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.common.config.SatelliteData;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import com.ultimalabs.sancho.common.util.IntervalTree;
+import com.ultimalabs.sancho.predictclient.util.PassSelector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolling horizon of upcoming passes, per satellite
+ * <p>
+ * The scheduler plans from the passes kept here. A satellite's passes are
+ * only fetched again when they've all been consumed (scheduled, or over
+ * without being scheduled), or when they're older than the maximum age,
+ * so new element sets are picked up. If a fetch fails, the passes already
+ * known are still used.
+ * <p>
+ * Each antenna chain asks for its next pass when it's free. The passes are
+ * assigned to all the chains (see {@link PassSelector}), taking into account
+ * the chains that are still busy with the pass they picked before.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class PassHorizon {
+
+    /**
+     * How far ahead passes are fetched, in milliseconds
+     */
+    static final long HORIZON = 24 * 3_600_000L;
+
+    /**
+     * Age after which a satellite's passes are fetched again, in milliseconds
+     */
+    static final long MAX_AGE = 6 * 3_600_000L;
+
+    /**
+     * Config object
+     */
+    private final SanchoConfig config;
+
+    /**
+     * Predict client service
+     */
+    private final PredictClientService predictClientService;
+
+    /**
+     * Upcoming passes by satellite id, ordered by rise time
+     */
+    private final Map<String, Deque<SatellitePass>> passes = new HashMap<>();
+
+    /**
+     * Time each satellite's passes were fetched (epoch, milliseconds), by satellite id
+     */
+    private final Map<String, Long> fetchTimes = new HashMap<>();
+
+    /**
+     * The same passes, indexed by the time they're visible
+     */
+    private final IntervalTree<SatellitePass> index = new IntervalTree<>();
+
+    /**
+     * End of the pass each chain picked last (epoch, milliseconds), by chain name
+     */
+    private final Map<String, Long> busyUntil = new HashMap<>();
+
+    /**
+     * Set time of the pass picked last (epoch, milliseconds), by satellite id;
+     * a fetch may return that pass again while it's still on
+     */
+    private final Map<String, Long> pickedUntil = new HashMap<>();
+
+    /**
+     * Picks the next pass for an antenna chain, and removes it from the horizon
+     * <p>
+     * The pick is the first pass of the chain's schedule, when all the passes
+     * in the horizon are assigned to the chains, see {@link PassSelector}.
+     *
+     * @param chain antenna chain, free from now on
+     * @return pass data, or null if there's no pass worth scheduling on the chain
+     */
+    public SatellitePass getNextPass(AntennaChain chain) {
+        return getNextPass(chain, System.currentTimeMillis());
+    }
+
+    /**
+     * Picks the next pass for an antenna chain at a given time
+     *
+     * @param chain antenna chain, free from now on
+     * @param now   current time (epoch, milliseconds)
+     * @return pass data, or null if there's no pass worth scheduling on the chain
+     */
+    synchronized SatellitePass getNextPass(AntennaChain chain, long now) {
+
+        refresh(now);
+        busyUntil.remove(chain.getName());
+        busyUntil.values().removeIf(end -> end <= now);
+
+        List<SatellitePass> candidates = new ArrayList<>();
+
+        for (SatelliteData sat : config.getSatelliteData()) {
+            Deque<SatellitePass> satPasses = passes.get(sat.getId());
+            if (satPasses != null) {
+                candidates.addAll(satPasses);
+            }
+        }
+
+        Map<String, List<SatellitePass>> assignment = PassSelector.assign(candidates, AntennaChain.of(config),
+                busyUntil, this::repositionTime);
+        List<SatellitePass> schedule = assignment.get(chain.getName());
+
+        if (schedule == null || schedule.isEmpty()) {
+            return null;
+        }
+
+        SatellitePass nextPass = schedule.get(0);
+        passes.get(nextPass.getSatelliteData().getId()).remove(nextPass);
+        index.remove(nextPass);
+        busyUntil.put(chain.getName(), nextPass.getSetPoint().getT().getTime());
+        pickedUntil.put(nextPass.getSatelliteData().getId(), nextPass.getSetPoint().getT().getTime());
+        predictClientService.substituteShellVariables(nextPass);
+
+        log.info("Planned {} of {} passes in the horizon on {}.", schedule.size(), candidates.size(),
+                chain.getName());
+
+        return nextPass;
+
+    }
+
+    /**
+     * Time a chain's rotator needs between passes
+     *
+     * @param chain antenna chain
+     * @return reposition time, in milliseconds
+     */
+    private long repositionTime(AntennaChain chain) {
+        return Math.round(chain.rotatorSettings(config).getRepositionTime() * 1000);
+    }
+
+    /**
+     * Drops the passes that are over, and fetches the satellites that
+     * ran out of passes or whose passes are too old
+     *
+     * @param now current time (epoch, milliseconds)
+     */
+    private void refresh(long now) {
+
+        List<SatelliteData> stale = new ArrayList<>();
+
+        for (SatelliteData sat : config.getSatelliteData()) {
+
+            Deque<SatellitePass> satPasses = passes.get(sat.getId());
+
+            if (satPasses != null) {
+                dropEnded(satPasses, now);
+            }
+
+            Long fetchTime = fetchTimes.get(sat.getId());
+
+            if (satPasses == null || satPasses.isEmpty() || fetchTime == null || now - fetchTime > MAX_AGE) {
+                stale.add(sat);
+            }
+
+        }
+
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        log.info("Fetching passes for {} of {} satellites.", stale.size(), config.getSatelliteData().size());
+
+        Map<String, List<SatellitePass>> fetched = predictClientService.fetchPasses(stale, now + HORIZON);
+
+        for (Map.Entry<String, List<SatellitePass>> entry : fetched.entrySet()) {
+
+            Deque<SatellitePass> previous = passes.get(entry.getKey());
+
+            if (previous != null) {
+                previous.forEach(index::remove);
+            }
+
+            Deque<SatellitePass> satPasses = new ArrayDeque<>();
+            long after = Math.max(now, pickedUntil.getOrDefault(entry.getKey(), now));
+
+            for (SatellitePass pass : entry.getValue()) {
+                if (pass.getSetPoint().getT().getTime() > after) {
+                    satPasses.add(pass);
+                    index.add(pass.getRisePoint().getT().getTime(), pass.getSetPoint().getT().getTime(), pass);
+                }
+            }
+
+            passes.put(entry.getKey(), satPasses);
+            fetchTimes.put(entry.getKey(), now);
+
+        }
+
+    }
+
+    /**
+     * Get a page of the passes in the horizon that are visible in a time range
+     * <p>
+     * Includes the passes that aren't (yet) scheduled. Doesn't fetch passes.
+     *
+     * @param from   range start
+     * @param to     range end
+     * @param offset number of passes to skip
+     * @param limit  maximum number of passes
+     * @return passes, ordered by rise time
+     */
+    public synchronized List<SatellitePass> getPasses(Date from, Date to, int offset, int limit) {
+        return index.overlapping(from.getTime(), to.getTime(), offset, limit);
+    }
+
+    /**
+     * Drops the passes of a satellite that are over
+     *
+     * @param satPasses satellite passes, ordered by rise time
+     * @param now       current time (epoch, milliseconds)
+     */
+    private void dropEnded(Deque<SatellitePass> satPasses, long now) {
+
+        Iterator<SatellitePass> iterator = satPasses.iterator();
+
+        while (iterator.hasNext()) {
+            SatellitePass pass = iterator.next();
+            if (pass.getSetPoint().getT().getTime() <= now) {
+                iterator.remove();
+                index.remove(pass);
+            }
+        }
+
+    }
+
+}
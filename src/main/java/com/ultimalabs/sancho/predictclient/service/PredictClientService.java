@@ -1,17 +1,26 @@
 package com.ultimalabs.sancho.predictclient.service;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.ultimalabs.sancho.common.config.SanchoConfig;
 import com.ultimalabs.sancho.common.config.SatelliteData;
 import com.ultimalabs.sancho.common.config.StationDetails;
 import com.ultimalabs.sancho.common.model.SatellitePass;
+import com.ultimalabs.sancho.predictclient.sgp4.GroundStation;
+import com.ultimalabs.sancho.predictclient.sgp4.LocalPassPredictor;
+import com.ultimalabs.sancho.predictclient.sgp4.Sgp4;
+import com.ultimalabs.sancho.predictclient.sgp4.Tle;
+import com.ultimalabs.sancho.rotctldclient.util.PassDataToTrackingDataConverter;
 
 import org.apache.commons.text.StringSubstitutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
@@ -20,72 +29,350 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Fetches tracking data from the remote SatTrackAPI server
+ * Fetches tracking data from the remote SatTrackAPI server, or predicts it
+ * locally if a TLE file is configured
  */
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class PredictClientService {
 
+    /**
+     * How long we wait for all satellites to be fetched, in seconds
+     */
+    private static final long FETCH_DEADLINE = 60;
+
+    /**
+     * Maximum number of passes predicted locally per satellite
+     */
+    private static final int MAX_PASSES = 50;
+
+    /**
+     * How much the rise time of a pass may differ between the summary and the details, in milliseconds
+     */
+    private static final long MAX_RISE_DIFFERENCE = 60_000;
+
     /**
      * Config object
      */
     private final SanchoConfig config;
 
     /**
-     * Fetches the next pass data
+     * Element sets for local pass prediction
+     */
+    private final TleCatalog tleCatalog;
+
+    /**
+     * SatTrackAPI REST client
+     */
+    private final RestTemplate restTemplate;
+
+    /**
+     * Thread pool the satellites are fetched on
+     */
+    private final ThreadPoolTaskExecutor passFetchExecutor;
+
+    /**
+     * Fetches the passes of a number of satellites
+     * <p>
+     * All satellites are fetched concurrently. Satellites that fail, or
+     * aren't done by the deadline, are left out of the result. Locally
+     * predicted satellites get all passes rising before the horizon end;
+     * SatTrackAPI only returns the next pass.
+     * <p>
+     * Fetches that miss the deadline are canceled, but canceling doesn't
+     * interrupt a blocked SatTrackAPI read: a fetch that already started
+     * keeps its thread until the REST client's read timeout. The deadline is
+     * longer than the connect and read timeouts together, so a slow request
+     * only holds its thread for a while after the deadline, see
+     * {@link com.ultimalabs.sancho.predictclient.config.PredictClientConfig}.
+     *
+     * @param satellites satellites to fetch
+     * @param until      horizon end (epoch, milliseconds)
+     * @return passes by satellite id, ordered by rise time; empty lists for satellites without passes
+     */
+    public Map<String, List<SatellitePass>> fetchPasses(List<SatelliteData> satellites, long until) {
+        return fetchPasses(satellites, until, TimeUnit.SECONDS.toMillis(FETCH_DEADLINE));
+    }
+
+    /**
+     * Fetches the passes of a number of satellites, with a given deadline
      *
-     * @return pass data
+     * @param satellites satellites to fetch
+     * @param until      horizon end (epoch, milliseconds)
+     * @param deadline   how long we wait for all satellites, in milliseconds
+     * @return passes by satellite id
      */
-    public SatellitePass getNextPass() {
+    Map<String, List<SatellitePass>> fetchPasses(List<SatelliteData> satellites, long until, long deadline) {
 
-        List<SatellitePass> passDataList = new ArrayList<>();
-        RestTemplate restTemplate = new RestTemplate();        
+        Map<String, List<SatellitePass>> passes = new HashMap<>();
+        List<Future<List<SatellitePass>>> fetches = new ArrayList<>();
+
+        for (SatelliteData sat : satellites) {
+            fetches.add(passFetchExecutor.submit(() -> fetchPasses(sat, until)));
+        }
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadline);
+
+        for (int i = 0; i < fetches.size(); i++) {
+
+            Future<List<SatellitePass>> fetch = fetches.get(i);
+            SatelliteData sat = satellites.get(i);
 
-        for (SatelliteData sat : config.getSatelliteData()) {
-            log.info("Fetching next pass data for: {}", sat.getName());
-            String url = queryUrlBuilder(config.getSatTrackApiUrl(), sat, config.getStation());
-            SatellitePass pass;
             try {
-                pass = restTemplate.getForObject(url, SatellitePass.class);
+                List<SatellitePass> satPasses = fetch.get(Math.max(0, deadlineNanos - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                if (satPasses != null) {
+                    passes.put(sat.getId(), satPasses);
+                }
+            } catch (TimeoutException e) {
+                fetch.cancel(true);
+                log.error("Pass data for {} not fetched in {} ms, skipping.", sat.getName(), deadline);
+            } catch (ExecutionException e) {
+                log.error("Failed fetching pass data for {}: {}", sat.getName(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fetches.forEach(f -> f.cancel(true));
+                break;
+            }
+
+        }
+
+        return passes;
+
+    }
+
+    /**
+     * Fetches the passes of a satellite, and fills in the satellite data
+     * <p>
+     * Passes are predicted locally if there's an element set for the
+     * satellite, and fetched from SatTrackAPI otherwise.
+     *
+     * @param sat   satellite data
+     * @param until horizon end (epoch, milliseconds)
+     * @return passes, or null if they couldn't be fetched
+     */
+    private List<SatellitePass> fetchPasses(SatelliteData sat, long until) {
+
+        log.info("Fetching next pass data for: {}", sat.getName());
+
+        try {
+
+            List<SatellitePass> passes = new ArrayList<>();
+            Tle tle = findElementSet(sat);
+
+            if (tle == null) {
+                SatellitePass pass = restTemplate.getForObject(summaryUrl(sat), SatellitePass.class);
                 if (pass != null) {
                     pass.setSatelliteData(sat);
-                    substituteShellVariables(pass);
-                    passDataList.add(pass);
+                    passes.add(pass);
+                }
+                return passes;
+            }
+
+            LocalPassPredictor predictor = localPassPredictor(tle);
+            long from = System.currentTimeMillis();
+
+            while (passes.size() < MAX_PASSES) {
+
+                SatellitePass pass = predictor.nextPass(from, sat.getMinElevation(), 0, sat.getRadioFrequency());
+
+                if (pass == null || (!passes.isEmpty() && pass.getRisePoint().getT().getTime() >= until)) {
+                    break;
                 }
-            } catch (RestClientException e) {
-                log.error(e.getMessage());
+
+                pass.setSatelliteData(sat);
+                passes.add(pass);
+                from = pass.getSetPoint().getT().getTime();
+
             }
 
+            return passes;
+
+        } catch (RestClientException | IllegalStateException e) {
+            log.error(e.getMessage());
+            return null;
+        }
+
+    }
+
+    /**
+     * Fetches the details (azimuth/elevation, range, Doppler shift) of a pass
+     * <p>
+     * The passes in the horizon are summaries, without details; only the
+     * passes that get scheduled are fetched again with details, shortly
+     * before they rise. SatTrackAPI always returns the next pass, so this
+     * fails once the pass has risen.
+     *
+     * @param summary pass summary
+     * @return pass with details, or null if the pass couldn't be fetched again
+     */
+    public SatellitePass fetchPassDetails(SatellitePass summary) {
+
+        SatelliteData sat = summary.getSatelliteData();
+
+        if (!needsPassDetails(sat)) {
+            return summary;
         }
 
-        if (!passDataList.isEmpty()) {
+        long rise = summary.getRisePoint().getT().getTime();
+        SatellitePass pass;
 
-            Collections.sort(passDataList);
+        try {
+            Tle tle = findElementSet(sat);
+            pass = tle == null ? fetchPass(sat) : localPassPredictor(tle).nextPass(rise - MAX_RISE_DIFFERENCE,
+                    sat.getMinElevation(), sat.getStepSize(), sat.getRadioFrequency());
+        } catch (RestClientException | IllegalStateException e) {
+            log.error("Failed fetching pass details for {}: {}", sat.getName(), e.getMessage());
+            return null;
+        }
 
-            // the first item has the highest priority - earliest set time or
-            // longer satellite visibility in case of two overlapping passes
-            return passDataList.get(0);
+        if (pass == null || Math.abs(pass.getRisePoint().getT().getTime() - rise) > MAX_RISE_DIFFERENCE) {
+            log.error("Pass of {} rising at {} not found when fetching the details.", sat.getName(),
+                    summary.getRisePoint().getT());
+            return null;
         }
 
-        return null;
+        pass.setSatelliteData(sat);
+        log.info("Fetched pass details for {}: {} data points.", sat.getName(),
+                pass.getEventDetails() == null ? 0 : pass.getEventDetails().size());
+
+        return pass;
+
     }
 
     /**
-     * Builds an URL for calling the SatTrackAPI service
+     * Creates a local pass predictor for the configured station
      *
-     * @param sat     satellite data
-     * @param station station details
-     * @return build service URL
+     * @param tle element set
+     * @return pass predictor
+     */
+    private LocalPassPredictor localPassPredictor(Tle tle) {
+        StationDetails station = config.getStation();
+        return new LocalPassPredictor(new Sgp4(tle),
+                new GroundStation(station.getLatitude(), station.getLongitude(), station.getAltitude()));
+    }
+
+    /**
+     * Finds the element set for local prediction of a satellite's passes
+     *
+     * @param sat satellite data
+     * @return element set, or null if the passes should be fetched from SatTrackAPI
      */
-    private String queryUrlBuilder(String satTrackApiUrl, SatelliteData sat, StationDetails station) {
+    private Tle findElementSet(SatelliteData sat) {
+
+        if (!tleCatalog.isEnabled()) {
+            return null;
+        }
 
-        String url = satTrackApiUrl + "/passes/" + sat.getId() + "/lat/" + station.getLatitude() +
+        Tle tle = tleCatalog.find(sat.getId());
+
+        if (tle == null) {
+            log.warn("No element set for {}, fetching the pass from SatTrackAPI.", sat.getName());
+            return null;
+        }
+
+        if (Sgp4.isDeepSpace(tle)) {
+            log.warn("Deep-space orbit of {} can't be predicted locally, fetching the pass from SatTrackAPI.",
+                    sat.getName());
+            return null;
+        }
+
+        return tle;
+
+    }
+
+    /**
+     * Fetches the next pass for a satellite, with details
+     * <p>
+     * If a coarse fetch step is configured, the pass details are fetched at
+     * that step and densified locally. If the estimated densification error
+     * is too large (e.g. a high, fast pass), the details are fetched again at
+     * the tracking step.
+     *
+     * @param sat satellite data
+     * @return pass data, or null if there's none
+     */
+    private SatellitePass fetchPass(SatelliteData sat) {
+
+        if (!isCoarseFetch(sat)) {
+            return restTemplate.getForObject(queryUrlBuilder(sat, sat.getStepSize()),
+                    SatellitePass.class);
+        }
+
+        SatellitePass pass = restTemplate.getForObject(
+                queryUrlBuilder(sat, sat.getFetchStepSize()), SatellitePass.class);
+
+        if (pass == null || pass.getEventDetails() == null || pass.getEventDetails().isEmpty()) {
+            return pass;
+        }
+
+        double error = PassDataToTrackingDataConverter.estimateDensificationError(pass);
+
+        if (error <= PassDataToTrackingDataConverter.MAX_DENSIFICATION_ERROR) {
+            log.info("Fetched {} coarse samples, estimated densification error {} deg.",
+                    pass.getEventDetails().size(), error);
+            return pass;
+        }
+
+        log.info("Estimated densification error {} deg too large, fetching details at step {}.",
+                error, sat.getStepSize());
+
+        return restTemplate.getForObject(queryUrlBuilder(sat, sat.getStepSize()),
+                SatellitePass.class);
+
+    }
+
+    /**
+     * Whether pass details are fetched at a coarser step than the tracking step
+     *
+     * @param sat satellite data
+     * @return true for a coarse fetch
+     */
+    private boolean isCoarseFetch(SatelliteData sat) {
+        return needsPassDetails(sat) && sat.getStepSize() > 0 && sat.getFetchStepSize() > sat.getStepSize();
+    }
+
+    /**
+     * Whether pass details (azimuth/elevation, range) are needed, for
+     * tracking or Doppler correction
+     *
+     * @param sat satellite data
+     * @return true if pass details should be fetched
+     */
+    private boolean needsPassDetails(SatelliteData sat) {
+        return (sat.isRotatorEnabled() || sat.isRadioControlEnabled()) && sat.getMinElevation() > 0;
+    }
+
+    /**
+     * Builds an URL for fetching a pass summary (rise, midpoint and set) from the SatTrackAPI service
+     *
+     * @param sat satellite data
+     * @return service URL
+     */
+    private String summaryUrl(SatelliteData sat) {
+
+        StationDetails station = config.getStation();
+
+        return config.getSatTrackApiUrl() + "/passes/" + sat.getId() + "/lat/" + station.getLatitude() +
                 "/lon/" + station.getLongitude() + "/alt/" + station.getAltitude() + "/minEl/" +
                 sat.getMinElevation();
 
-        if (sat.isRotatorEnabled() && sat.getMinElevation() > 0) {
-            return url + "/step/" + sat.getStepSize();
+    }
+
+    /**
+     * Builds an URL for calling the SatTrackAPI service
+     *
+     * @param sat      satellite data
+     * @param stepSize step size for the pass details, in seconds
+     * @return build service URL
+     */
+    private String queryUrlBuilder(SatelliteData sat, double stepSize) {
+
+        String url = summaryUrl(sat);
+
+        if (needsPassDetails(sat)) {
+            return url + "/step/" + stepSize;
         }
 
         return url;
@@ -94,9 +381,14 @@ public class PredictClientService {
 
     /**
      * Substitutes rise/set shell cmd templates with pass/satellite data
+     * <p>
+     * The substituted commands are stored in the satellite data, which all
+     * passes of a satellite share, so this should be called right before the
+     * pass is scheduled.
+     *
      * @param pass pass data
      */
-    private void substituteShellVariables(SatellitePass pass) {
+    public void substituteShellVariables(SatellitePass pass) {
 
         Map<String, String> valuesMap = new HashMap<>();
 
@@ -0,0 +1,109 @@
+package com.ultimalabs.sancho.predictclient.service;
+
+import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.predictclient.sgp4.Tle;
+import com.ultimalabs.sancho.predictclient.sgp4.TleStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Element sets for local pass prediction, read from the configured TLE file
+ * <p>
+ * The file is read again when it changes, so it can be refreshed by an
+ * external job (e.g. a daily CelesTrak download) without a restart. It may
+ * hold a whole catalog; see {@link TleStore}. A refresh never replaces an
+ * element set with an older one, and lookups see either the old or the new
+ * catalog, never a partly loaded one.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class TleCatalog {
+
+    /**
+     * Config object
+     */
+    private final SanchoConfig config;
+
+    /**
+     * Element sets
+     */
+    private final AtomicReference<TleStore> store = new AtomicReference<>(TleStore.EMPTY);
+
+    /**
+     * File the element sets were read from
+     */
+    private Path loadedFile;
+
+    /**
+     * Modification time of the file when it was read (epoch, milliseconds)
+     */
+    private long loadedModified;
+
+    /**
+     * Whether passes should be predicted locally
+     *
+     * @return true if a TLE file is configured
+     */
+    public boolean isEnabled() {
+        String tleFile = config.getTleFile();
+        return tleFile != null && !tleFile.trim().isEmpty();
+    }
+
+    /**
+     * Finds the element set for a satellite
+     *
+     * @param satId satellite catalog number
+     * @return element set, or null if there's none (or the file can't be read)
+     */
+    public Tle find(String satId) {
+
+        if (!isEnabled()) {
+            return null;
+        }
+
+        reloadIfChanged(Paths.get(config.getTleFile().trim()));
+
+        return store.get().find(satId);
+
+    }
+
+    /**
+     * Reads the file if it wasn't read yet, or it changed since
+     *
+     * @param file TLE file
+     */
+    private synchronized void reloadIfChanged(Path file) {
+
+        try {
+
+            long modified = Files.getLastModifiedTime(file).toMillis();
+
+            if (file.equals(loadedFile) && modified == loadedModified) {
+                return;
+            }
+
+            TleStore loaded = TleStore.load(file);
+            TleStore merged = file.equals(loadedFile) ? store.get().merge(loaded) : loaded;
+
+            store.set(merged);
+            loadedFile = file;
+            loadedModified = modified;
+
+            log.info("Loaded {} element sets from {}, {} objects in the catalog.", loaded.size(), file,
+                    merged.size());
+
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed reading element sets from {}: {}", file, e.getMessage());
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+/**
+ * Observer on the ground; turns TEME satellite state vectors into look angles
+ * <p>
+ * The station position is geodetic (WGS-84). TEME is rotated into the earth
+ * fixed frame with the IAU-82 Greenwich mean sidereal time; polar motion and
+ * the equation of the equinoxes are ignored, which costs a few arc seconds.
+ */
+public class GroundStation {
+
+    /**
+     * Earth equatorial radius, in km (WGS-84)
+     */
+    private static final double EARTH_RADIUS = 6378.137;
+
+    /**
+     * Earth flattening (WGS-84)
+     */
+    private static final double FLATTENING = 1 / 298.257223563;
+
+    /**
+     * Earth rotation rate, in radians per second
+     */
+    private static final double EARTH_ROTATION = 7.292115e-5;
+
+    private final double sinLat;
+    private final double cosLat;
+    private final double sinLon;
+    private final double cosLon;
+
+    /**
+     * Station position in the earth fixed frame, in km
+     */
+    private final double[] position;
+
+    /**
+     * Constructor
+     *
+     * @param latitude  latitude, in degrees
+     * @param longitude longitude, in degrees
+     * @param altitude  altitude, in meters
+     */
+    public GroundStation(double latitude, double longitude, double altitude) {
+
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+
+        sinLat = Math.sin(lat);
+        cosLat = Math.cos(lat);
+        sinLon = Math.sin(lon);
+        cosLon = Math.cos(lon);
+
+        double e2 = FLATTENING * (2 - FLATTENING);
+        double n = EARTH_RADIUS / Math.sqrt(1 - e2 * sinLat * sinLat);
+        double h = altitude / 1000.0;
+
+        position = new double[]{
+                (n + h) * cosLat * cosLon,
+                (n + h) * cosLat * sinLon,
+                (n * (1 - e2) + h) * sinLat
+        };
+
+    }
+
+    /**
+     * Look angles to a satellite
+     *
+     * @param state      satellite position (km) and velocity (km/s) in the TEME frame, from {@link Sgp4}
+     * @param timeMillis time of the state vector (epoch, milliseconds)
+     * @return azimuth (degrees, 0-360), elevation (degrees), range (km) and range rate (km/s, positive
+     * when receding)
+     */
+    public double[] lookAngles(double[] state, long timeMillis) {
+
+        double gmst = gmst(timeMillis);
+        double sinG = Math.sin(gmst);
+        double cosG = Math.cos(gmst);
+
+        // TEME to earth fixed; the velocity loses the earth rotation
+        double x = cosG * state[0] + sinG * state[1];
+        double y = -sinG * state[0] + cosG * state[1];
+        double z = state[2];
+        double vx = cosG * state[3] + sinG * state[4] + EARTH_ROTATION * y;
+        double vy = -sinG * state[3] + cosG * state[4] - EARTH_ROTATION * x;
+        double vz = state[5];
+
+        double dx = x - position[0];
+        double dy = y - position[1];
+        double dz = z - position[2];
+
+        // topocentric south-east-zenith
+        double south = sinLat * cosLon * dx + sinLat * sinLon * dy - cosLat * dz;
+        double east = -sinLon * dx + cosLon * dy;
+        double zenith = cosLat * cosLon * dx + cosLat * sinLon * dy + sinLat * dz;
+
+        double range = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        double azimuth = Math.toDegrees(Math.atan2(east, -south));
+
+        return new double[]{
+                azimuth < 0 ? azimuth + 360 : azimuth,
+                Math.toDegrees(Math.asin(zenith / range)),
+                range,
+                (dx * vx + dy * vy + dz * vz) / range
+        };
+
+    }
+
+    /**
+     * Greenwich mean sidereal time (IAU-82)
+     *
+     * @param timeMillis timestamp (epoch, milliseconds)
+     * @return sidereal angle, in radians (0 - 2 pi)
+     */
+    static double gmst(long timeMillis) {
+
+        double tut1 = (timeMillis / 86_400_000.0 + 2440587.5 - 2451545.0) / 36525;
+        double seconds = -6.2e-6 * tut1 * tut1 * tut1 + 0.093104 * tut1 * tut1
+                + (876600.0 * 3600 + 8640184.812866) * tut1 + 67310.54841;
+        double angle = Math.toRadians(seconds / 240) % (2 * Math.PI);
+
+        return angle < 0 ? angle + 2 * Math.PI : angle;
+
+    }
+
+}
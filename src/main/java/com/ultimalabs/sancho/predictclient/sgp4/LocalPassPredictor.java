@@ -0,0 +1,225 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import com.ultimalabs.sancho.common.model.PassEventDataPoint;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Predicts satellite passes over a station from an element set, in-process
+ * <p>
+ * Produces the same pass model the SatTrackAPI service returns: rise and set
+ * points where the elevation crosses the minimum elevation, the point of
+ * maximum elevation, and optionally the pass details (azimuth, elevation,
+ * range and Doppler shift) at a fixed step.
+ */
+public class LocalPassPredictor {
+
+    /**
+     * Speed of light, in m/s
+     */
+    private static final double SPEED_OF_LIGHT = 299_792_458;
+
+    /**
+     * Step used when searching for a rise or set, in milliseconds; shorter
+     * passes over the minimum elevation may be missed
+     */
+    static final long SEARCH_STEP = 30_000;
+
+    /**
+     * How far ahead we search for the next pass, in milliseconds
+     */
+    static final long SEARCH_HORIZON = 2 * 86_400_000L;
+
+    /**
+     * Precision of the rise, set and maximum elevation times, in milliseconds
+     */
+    private static final long PRECISION = 1;
+
+    private static final double GOLDEN_RATIO = (Math.sqrt(5) - 1) / 2;
+
+    /**
+     * Orbit propagator
+     */
+    private final Sgp4 sgp4;
+
+    /**
+     * Observer
+     */
+    private final GroundStation station;
+
+    /**
+     * Constructor
+     *
+     * @param sgp4    orbit propagator
+     * @param station observer
+     */
+    public LocalPassPredictor(Sgp4 sgp4, GroundStation station) {
+        this.sgp4 = sgp4;
+        this.station = station;
+    }
+
+    /**
+     * Predicts the next pass that rises after a point in time
+     * <p>
+     * If the satellite is over the minimum elevation at that point, the
+     * current pass is skipped.
+     *
+     * @param now            start of the search (epoch, milliseconds)
+     * @param minElevation   minimum elevation, in degrees
+     * @param stepSize       step size for the pass details, in seconds; 0 for no details
+     * @param radioFrequency frequency the Doppler shift is computed for, in Hz
+     * @return pass data, or null if there's no pass within the search horizon
+     */
+    public SatellitePass nextPass(long now, double minElevation, double stepSize, double radioFrequency) {
+
+        long end = now + SEARCH_HORIZON;
+        long t = now;
+
+        while (t < end && elevation(t) >= minElevation) {
+            t += SEARCH_STEP;
+        }
+
+        while (t < end && elevation(t) < minElevation) {
+            t += SEARCH_STEP;
+        }
+
+        if (t >= end) {
+            return null;
+        }
+
+        long rise = crossing(Math.max(now, t - SEARCH_STEP), t, minElevation);
+
+        while (elevation(t) >= minElevation) {
+            t += SEARCH_STEP;
+        }
+
+        long set = crossing(t, t - SEARCH_STEP, minElevation);
+        long mid = maxElevation(rise, set);
+
+        SatellitePass pass = new SatellitePass();
+        pass.setTle(sgp4.getTle().toString());
+        pass.setNow(new Date(now));
+        pass.setWait((rise - now) / 1000.0);
+        pass.setDuration((set - rise) / 1000.0);
+        pass.setRisePoint(dataPoint(rise, radioFrequency));
+        pass.setMidPoint(dataPoint(mid, radioFrequency));
+        pass.setSetPoint(dataPoint(set, radioFrequency));
+
+        if (stepSize > 0) {
+
+            long stepMillis = Math.max(1, Math.round(stepSize * 1000));
+            List<PassEventDataPoint> eventDetails = new ArrayList<>();
+
+            for (long s = rise; s < set; s += stepMillis) {
+                eventDetails.add(dataPoint(s, radioFrequency));
+            }
+
+            eventDetails.add(pass.getSetPoint());
+            pass.setEventDetails(eventDetails);
+
+        }
+
+        return pass;
+
+    }
+
+    /**
+     * Satellite position as seen from the station
+     *
+     * @param timeMillis timestamp (epoch, milliseconds)
+     * @param frequency  frequency the Doppler shift is computed for, in Hz
+     * @return data point
+     */
+    PassEventDataPoint dataPoint(long timeMillis, double frequency) {
+
+        double[] look = station.lookAngles(sgp4.propagate(timeMillis), timeMillis);
+        PassEventDataPoint dataPoint = new PassEventDataPoint();
+
+        dataPoint.setT(new Date(timeMillis));
+        dataPoint.setAz(look[0]);
+        dataPoint.setEl(look[1]);
+        dataPoint.setDst(look[2] * 1000);
+        dataPoint.setDop(-look[3] * 1000 / SPEED_OF_LIGHT * frequency);
+
+        return dataPoint;
+
+    }
+
+    /**
+     * Satellite elevation
+     *
+     * @param timeMillis timestamp (epoch, milliseconds)
+     * @return elevation, in degrees
+     */
+    private double elevation(long timeMillis) {
+        return station.lookAngles(sgp4.propagate(timeMillis), timeMillis)[1];
+    }
+
+    /**
+     * Finds the time the elevation crosses a value, by bisection
+     *
+     * @param below     time the satellite is below the elevation
+     * @param above     time the satellite is at or above the elevation
+     * @param elevation elevation, in degrees
+     * @return first time at or above the elevation, within the precision
+     */
+    private long crossing(long below, long above, double elevation) {
+
+        while (Math.abs(above - below) > PRECISION) {
+
+            long t = below + (above - below) / 2;
+
+            if (elevation(t) >= elevation) {
+                above = t;
+            } else {
+                below = t;
+            }
+
+        }
+
+        return above;
+
+    }
+
+    /**
+     * Finds the time of maximum elevation between rise and set, by golden-section search
+     *
+     * @param rise rise time (epoch, milliseconds)
+     * @param set  set time (epoch, milliseconds)
+     * @return time of maximum elevation
+     */
+    private long maxElevation(long rise, long set) {
+
+        double a = rise;
+        double b = set;
+        double c = b - GOLDEN_RATIO * (b - a);
+        double d = a + GOLDEN_RATIO * (b - a);
+        double elC = elevation(Math.round(c));
+        double elD = elevation(Math.round(d));
+
+        while (b - a > PRECISION) {
+
+            if (elC > elD) {
+                b = d;
+                d = c;
+                elD = elC;
+                c = b - GOLDEN_RATIO * (b - a);
+                elC = elevation(Math.round(c));
+            } else {
+                a = c;
+                c = d;
+                elC = elD;
+                d = a + GOLDEN_RATIO * (b - a);
+                elD = elevation(Math.round(d));
+            }
+
+        }
+
+        return Math.round((a + b) / 2);
+
+    }
+
+}
@@ -0,0 +1,370 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import lombok.Getter;
+
+/**
+ * SGP4 orbit propagator, for near-earth orbits
+ * <p>
+ * Follows the reference implementation from Vallado et al., "Revisiting
+ * Spacetrack Report #3" (AIAA 2006-6753), with WGS-72 constants. Positions
+ * and velocities are in the TEME frame. Deep-space orbits (period of 225
+ * minutes or more) need the SDP4 lunar/solar terms, which aren't
+ * implemented; {@link #isDeepSpace(Tle)} tells them apart.
+ */
+public class Sgp4 {
+
+    /**
+     * Earth radius, in km (WGS-72)
+     */
+    private static final double EARTH_RADIUS = 6378.135;
+
+    /**
+     * Square root of the gravitational parameter, in earth radii^1.5 per minute (WGS-72)
+     */
+    private static final double XKE = 60.0 / Math.sqrt(EARTH_RADIUS * EARTH_RADIUS * EARTH_RADIUS / 398600.8);
+
+    private static final double J2 = 0.001082616;
+    private static final double J3 = -0.00000253881;
+    private static final double J4 = -0.00000165597;
+    private static final double J3OJ2 = J3 / J2;
+    private static final double X2O3 = 2.0 / 3.0;
+    private static final double TWO_PI = 2 * Math.PI;
+
+    /**
+     * Velocity unit, in km/s per earth radius per minute
+     */
+    private static final double VKMPERSEC = EARTH_RADIUS * XKE / 60.0;
+
+    /**
+     * Orbital period from which the deep-space model is needed, in minutes
+     */
+    private static final double DEEP_SPACE_PERIOD = 225;
+
+    /**
+     * Element set
+     */
+    @Getter
+    private final Tle tle;
+
+    private final double bstar;
+    private final double ecco;
+    private final double inclo;
+    private final double nodeo;
+    private final double argpo;
+    private final double mo;
+
+    /**
+     * Un-Kozai'd mean motion, in radians per minute
+     */
+    private final double no;
+
+    private final boolean simple;
+    private final double aycof;
+    private final double con41;
+    private final double cc1;
+    private final double cc4;
+    private final double cc5;
+    private final double d2;
+    private final double d3;
+    private final double d4;
+    private final double delmo;
+    private final double eta;
+    private final double argpdot;
+    private final double omgcof;
+    private final double sinmao;
+    private final double t2cof;
+    private final double t3cof;
+    private final double t4cof;
+    private final double t5cof;
+    private final double x1mth2;
+    private final double x7thm1;
+    private final double mdot;
+    private final double nodedot;
+    private final double xlcof;
+    private final double xmcof;
+    private final double nodecf;
+
+    /**
+     * Constructor; initializes the propagator for an element set
+     *
+     * @param tle element set
+     * @throws UnsupportedOperationException for deep-space orbits
+     */
+    public Sgp4(Tle tle) {
+
+        if (isDeepSpace(tle)) {
+            throw new UnsupportedOperationException("Deep-space orbit of " + tle.getCatalogNumber()
+                    + " is not supported");
+        }
+
+        this.tle = tle;
+        this.bstar = tle.getBstar();
+        this.ecco = tle.getEccentricity();
+        this.inclo = tle.getInclination();
+        this.nodeo = tle.getRaan();
+        this.argpo = tle.getArgumentOfPerigee();
+        this.mo = tle.getMeanAnomaly();
+
+        double eccsq = ecco * ecco;
+        double omeosq = 1 - eccsq;
+        double rteosq = Math.sqrt(omeosq);
+        double cosio = Math.cos(inclo);
+        double cosio2 = cosio * cosio;
+        double sinio = Math.sin(inclo);
+
+        this.no = unKozai(tle.getMeanMotion(), ecco, inclo);
+
+        double ao = Math.pow(XKE / no, X2O3);
+        double po = ao * omeosq;
+        double con42 = 1 - 5 * cosio2;
+        this.con41 = -con42 - cosio2 - cosio2;
+        double posq = po * po;
+        double rp = ao * (1 - ecco);
+
+        this.simple = rp < 220 / EARTH_RADIUS + 1;
+
+        double sfour = 78 / EARTH_RADIUS + 1;
+        double qzms24 = Math.pow((120 - 78) / EARTH_RADIUS, 4);
+        double perige = (rp - 1) * EARTH_RADIUS;
+
+        if (perige < 156) {
+            sfour = perige < 98 ? 20 : perige - 78;
+            qzms24 = Math.pow((120 - sfour) / EARTH_RADIUS, 4);
+            sfour = sfour / EARTH_RADIUS + 1;
+        }
+
+        double pinvsq = 1 / posq;
+        double tsi = 1 / (ao - sfour);
+        this.eta = ao * ecco * tsi;
+        double etasq = eta * eta;
+        double eeta = ecco * eta;
+        double psisq = Math.abs(1 - etasq);
+        double coef = qzms24 * Math.pow(tsi, 4);
+        double coef1 = coef / Math.pow(psisq, 3.5);
+        double cc2 = coef1 * no * (ao * (1 + 1.5 * etasq + eeta * (4 + etasq))
+                + 0.375 * J2 * tsi / psisq * con41 * (8 + 3 * etasq * (8 + etasq)));
+        this.cc1 = bstar * cc2;
+        double cc3 = ecco > 1e-4 ? -2 * coef * tsi * J3OJ2 * no * sinio / ecco : 0;
+        this.x1mth2 = 1 - cosio2;
+        this.cc4 = 2 * no * coef1 * ao * omeosq * (eta * (2 + 0.5 * etasq) + ecco * (0.5 + 2 * etasq)
+                - J2 * tsi / (ao * psisq) * (-3 * con41 * (1 - 2 * eeta + etasq * (1.5 - 0.5 * eeta))
+                + 0.75 * x1mth2 * (2 * etasq - eeta * (1 + etasq)) * Math.cos(2 * argpo)));
+        this.cc5 = 2 * coef1 * ao * omeosq * (1 + 2.75 * (etasq + eeta) + eeta * etasq);
+
+        double cosio4 = cosio2 * cosio2;
+        double temp1 = 1.5 * J2 * pinvsq * no;
+        double temp2 = 0.5 * temp1 * J2 * pinvsq;
+        double temp3 = -0.46875 * J4 * pinvsq * pinvsq * no;
+        this.mdot = no + 0.5 * temp1 * rteosq * con41 + 0.0625 * temp2 * rteosq * (13 - 78 * cosio2 + 137 * cosio4);
+        this.argpdot = -0.5 * temp1 * con42 + 0.0625 * temp2 * (7 - 114 * cosio2 + 395 * cosio4)
+                + temp3 * (3 - 36 * cosio2 + 49 * cosio4);
+        double xhdot1 = -temp1 * cosio;
+        this.nodedot = xhdot1 + (0.5 * temp2 * (4 - 19 * cosio2) + 2 * temp3 * (3 - 7 * cosio2)) * cosio;
+        this.omgcof = bstar * cc3 * Math.cos(argpo);
+        this.xmcof = ecco > 1e-4 ? -X2O3 * coef * bstar / eeta : 0;
+        this.nodecf = 3.5 * omeosq * xhdot1 * cc1;
+        this.t2cof = 1.5 * cc1;
+        this.xlcof = -0.25 * J3OJ2 * sinio * (3 + 5 * cosio) / Math.max(Math.abs(1 + cosio), 1.5e-12);
+        this.aycof = -0.5 * J3OJ2 * sinio;
+        this.delmo = Math.pow(1 + eta * Math.cos(mo), 3);
+        this.sinmao = Math.sin(mo);
+        this.x7thm1 = 7 * cosio2 - 1;
+
+        if (simple) {
+            d2 = d3 = d4 = t3cof = t4cof = t5cof = 0;
+        } else {
+            double cc1sq = cc1 * cc1;
+            this.d2 = 4 * ao * tsi * cc1sq;
+            double temp = d2 * tsi * cc1 / 3;
+            this.d3 = (17 * ao + sfour) * temp;
+            this.d4 = 0.5 * temp * ao * tsi * (221 * ao + 31 * sfour) * cc1;
+            this.t3cof = d2 + 2 * cc1sq;
+            this.t4cof = 0.25 * (3 * d3 + cc1 * (12 * d2 + 10 * cc1sq));
+            this.t5cof = 0.2 * (3 * d4 + 12 * cc1 * d3 + 6 * d2 * d2 + 15 * cc1sq * (2 * d2 + cc1sq));
+        }
+
+    }
+
+    /**
+     * Whether an element set needs the deep-space model
+     *
+     * @param tle element set
+     * @return true if the orbital period is 225 minutes or more
+     */
+    public static boolean isDeepSpace(Tle tle) {
+        return TWO_PI / unKozai(tle.getMeanMotion(), tle.getEccentricity(), tle.getInclination())
+                >= DEEP_SPACE_PERIOD;
+    }
+
+    /**
+     * Propagates the orbit to a point in time
+     *
+     * @param timeMillis timestamp (epoch, milliseconds)
+     * @return position (km) and velocity (km/s) in the TEME frame: x, y, z, vx, vy, vz
+     * @throws IllegalStateException if the elements are no longer valid (e.g. the satellite decayed)
+     */
+    public double[] propagate(long timeMillis) {
+        return propagateMinutes((timeMillis - tle.getEpochMillis()) / 60_000.0);
+    }
+
+    /**
+     * Propagates the orbit
+     *
+     * @param t time since the element set epoch, in minutes
+     * @return position (km) and velocity (km/s) in the TEME frame: x, y, z, vx, vy, vz
+     * @throws IllegalStateException if the elements are no longer valid (e.g. the satellite decayed)
+     */
+    public double[] propagateMinutes(double t) {
+
+        // secular gravity and atmospheric drag
+        double xmdf = mo + mdot * t;
+        double argpdf = argpo + argpdot * t;
+        double nodedf = nodeo + nodedot * t;
+        double argpm = argpdf;
+        double mm = xmdf;
+        double t2 = t * t;
+        double nodem = nodedf + nodecf * t2;
+        double tempa = 1 - cc1 * t;
+        double tempe = bstar * cc4 * t;
+        double templ = t2cof * t2;
+
+        if (!simple) {
+            double delomg = omgcof * t;
+            double delm = xmcof * (Math.pow(1 + eta * Math.cos(xmdf), 3) - delmo);
+            double temp = delomg + delm;
+            mm = xmdf + temp;
+            argpm = argpdf - temp;
+            double t3 = t2 * t;
+            double t4 = t3 * t;
+            tempa = tempa - d2 * t2 - d3 * t3 - d4 * t4;
+            tempe = tempe + bstar * cc5 * (Math.sin(mm) - sinmao);
+            templ = templ + t3cof * t3 + t4 * (t4cof + t * t5cof);
+        }
+
+        double am = Math.pow(XKE / no, X2O3) * tempa * tempa;
+        double nm = XKE / Math.pow(am, 1.5);
+        double em = ecco - tempe;
+
+        if (em >= 1 || em < -0.001 || am < 0.95) {
+            throw new IllegalStateException("Invalid elements for " + tle.getCatalogNumber() + " at " + t + " min");
+        }
+
+        em = Math.max(em, 1e-6);
+        mm = mm + no * templ;
+        double xlm = mm + argpm + nodem;
+        nodem = nodem % TWO_PI;
+        argpm = argpm % TWO_PI;
+        xlm = xlm % TWO_PI;
+        mm = (xlm - argpm - nodem) % TWO_PI;
+
+        double sinip = Math.sin(inclo);
+        double cosip = Math.cos(inclo);
+
+        // long-period periodics
+        double axnl = em * Math.cos(argpm);
+        double temp = 1 / (am * (1 - em * em));
+        double aynl = em * Math.sin(argpm) + temp * aycof;
+        double xl = mm + argpm + nodem + temp * xlcof * axnl;
+
+        // Kepler's equation
+        double u = (xl - nodem) % TWO_PI;
+        double eo1 = u;
+        double sineo1 = 0;
+        double coseo1 = 0;
+        double tem5 = 9999.9;
+
+        for (int i = 0; i < 10 && Math.abs(tem5) >= 1e-12; i++) {
+            sineo1 = Math.sin(eo1);
+            coseo1 = Math.cos(eo1);
+            tem5 = 1 - coseo1 * axnl - sineo1 * aynl;
+            tem5 = (u - aynl * coseo1 + axnl * sineo1 - eo1) / tem5;
+            tem5 = Math.max(-0.95, Math.min(0.95, tem5));
+            eo1 += tem5;
+        }
+
+        // short-period periodics
+        double ecose = axnl * coseo1 + aynl * sineo1;
+        double esine = axnl * sineo1 - aynl * coseo1;
+        double el2 = axnl * axnl + aynl * aynl;
+        double pl = am * (1 - el2);
+
+        if (pl < 0) {
+            throw new IllegalStateException("Invalid elements for " + tle.getCatalogNumber() + " at " + t + " min");
+        }
+
+        double rl = am * (1 - ecose);
+        double rdotl = Math.sqrt(am) * esine / rl;
+        double rvdotl = Math.sqrt(pl) / rl;
+        double betal = Math.sqrt(1 - el2);
+        temp = esine / (1 + betal);
+        double sinu = am / rl * (sineo1 - aynl - axnl * temp);
+        double cosu = am / rl * (coseo1 - axnl + aynl * temp);
+        double su = Math.atan2(sinu, cosu);
+        double sin2u = (cosu + cosu) * sinu;
+        double cos2u = 1 - 2 * sinu * sinu;
+        temp = 1 / pl;
+        double temp1 = 0.5 * J2 * temp;
+        double temp2 = temp1 * temp;
+
+        double mrt = rl * (1 - 1.5 * temp2 * betal * con41) + 0.5 * temp1 * x1mth2 * cos2u;
+        su = su - 0.25 * temp2 * x7thm1 * sin2u;
+        double xnode = nodem + 1.5 * temp2 * cosip * sin2u;
+        double xinc = inclo + 1.5 * temp2 * cosip * sinip * cos2u;
+        double mvt = rdotl - nm * temp1 * x1mth2 * sin2u / XKE;
+        double rvdot = rvdotl + nm * temp1 * (x1mth2 * cos2u + 1.5 * con41) / XKE;
+
+        if (mrt < 1) {
+            throw new IllegalStateException("Satellite " + tle.getCatalogNumber() + " decayed at " + t + " min");
+        }
+
+        // orientation vectors
+        double sinsu = Math.sin(su);
+        double cossu = Math.cos(su);
+        double snod = Math.sin(xnode);
+        double cnod = Math.cos(xnode);
+        double sini = Math.sin(xinc);
+        double cosi = Math.cos(xinc);
+        double xmx = -snod * cosi;
+        double xmy = cnod * cosi;
+        double ux = xmx * sinsu + cnod * cossu;
+        double uy = xmy * sinsu + snod * cossu;
+        double uz = sini * sinsu;
+        double vx = xmx * cossu - cnod * sinsu;
+        double vy = xmy * cossu - snod * sinsu;
+        double vz = sini * cossu;
+
+        return new double[]{
+                mrt * ux * EARTH_RADIUS,
+                mrt * uy * EARTH_RADIUS,
+                mrt * uz * EARTH_RADIUS,
+                (mvt * ux + rvdot * vx) * VKMPERSEC,
+                (mvt * uy + rvdot * vy) * VKMPERSEC,
+                (mvt * uz + rvdot * vz) * VKMPERSEC
+        };
+
+    }
+
+    /**
+     * Recovers the original mean motion from the Kozai mean motion in the element set
+     *
+     * @param kozaiMeanMotion mean motion from the element set, in radians per minute
+     * @param ecco            eccentricity
+     * @param inclo           inclination, in radians
+     * @return un-Kozai'd mean motion, in radians per minute
+     */
+    private static double unKozai(double kozaiMeanMotion, double ecco, double inclo) {
+
+        double omeosq = 1 - ecco * ecco;
+        double rteosq = Math.sqrt(omeosq);
+        double cosio = Math.cos(inclo);
+        double ak = Math.pow(XKE / kozaiMeanMotion, X2O3);
+        double d1 = 0.75 * J2 * (3 * cosio * cosio - 1) / (rteosq * omeosq);
+        double del = d1 / (ak * ak);
+        double adel = ak * (1 - del * del - del * (1.0 / 3.0 + 134 * del * del / 81.0));
+        del = d1 / (adel * adel);
+
+        return kozaiMeanMotion / (1 + del);
+
+    }
+
+}
@@ -0,0 +1,276 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two-line element set
+ * <p>
+ * Holds the mean orbital elements of a satellite, in the units SGP4 works
+ * with: angles in radians, mean motion in radians per minute.
+ */
+@Getter
+public class Tle {
+
+    /**
+     * Satellite name, from the title line; empty if there's none
+     */
+    private final String name;
+
+    /**
+     * Satellite catalog number
+     */
+    private final String catalogNumber;
+
+    /**
+     * Element set epoch (epoch, milliseconds)
+     */
+    private final long epochMillis;
+
+    /**
+     * Drag term (B*), in inverse earth radii
+     */
+    private final double bstar;
+
+    /**
+     * Inclination, in radians
+     */
+    private final double inclination;
+
+    /**
+     * Right ascension of the ascending node, in radians
+     */
+    private final double raan;
+
+    /**
+     * Eccentricity
+     */
+    private final double eccentricity;
+
+    /**
+     * Argument of perigee, in radians
+     */
+    private final double argumentOfPerigee;
+
+    /**
+     * Mean anomaly, in radians
+     */
+    private final double meanAnomaly;
+
+    /**
+     * Mean motion, in radians per minute
+     */
+    private final double meanMotion;
+
+    /**
+     * Line 1
+     */
+    private final String line1;
+
+    /**
+     * Line 2
+     */
+    private final String line2;
+
+    /**
+     * Constructor
+     *
+     * @param name  satellite name; may be null
+     * @param line1 line 1
+     * @param line2 line 2
+     */
+    public Tle(String name, String line1, String line2) {
+
+        if (line1 == null || line2 == null || line1.length() < 64 || line2.length() < 63
+                || line1.charAt(0) != '1' || line2.charAt(0) != '2') {
+            throw new IllegalArgumentException("Invalid TLE lines");
+        }
+
+        this.name = name == null ? "" : name.trim();
+        this.line1 = line1;
+        this.line2 = line2;
+        this.catalogNumber = normalizeCatalogNumber(line1.substring(2, 7));
+
+        int year = Integer.parseInt(line1.substring(18, 20).trim());
+        double day = Double.parseDouble(line1.substring(20, 32).trim());
+        this.epochMillis = epochMillis(year, day);
+        this.bstar = exponential(line1.substring(53, 61));
+
+        this.inclination = Math.toRadians(Double.parseDouble(line2.substring(8, 16).trim()));
+        this.raan = Math.toRadians(Double.parseDouble(line2.substring(17, 25).trim()));
+        this.eccentricity = Double.parseDouble("0." + line2.substring(26, 33).trim());
+        this.argumentOfPerigee = Math.toRadians(Double.parseDouble(line2.substring(34, 42).trim()));
+        this.meanAnomaly = Math.toRadians(Double.parseDouble(line2.substring(43, 51).trim()));
+        this.meanMotion = Double.parseDouble(line2.substring(52, 63).trim()) * 2 * Math.PI / 1440;
+
+    }
+
+    /**
+     * Constructor for element sets parsed elsewhere, e.g. by {@link TleStore}
+     *
+     * @param name              satellite name
+     * @param catalogNumber     catalog number, without leading zeros
+     * @param epochMillis       epoch (epoch, milliseconds)
+     * @param bstar             drag term
+     * @param inclination       inclination, in radians
+     * @param raan              right ascension of the ascending node, in radians
+     * @param eccentricity      eccentricity
+     * @param argumentOfPerigee argument of perigee, in radians
+     * @param meanAnomaly       mean anomaly, in radians
+     * @param meanMotion        mean motion, in radians per minute
+     * @param line1             line 1
+     * @param line2             line 2
+     */
+    Tle(String name, String catalogNumber, long epochMillis, double bstar, double inclination, double raan,
+        double eccentricity, double argumentOfPerigee, double meanAnomaly, double meanMotion,
+        String line1, String line2) {
+
+        this.name = name;
+        this.catalogNumber = catalogNumber;
+        this.epochMillis = epochMillis;
+        this.bstar = bstar;
+        this.inclination = inclination;
+        this.raan = raan;
+        this.eccentricity = eccentricity;
+        this.argumentOfPerigee = argumentOfPerigee;
+        this.meanAnomaly = meanAnomaly;
+        this.meanMotion = meanMotion;
+        this.line1 = line1;
+        this.line2 = line2;
+
+    }
+
+    /**
+     * Parses an element set given as text: two lines, optionally preceded by a title line
+     *
+     * @param text element set; lines separated by "\n" or "\r\n"
+     * @return element set
+     */
+    public static Tle parse(String text) {
+
+        String[] lines = text.trim().split("\\r?\\n");
+
+        if (lines.length < 2) {
+            throw new IllegalArgumentException("Invalid TLE: " + text);
+        }
+
+        String name = lines.length > 2 ? lines[lines.length - 3] : null;
+
+        return new Tle(name, lines[lines.length - 2].trim(), lines[lines.length - 1].trim());
+
+    }
+
+    /**
+     * Parses a list of element sets, e.g. a CelesTrak file, in two or three line format
+     * <p>
+     * Lines that aren't part of an element set are skipped.
+     *
+     * @param lines file lines
+     * @return element sets, in file order
+     */
+    public static List<Tle> parseAll(List<String> lines) {
+
+        List<Tle> elementSets = new ArrayList<>();
+        String name = null;
+
+        for (int i = 0; i < lines.size(); i++) {
+
+            String line = lines.get(i).trim();
+
+            if (line.startsWith("1 ") && i + 1 < lines.size() && lines.get(i + 1).trim().startsWith("2 ")) {
+                elementSets.add(new Tle(name, line, lines.get(i + 1).trim()));
+                name = null;
+                i++;
+            } else {
+                name = line.isEmpty() ? null : line;
+            }
+
+        }
+
+        return elementSets;
+
+    }
+
+    /**
+     * Catalog number in the form used in the element sets and the satellite config, without leading zeros
+     *
+     * @param catalogNumber catalog number, e.g. "00005"
+     * @return normalized catalog number, e.g. "5"
+     */
+    public static String normalizeCatalogNumber(String catalogNumber) {
+        return stripLeadingZeros(catalogNumber.trim());
+    }
+
+    /**
+     * Element set text, with the title line if there's a name
+     *
+     * @return element set text
+     */
+    @Override
+    public String toString() {
+        return (name.isEmpty() ? "" : name + "\n") + line1 + "\n" + line2;
+    }
+
+    /**
+     * Parses a TLE number in the implied decimal point, exponential format, e.g. " 28098-4"
+     *
+     * @param field field text
+     * @return value
+     */
+    private static double exponential(String field) {
+
+        String trimmed = field.trim();
+
+        if (trimmed.isEmpty()) {
+            return 0;
+        }
+
+        int exponentSign = Math.max(trimmed.lastIndexOf('-'), trimmed.lastIndexOf('+'));
+
+        if (exponentSign <= 0) {
+            return Double.parseDouble("0." + trimmed);
+        }
+
+        String mantissa = trimmed.substring(0, exponentSign);
+        String sign = "";
+
+        if (mantissa.startsWith("-") || mantissa.startsWith("+")) {
+            sign = mantissa.substring(0, 1);
+            mantissa = mantissa.substring(1);
+        }
+
+        return Double.parseDouble(sign + "0." + mantissa.trim() + "e" + trimmed.substring(exponentSign));
+
+    }
+
+    /**
+     * Converts a TLE epoch into a timestamp
+     *
+     * @param year two-digit year; 57-99 is 1957-1999, 00-56 is 2000-2056
+     * @param day  day of the year, with fraction; January 1st, 00:00 is 1.0
+     * @return timestamp (epoch, milliseconds)
+     */
+    static long epochMillis(int year, double day) {
+
+        long yearStart = LocalDate.of(year < 57 ? 2000 + year : 1900 + year, 1, 1).toEpochDay() * 86_400_000;
+
+        return yearStart + Math.round((day - 1) * 86_400_000);
+
+    }
+
+    private static String stripLeadingZeros(String number) {
+
+        int i = 0;
+
+        while (i < number.length() - 1 && number.charAt(i) == '0') {
+            i++;
+        }
+
+        return number.substring(i);
+
+    }
+
+}
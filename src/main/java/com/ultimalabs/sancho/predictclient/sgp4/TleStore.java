@@ -0,0 +1,709 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Immutable catalog of element sets, indexed by catalog number
+ * <p>
+ * Built for whole catalog files (tens of thousands of objects): the file is
+ * memory-mapped and parsed in place, by fixed columns, without decoding lines
+ * into strings. The elements are kept in primitive arrays sorted by catalog
+ * number, and a {@link Tle} is only created for the objects that are looked
+ * up. A newer catalog is combined with the current one with
+ * {@link #merge(TleStore)}, which keeps the element set with the latest epoch
+ * for each object; the result is a new store, which can be swapped in
+ * atomically.
+ */
+public final class TleStore {
+
+    /**
+     * Store without element sets
+     */
+    public static final TleStore EMPTY = new Builder().build();
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private static final double REVOLUTIONS_PER_DAY = 2 * Math.PI / 1440;
+
+    /**
+     * Catalog numbers, ascending; Alpha-5 numbers (e.g. A0001) are stored as 100000 and up
+     */
+    private final int[] catalogNumbers;
+
+    /**
+     * Element set epochs (epoch, milliseconds)
+     */
+    private final long[] epochs;
+
+    private final double[] bstar;
+    private final double[] inclination;
+    private final double[] raan;
+    private final double[] eccentricity;
+    private final double[] argumentOfPerigee;
+    private final double[] meanAnomaly;
+    private final double[] meanMotion;
+
+    /**
+     * Text of all element sets: name, line 1 and line 2 of each, back to back
+     */
+    private final byte[] text;
+
+    /**
+     * Offset of each element set in the text
+     */
+    private final int[] textOffsets;
+
+    private final int[] nameLengths;
+    private final int[] line1Lengths;
+    private final int[] line2Lengths;
+
+    private TleStore(Builder builder, int[] order) {
+
+        int n = order.length;
+
+        catalogNumbers = new int[n];
+        epochs = new long[n];
+        bstar = new double[n];
+        inclination = new double[n];
+        raan = new double[n];
+        eccentricity = new double[n];
+        argumentOfPerigee = new double[n];
+        meanAnomaly = new double[n];
+        meanMotion = new double[n];
+        textOffsets = new int[n];
+        nameLengths = new int[n];
+        line1Lengths = new int[n];
+        line2Lengths = new int[n];
+
+        int textLength = 0;
+
+        for (int i : order) {
+            textLength += builder.nameLengths[i] + builder.line1Lengths[i] + builder.line2Lengths[i];
+        }
+
+        text = new byte[textLength];
+        textLength = 0;
+
+        for (int j = 0; j < n; j++) {
+
+            int i = order[j];
+            int length = builder.nameLengths[i] + builder.line1Lengths[i] + builder.line2Lengths[i];
+
+            catalogNumbers[j] = builder.catalogNumbers[i];
+            epochs[j] = builder.epochs[i];
+            bstar[j] = builder.bstar[i];
+            inclination[j] = builder.inclination[i];
+            raan[j] = builder.raan[i];
+            eccentricity[j] = builder.eccentricity[i];
+            argumentOfPerigee[j] = builder.argumentOfPerigee[i];
+            meanAnomaly[j] = builder.meanAnomaly[i];
+            meanMotion[j] = builder.meanMotion[i];
+            nameLengths[j] = builder.nameLengths[i];
+            line1Lengths[j] = builder.line1Lengths[i];
+            line2Lengths[j] = builder.line2Lengths[i];
+            textOffsets[j] = textLength;
+
+            System.arraycopy(builder.text, builder.textOffsets[i], text, textLength, length);
+            textLength += length;
+
+        }
+
+    }
+
+    /**
+     * Reads a catalog file, in two or three line format
+     * <p>
+     * Lines that aren't part of an element set, and element sets with
+     * invalid fields, are skipped. If an object is in the file more than
+     * once, the element set with the latest epoch is kept.
+     *
+     * @param file catalog file
+     * @return element sets
+     * @throws IOException if the file can't be read
+     */
+    public static TleStore load(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Catalog file too large: " + file);
+            }
+
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+
+        }
+
+    }
+
+    /**
+     * Parses a catalog, in two or three line format
+     *
+     * @param buffer catalog text, from position to limit
+     * @return element sets
+     */
+    static TleStore parse(ByteBuffer buffer) {
+
+        Builder builder = new Builder();
+        int limit = buffer.limit();
+        int lineStart = buffer.position();
+        int nameStart = -1;
+        int nameEnd = -1;
+
+        while (lineStart < limit) {
+
+            int lineEnd = lineEnd(buffer, lineStart, limit);
+            int start = trimStart(buffer, lineStart, lineEnd);
+            int end = trimEnd(buffer, start, lineEnd);
+
+            if (isLine(buffer, start, end, '1', 64) && lineEnd < limit) {
+
+                int nextLineEnd = lineEnd(buffer, lineEnd + 1, limit);
+                int start2 = trimStart(buffer, lineEnd + 1, nextLineEnd);
+                int end2 = trimEnd(buffer, start2, nextLineEnd);
+
+                if (isLine(buffer, start2, end2, '2', 63)) {
+                    builder.add(buffer, nameStart, nameEnd, start, end, start2, end2);
+                    nameStart = -1;
+                    lineStart = nextLineEnd + 1;
+                    continue;
+                }
+
+            }
+
+            nameStart = start < end ? start : -1;
+            nameEnd = end;
+            lineStart = lineEnd + 1;
+
+        }
+
+        return builder.build();
+
+    }
+
+    /**
+     * Number of objects in the store
+     *
+     * @return object count
+     */
+    public int size() {
+        return catalogNumbers.length;
+    }
+
+    /**
+     * Finds the element set for an object
+     *
+     * @param catalogNumber catalog number, e.g. "25338", "00005" or "A0001"
+     * @return element set, or null if there's none
+     */
+    public Tle find(String catalogNumber) {
+
+        int index = Arrays.binarySearch(catalogNumbers, catalogNumber(catalogNumber));
+
+        if (index < 0) {
+            return null;
+        }
+
+        int offset = textOffsets[index];
+        String name = new String(text, offset, nameLengths[index], StandardCharsets.US_ASCII);
+        offset += nameLengths[index];
+        String line1 = new String(text, offset, line1Lengths[index], StandardCharsets.US_ASCII);
+        offset += line1Lengths[index];
+        String line2 = new String(text, offset, line2Lengths[index], StandardCharsets.US_ASCII);
+
+        return new Tle(name, Tle.normalizeCatalogNumber(line1.substring(2, 7)), epochs[index], bstar[index],
+                inclination[index], raan[index], eccentricity[index], argumentOfPerigee[index],
+                meanAnomaly[index], meanMotion[index], line1, line2);
+
+    }
+
+    /**
+     * Combines this store with a newer one
+     * <p>
+     * For objects in both stores, the element set with the later epoch is
+     * kept; on equal epochs, the one from the newer store. Objects missing
+     * from the newer store are kept.
+     *
+     * @param newer newer store
+     * @return combined store
+     */
+    public TleStore merge(TleStore newer) {
+
+        Builder builder = new Builder();
+
+        for (int i = 0; i < size(); i++) {
+            builder.add(this, i);
+        }
+
+        for (int i = 0; i < newer.size(); i++) {
+            builder.add(newer, i);
+        }
+
+        return builder.build();
+
+    }
+
+    /**
+     * Converts a catalog number into the key the store is indexed by
+     *
+     * @param catalogNumber catalog number, e.g. "25338", "00005" or "A0001"
+     * @return key, or -1 if the catalog number isn't valid
+     */
+    static int catalogNumber(String catalogNumber) {
+
+        String trimmed = catalogNumber.trim();
+
+        if (trimmed.isEmpty() || trimmed.length() > 9) {
+            return -1;
+        }
+
+        int value = alpha5Digit(trimmed.charAt(0));
+
+        for (int i = 1; i < trimmed.length(); i++) {
+
+            char c = trimmed.charAt(i);
+
+            if (value < 0 || c < '0' || c > '9') {
+                return -1;
+            }
+
+            value = value * 10 + c - '0';
+
+        }
+
+        return value;
+
+    }
+
+    /**
+     * Value of the leading character of a catalog number; letters are
+     * Alpha-5 digits (A = 10, ... Z = 33, skipping I and O)
+     *
+     * @param c character
+     * @return digit value, or -1 if it's not valid
+     */
+    private static int alpha5Digit(int c) {
+
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+
+        if (c < 'A' || c > 'Z' || c == 'I' || c == 'O') {
+            return -1;
+        }
+
+        return c - 'A' + 10 - (c > 'I' ? 1 : 0) - (c > 'O' ? 1 : 0);
+
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int from, int limit) {
+
+        int i = from;
+
+        while (i < limit && buffer.get(i) != '\n') {
+            i++;
+        }
+
+        return i;
+
+    }
+
+    private static int trimStart(ByteBuffer buffer, int from, int to) {
+
+        int i = from;
+
+        while (i < to && buffer.get(i) <= ' ') {
+            i++;
+        }
+
+        return i;
+
+    }
+
+    private static int trimEnd(ByteBuffer buffer, int from, int to) {
+
+        int i = to;
+
+        while (i > from && buffer.get(i - 1) <= ' ') {
+            i--;
+        }
+
+        return i;
+
+    }
+
+    private static boolean isLine(ByteBuffer buffer, int start, int end, char lineNumber, int minLength) {
+        return end - start >= minLength && buffer.get(start) == lineNumber && buffer.get(start + 1) == ' ';
+    }
+
+    /**
+     * Parses the catalog number field
+     *
+     * @param buffer text
+     * @param from   start of the field
+     * @param to     end of the field (exclusive)
+     * @return key, see {@link #catalogNumber(String)}
+     */
+    private static int catalogNumber(ByteBuffer buffer, int from, int to) {
+
+        int start = trimStart(buffer, from, to);
+        int end = trimEnd(buffer, start, to);
+
+        if (start == end) {
+            throw new IllegalArgumentException("Missing catalog number");
+        }
+
+        int value = alpha5Digit(buffer.get(start));
+
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid catalog number");
+        }
+
+        return value * (int) POWERS_OF_TEN[end - start - 1] + (int) digits(buffer, start + 1, end);
+
+    }
+
+    /**
+     * Parses a field of digits, e.g. the epoch year or the implied decimal point fields
+     *
+     * @param buffer text
+     * @param from   start of the field
+     * @param to     end of the field (exclusive)
+     * @return value
+     */
+    private static long digits(ByteBuffer buffer, int from, int to) {
+
+        long value = 0;
+
+        for (int i = from; i < to; i++) {
+
+            byte b = buffer.get(i);
+
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("Invalid digit at " + i);
+            }
+
+            value = value * 10 + b - '0';
+
+        }
+
+        return value;
+
+    }
+
+    /**
+     * Parses a decimal field, e.g. " 34.2682"
+     *
+     * @param buffer text
+     * @param from   start of the field
+     * @param to     end of the field (exclusive)
+     * @return value
+     */
+    private static double decimal(ByteBuffer buffer, int from, int to) {
+
+        int start = trimStart(buffer, from, to);
+        int end = trimEnd(buffer, start, to);
+        boolean negative = start < end && buffer.get(start) == '-';
+
+        if (start < end && (negative || buffer.get(start) == '+')) {
+            start++;
+        }
+
+        long mantissa = 0;
+        int decimals = -1;
+        int digits = 0;
+
+        for (int i = start; i < end; i++) {
+
+            byte b = buffer.get(i);
+
+            if (b == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+
+            if (b < '0' || b > '9' || digits == 18) {
+                throw new IllegalArgumentException("Invalid number at " + i);
+            }
+
+            mantissa = mantissa * 10 + b - '0';
+            digits++;
+
+            if (decimals >= 0) {
+                decimals++;
+            }
+
+        }
+
+        if (digits == 0) {
+            throw new IllegalArgumentException("Missing number at " + from);
+        }
+
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+
+        return negative ? -value : value;
+
+    }
+
+    /**
+     * Parses a field with an implied leading decimal point, e.g. "1859667" for 0.1859667
+     *
+     * @param buffer text
+     * @param from   start of the field
+     * @param to     end of the field (exclusive)
+     * @return value
+     */
+    private static double implied(ByteBuffer buffer, int from, int to) {
+
+        int start = trimStart(buffer, from, to);
+        int end = trimEnd(buffer, start, to);
+
+        return digits(buffer, start, end) / POWERS_OF_TEN[end - start];
+
+    }
+
+    /**
+     * Parses a field in the implied decimal point, exponential format, e.g. " 28098-4"
+     *
+     * @param buffer text
+     * @param from   start of the field
+     * @param to     end of the field (exclusive)
+     * @return value
+     */
+    private static double exponential(ByteBuffer buffer, int from, int to) {
+
+        int start = trimStart(buffer, from, to);
+        int end = trimEnd(buffer, start, to);
+
+        if (start == end) {
+            return 0;
+        }
+
+        int exponentSign = end - 1;
+
+        while (exponentSign > start && buffer.get(exponentSign) != '-' && buffer.get(exponentSign) != '+') {
+            exponentSign--;
+        }
+
+        if (exponentSign == start) {
+            return implied(buffer, start, end);
+        }
+
+        boolean negative = buffer.get(start) == '-';
+
+        if (negative || buffer.get(start) == '+') {
+            start = trimStart(buffer, start + 1, exponentSign);
+        }
+
+        int exponent = (int) digits(buffer, exponentSign + 1, end);
+
+        if (buffer.get(exponentSign) == '-') {
+            exponent = -exponent;
+        }
+
+        // 0.mantissa * 10^exponent
+        int scale = exponent - (exponentSign - start);
+        long mantissa = digits(buffer, start, exponentSign);
+        double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+
+        return negative ? -value : value;
+
+    }
+
+    /**
+     * Collects element sets in growable arrays, in any order
+     */
+    private static final class Builder {
+
+        private int size;
+        private int[] catalogNumbers = new int[16];
+        private long[] epochs = new long[16];
+        private double[] bstar = new double[16];
+        private double[] inclination = new double[16];
+        private double[] raan = new double[16];
+        private double[] eccentricity = new double[16];
+        private double[] argumentOfPerigee = new double[16];
+        private double[] meanAnomaly = new double[16];
+        private double[] meanMotion = new double[16];
+        private int[] textOffsets = new int[16];
+        private int[] nameLengths = new int[16];
+        private int[] line1Lengths = new int[16];
+        private int[] line2Lengths = new int[16];
+        private byte[] text = new byte[1024];
+        private int textLength;
+
+        /**
+         * Parses and adds an element set; skips it if a field isn't valid
+         *
+         * @param buffer    catalog text
+         * @param nameStart start of the title line, or -1 if there's none
+         * @param nameEnd   end of the title line (exclusive)
+         * @param line1     start of line 1
+         * @param line1End  end of line 1 (exclusive)
+         * @param line2     start of line 2
+         * @param line2End  end of line 2 (exclusive)
+         */
+        void add(ByteBuffer buffer, int nameStart, int nameEnd, int line1, int line1End, int line2, int line2End) {
+
+            int catalogNumber;
+            long epoch;
+            double[] elements = new double[7];
+
+            try {
+                catalogNumber = catalogNumber(buffer, line1 + 2, line1 + 7);
+                epoch = Tle.epochMillis((int) digits(buffer, line1 + 18, line1 + 20),
+                        decimal(buffer, line1 + 20, line1 + 32));
+                elements[0] = exponential(buffer, line1 + 53, line1 + 61);
+                elements[1] = Math.toRadians(decimal(buffer, line2 + 8, line2 + 16));
+                elements[2] = Math.toRadians(decimal(buffer, line2 + 17, line2 + 25));
+                elements[3] = implied(buffer, line2 + 26, line2 + 33);
+                elements[4] = Math.toRadians(decimal(buffer, line2 + 34, line2 + 42));
+                elements[5] = Math.toRadians(decimal(buffer, line2 + 43, line2 + 51));
+                elements[6] = decimal(buffer, line2 + 52, line2 + 63) * REVOLUTIONS_PER_DAY;
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+
+            int nameLength = nameStart < 0 ? 0 : nameEnd - nameStart;
+            int offset = appendText(buffer, nameStart, nameLength);
+            appendText(buffer, line1, line1End - line1);
+            appendText(buffer, line2, line2End - line2);
+
+            add(catalogNumber, epoch, elements, offset, nameLength, line1End - line1, line2End - line2);
+
+        }
+
+        /**
+         * Adds an element set from a store
+         *
+         * @param store store
+         * @param i     element set index in the store
+         */
+        void add(TleStore store, int i) {
+
+            int length = store.nameLengths[i] + store.line1Lengths[i] + store.line2Lengths[i];
+            int offset = textLength;
+
+            ensureTextCapacity(length);
+            System.arraycopy(store.text, store.textOffsets[i], text, textLength, length);
+            textLength += length;
+
+            add(store.catalogNumbers[i], store.epochs[i], new double[]{store.bstar[i], store.inclination[i],
+                    store.raan[i], store.eccentricity[i], store.argumentOfPerigee[i], store.meanAnomaly[i],
+                    store.meanMotion[i]}, offset, store.nameLengths[i], store.line1Lengths[i], store.line2Lengths[i]);
+
+        }
+
+        /**
+         * Sorts the element sets by catalog number and drops all but the
+         * latest epoch of each object; on equal epochs, the one added last wins
+         *
+         * @return store
+         */
+        TleStore build() {
+
+            long[] keys = new long[size];
+
+            for (int i = 0; i < size; i++) {
+                keys[i] = (long) catalogNumbers[i] << 32 | i;
+            }
+
+            Arrays.sort(keys);
+
+            int[] order = new int[size];
+            int n = 0;
+
+            for (long key : keys) {
+
+                int i = (int) key;
+
+                if (n > 0 && catalogNumbers[order[n - 1]] == catalogNumbers[i]) {
+                    if (epochs[i] >= epochs[order[n - 1]]) {
+                        order[n - 1] = i;
+                    }
+                } else {
+                    order[n++] = i;
+                }
+
+            }
+
+            return new TleStore(this, Arrays.copyOf(order, n));
+
+        }
+
+        private void add(int catalogNumber, long epoch, double[] elements, int offset, int nameLength,
+                         int line1Length, int line2Length) {
+
+            if (size == catalogNumbers.length) {
+                grow();
+            }
+
+            catalogNumbers[size] = catalogNumber;
+            epochs[size] = epoch;
+            bstar[size] = elements[0];
+            inclination[size] = elements[1];
+            raan[size] = elements[2];
+            eccentricity[size] = elements[3];
+            argumentOfPerigee[size] = elements[4];
+            meanAnomaly[size] = elements[5];
+            meanMotion[size] = elements[6];
+            textOffsets[size] = offset;
+            nameLengths[size] = nameLength;
+            line1Lengths[size] = line1Length;
+            line2Lengths[size] = line2Length;
+            size++;
+
+        }
+
+        private int appendText(ByteBuffer buffer, int from, int length) {
+
+            int offset = textLength;
+
+            ensureTextCapacity(length);
+
+            for (int i = 0; i < length; i++) {
+                text[textLength++] = buffer.get(from + i);
+            }
+
+            return offset;
+
+        }
+
+        private void ensureTextCapacity(int length) {
+            if (textLength + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            }
+        }
+
+        private void grow() {
+
+            int capacity = catalogNumbers.length * 2;
+
+            catalogNumbers = Arrays.copyOf(catalogNumbers, capacity);
+            epochs = Arrays.copyOf(epochs, capacity);
+            bstar = Arrays.copyOf(bstar, capacity);
+            inclination = Arrays.copyOf(inclination, capacity);
+            raan = Arrays.copyOf(raan, capacity);
+            eccentricity = Arrays.copyOf(eccentricity, capacity);
+            argumentOfPerigee = Arrays.copyOf(argumentOfPerigee, capacity);
+            meanAnomaly = Arrays.copyOf(meanAnomaly, capacity);
+            meanMotion = Arrays.copyOf(meanMotion, capacity);
+            textOffsets = Arrays.copyOf(textOffsets, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+            line1Lengths = Arrays.copyOf(line1Lengths, capacity);
+            line2Lengths = Arrays.copyOf(line2Lengths, capacity);
+
+        }
+
+    }
+
+}
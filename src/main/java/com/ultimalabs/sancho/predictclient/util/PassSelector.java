@@ -0,0 +1,223 @@
+package com.ultimalabs.sancho.predictclient.util;
+
+import com.ultimalabs.sancho.common.config.AntennaChain;
+import com.ultimalabs.sancho.common.config.SatelliteData;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Picks the passes to schedule over a horizon
+ * <p>
+ * Solves weighted interval scheduling: of all the passes of all satellites,
+ * picks the set of non-overlapping passes with the largest total weight.
+ * A pass weighs its duration times the satellite priority; passes whose
+ * maximum elevation is below the tracking threshold weigh nothing and are
+ * never picked. Passes tracked by the rotator also need the reposition time
+ * free before them. Runs in O(n log n).
+ * <p>
+ * With several antenna chains, each chain gets its own schedule, see
+ * {@link #assign(List, List, Map, ToLongFunction)}.
+ */
+public class PassSelector {
+
+    private PassSelector() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Picks the best set of non-overlapping passes
+     *
+     * @param passes         candidate passes, in any order
+     * @param repositionTime time the rotator needs between passes, in milliseconds
+     * @return picked passes, ordered by rise time
+     */
+    public static List<SatellitePass> select(List<SatellitePass> passes, long repositionTime) {
+
+        List<SatellitePass> candidates = new ArrayList<>();
+
+        for (SatellitePass pass : passes) {
+            if (weight(pass) > 0) {
+                candidates.add(pass);
+            }
+        }
+
+        candidates.sort(Comparator.comparingLong(PassSelector::end));
+
+        int n = candidates.size();
+        long[] ends = new long[n];
+
+        for (int i = 0; i < n; i++) {
+            ends[i] = end(candidates.get(i));
+        }
+
+        // best[j] - the best total weight of the first j passes (by end time)
+        // previous[j] - number of passes that end before pass j starts
+        double[] best = new double[n + 1];
+        int[] previous = new int[n];
+
+        for (int j = 0; j < n; j++) {
+            SatellitePass pass = candidates.get(j);
+            previous[j] = countEndingBy(ends, j, start(pass, repositionTime));
+            best[j + 1] = Math.max(best[j], best[previous[j]] + weight(pass));
+        }
+
+        List<SatellitePass> selected = new ArrayList<>();
+        int j = n;
+
+        while (j > 0) {
+            SatellitePass pass = candidates.get(j - 1);
+            if (best[previous[j - 1]] + weight(pass) >= best[j - 1]) {
+                selected.add(pass);
+                j = previous[j - 1];
+            } else {
+                j--;
+            }
+        }
+
+        Collections.reverse(selected);
+
+        return selected;
+
+    }
+
+    /**
+     * Assigns passes to antenna chains
+     * <p>
+     * Chains are planned one after another, each picking the best schedule
+     * (see {@link #select(List, long)}) from the passes it can handle that
+     * aren't picked by the chains planned before it. Chains that can handle
+     * fewer passes are planned first, so passes only a specialized chain
+     * can handle aren't taken by a general one. A chain that's busy tracking
+     * a pass only gets passes that start after it's done.
+     *
+     * @param passes         candidate passes, in any order
+     * @param chains         antenna chains
+     * @param busyUntil      end of the pass each busy chain is tracking (epoch, milliseconds), by chain name
+     * @param repositionTime time each chain's rotator needs between passes, in milliseconds
+     * @return picked passes of each chain, ordered by rise time, by chain name; in config order
+     */
+    public static Map<String, List<SatellitePass>> assign(List<SatellitePass> passes, List<AntennaChain> chains,
+                                                          Map<String, Long> busyUntil,
+                                                          ToLongFunction<AntennaChain> repositionTime) {
+
+        Map<AntennaChain, List<SatellitePass>> eligible = new IdentityHashMap<>();
+
+        for (AntennaChain chain : chains) {
+
+            Long busy = busyUntil.get(chain.getName());
+            long chainRepositionTime = repositionTime.applyAsLong(chain);
+            List<SatellitePass> chainPasses = new ArrayList<>();
+
+            for (SatellitePass pass : passes) {
+                if (chain.canHandle(pass.getSatelliteData())
+                        && (busy == null || start(pass, chainRepositionTime) >= busy)) {
+                    chainPasses.add(pass);
+                }
+            }
+
+            eligible.put(chain, chainPasses);
+
+        }
+
+        List<AntennaChain> planningOrder = new ArrayList<>(chains);
+        planningOrder.sort(Comparator.comparingInt(chain -> eligible.get(chain).size()));
+
+        Set<SatellitePass> taken = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<AntennaChain, List<SatellitePass>> schedules = new IdentityHashMap<>();
+
+        for (AntennaChain chain : planningOrder) {
+
+            List<SatellitePass> available = new ArrayList<>();
+
+            for (SatellitePass pass : eligible.get(chain)) {
+                if (!taken.contains(pass)) {
+                    available.add(pass);
+                }
+            }
+
+            List<SatellitePass> schedule = select(available, repositionTime.applyAsLong(chain));
+            taken.addAll(schedule);
+            schedules.put(chain, schedule);
+
+        }
+
+        Map<String, List<SatellitePass>> assignment = new LinkedHashMap<>();
+
+        for (AntennaChain chain : chains) {
+            assignment.put(chain.getName(), schedules.get(chain));
+        }
+
+        return assignment;
+
+    }
+
+    /**
+     * Weight of a pass
+     *
+     * @param pass pass data
+     * @return pass duration in seconds, times the satellite priority; zero below the tracking threshold
+     */
+    static double weight(SatellitePass pass) {
+
+        SatelliteData sat = pass.getSatelliteData();
+
+        if (pass.getMidPoint().getEl() < sat.getTrackingElevationThreshold()) {
+            return 0;
+        }
+
+        return pass.getDuration() * (sat.getPriority() > 0 ? sat.getPriority() : 1);
+
+    }
+
+    /**
+     * Time a pass needs the station from, including the rotator reposition time
+     *
+     * @param pass           pass data
+     * @param repositionTime rotator reposition time, in milliseconds
+     * @return start time (epoch, milliseconds)
+     */
+    private static long start(SatellitePass pass, long repositionTime) {
+        long rise = pass.getRisePoint().getT().getTime();
+        return pass.getSatelliteData().isRotatorEnabled() ? rise - repositionTime : rise;
+    }
+
+    private static long end(SatellitePass pass) {
+        return pass.getSetPoint().getT().getTime();
+    }
+
+    /**
+     * Number of passes among the first ones that end by a given time
+     *
+     * @param ends  pass end times, ascending
+     * @param limit number of passes to look at
+     * @param time  time (epoch, milliseconds)
+     * @return number of passes ending at or before the time
+     */
+    private static int countEndingBy(long[] ends, int limit, long time) {
+
+        int index = Arrays.binarySearch(ends, 0, limit, time);
+
+        if (index < 0) {
+            return -index - 1;
+        }
+
+        // equal end times: count all of them
+        while (index < limit && ends[index] == time) {
+            index++;
+        }
+
+        return index;
+
+    }
+
+}
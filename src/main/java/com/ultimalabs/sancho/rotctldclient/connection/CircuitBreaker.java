@@ -0,0 +1,101 @@
+package com.ultimalabs.sancho.rotctldclient.connection;
+
+/**
+ * Fails commands fast while a daemon is unresponsive
+ * <p>
+ * After a number of consecutive failures (timeouts, failed connection
+ * attempts) the circuit opens, and commands fail immediately instead of
+ * waiting for their deadline. Once the open interval has passed, commands
+ * are let through again; the first response closes the circuit, the first
+ * failure opens it again. Used on the event loop thread, except for
+ * {@link #isOpen}, which metrics may call from any thread.
+ */
+class CircuitBreaker {
+
+    /**
+     * Consecutive failures that open the circuit
+     */
+    private final int failureThreshold;
+
+    /**
+     * How long the circuit stays open, in milliseconds
+     */
+    private final long openMillis;
+
+    /**
+     * Consecutive failures since the last success
+     */
+    private int failures;
+
+    /**
+     * Whether the circuit is open, or was and is being probed again
+     */
+    private boolean tripped;
+
+    /**
+     * Time (epoch, milliseconds) until which commands fail fast
+     */
+    private volatile long openUntil;
+
+    /**
+     * Constructor
+     *
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openMillis       how long the circuit stays open, in milliseconds
+     */
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Whether commands may be sent
+     *
+     * @param now current time (epoch, milliseconds)
+     * @return false if commands should fail fast
+     */
+    boolean allows(long now) {
+        return now >= openUntil;
+    }
+
+    /**
+     * Whether the circuit is open
+     *
+     * @param now current time (epoch, milliseconds)
+     * @return true if commands fail fast
+     */
+    boolean isOpen(long now) {
+        return !allows(now);
+    }
+
+    /**
+     * Records a response received in time; closes the circuit
+     */
+    void success() {
+        failures = 0;
+        tripped = false;
+        openUntil = 0;
+    }
+
+    /**
+     * Records a failure; opens the circuit after too many of them, or on the
+     * first failure after it was open
+     *
+     * @param now current time (epoch, milliseconds)
+     * @return true if the circuit opened now
+     */
+    boolean failure(long now) {
+
+        failures++;
+
+        if (isOpen(now) || (!tripped && failures < failureThreshold)) {
+            return false;
+        }
+
+        tripped = true;
+        openUntil = now + openMillis;
+        return true;
+
+    }
+
+}
@@ -0,0 +1,313 @@
+package com.ultimalabs.sancho.rotctldclient.connection;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A single command sent to rigctld/rotctld, together with its response future
+ * <p>
+ * Every command carries a deadline, set from its priority's latency budget
+ * when it's created. A command that's still waiting for a response at its
+ * deadline completes exceptionally with a {@link TimeoutException}, and a
+ * response arriving later is discarded.
+ *
+ * @param <T> type of the decoded response
+ */
+@Getter
+public class HamlibCommand<T> {
+
+    /**
+     * Command text, in the extended protocol format, without the line terminator
+     */
+    private final String message;
+
+    /**
+     * Command name, without the protocol prefix and the arguments, e.g. "set_pos"
+     */
+    private final String type;
+
+    /**
+     * Decodes the response line
+     */
+    private final HamlibResponseDecoder<T> decoder;
+
+    /**
+     * Priority in the connection's outbox
+     */
+    private final Priority priority;
+
+    /**
+     * Completed with the decoded response
+     */
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    /**
+     * Time (System.nanoTime()) by which the response has to arrive
+     */
+    private final long deadline;
+
+    /**
+     * Time (System.nanoTime()) the command was last written to the socket; zero if it hasn't been
+     */
+    private long sentTime;
+
+    /**
+     * Whether the command may be sent again over a new connection
+     * if the one it was sent over breaks
+     */
+    private boolean retriable;
+
+    /**
+     * Whether the command has already been re-sent once
+     */
+    private boolean retried;
+
+    /**
+     * Identical status reads coalesced into this one, completed with the same response
+     */
+    @Getter(AccessLevel.NONE)
+    private List<HamlibCommand<?>> followers;
+
+    /**
+     * Constructor; the command gets the {@link Priority#CONTROL} priority
+     *
+     * @param message command text
+     * @param decoder response decoder
+     */
+    public HamlibCommand(String message, HamlibResponseDecoder<T> decoder) {
+        this(message, decoder, Priority.CONTROL);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param message  command text
+     * @param decoder  response decoder
+     * @param priority priority in the connection's outbox
+     */
+    public HamlibCommand(String message, HamlibResponseDecoder<T> decoder, Priority priority) {
+        this.message = message;
+        this.type = type(message);
+        this.decoder = decoder;
+        this.priority = priority;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(priority.getBudgetMillis());
+    }
+
+    /**
+     * Allows re-sending the command once after a connection failure
+     *
+     * @return this command
+     */
+    HamlibCommand<T> retriable() {
+        retriable = true;
+        return this;
+    }
+
+    /**
+     * Marks the command for re-sending, if that's allowed
+     *
+     * @return true if the command should be re-sent
+     */
+    boolean retry() {
+
+        if (!retriable || retried) {
+            return false;
+        }
+
+        retried = true;
+        return true;
+
+    }
+
+    /**
+     * Encodes the command for the wire
+     *
+     * @return command bytes, including the line terminator
+     */
+    ByteBuffer encode() {
+        return ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Marks the command as written to the socket
+     *
+     * @param now current time (System.nanoTime())
+     */
+    void sent(long now) {
+        sentTime = now;
+    }
+
+    /**
+     * Decodes the response line and completes the future, unless the
+     * deadline has passed
+     *
+     * @param buf   buffer holding the response
+     * @param start index of the first character of the line
+     * @param end   index one past the last character of the line
+     * @param now   time (System.nanoTime()) the response arrived
+     */
+    void complete(ByteBuffer buf, int start, int end, long now) {
+
+        expire(now);
+
+        if (!future.isDone()) {
+            try {
+                future.complete(decoder.decode(buf, start, end));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        if (followers != null) {
+            for (HamlibCommand<?> follower : followers) {
+                follower.complete(buf, start, end, now);
+            }
+        }
+
+    }
+
+    /**
+     * Completes the command, and the commands coalesced into it, with a
+     * timeout if their deadline has passed
+     *
+     * @param now current time (System.nanoTime())
+     * @return true if this command timed out now
+     */
+    boolean expire(long now) {
+
+        boolean expired = false;
+
+        if (!future.isDone() && now - deadline >= 0) {
+            expired = future.completeExceptionally(new TimeoutException(type + " timed out"));
+        }
+
+        if (followers != null) {
+            for (HamlibCommand<?> follower : followers) {
+                follower.expire(now);
+            }
+        }
+
+        return expired;
+
+    }
+
+    /**
+     * Whether the command, and the commands coalesced into it, are completed
+     *
+     * @return true if nobody waits for the response anymore
+     */
+    boolean isDone() {
+
+        if (!future.isDone()) {
+            return false;
+        }
+
+        if (followers != null) {
+            for (HamlibCommand<?> follower : followers) {
+                if (!follower.isDone()) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Completes the command, and the commands coalesced into it, exceptionally
+     *
+     * @param cause failure cause
+     */
+    void fail(Throwable cause) {
+
+        future.completeExceptionally(cause);
+
+        if (followers != null) {
+            for (HamlibCommand<?> follower : followers) {
+                follower.fail(cause);
+            }
+        }
+
+    }
+
+    /**
+     * Coalesces an identical command into this one; it gets the same response
+     *
+     * @param follower command sent with the same message
+     */
+    void coalesce(HamlibCommand<?> follower) {
+
+        if (followers == null) {
+            followers = new ArrayList<>(2);
+        }
+
+        followers.add(follower);
+
+    }
+
+    /**
+     * Extracts the command name from a command
+     *
+     * @param message command text, e.g. ",\\set_pos 180 45"
+     * @return command name, e.g. "set_pos"
+     */
+    private static String type(String message) {
+
+        int start = 0;
+
+        while (start < message.length() && (message.charAt(start) == ',' || message.charAt(start) == '\\')) {
+            start++;
+        }
+
+        int end = message.indexOf(' ', start);
+
+        return message.substring(start, end < 0 ? message.length() : end);
+
+    }
+
+    /**
+     * Command priorities, highest first
+     * <p>
+     * Commands waiting to be sent leave the outbox in priority order, and in
+     * submission order within a priority. Each priority has a latency budget:
+     * the time from submitting a command to its response.
+     */
+    public enum Priority {
+
+        /**
+         * Commands and position readings of an active pass
+         */
+        TRACKING(1_000),
+
+        /**
+         * Parking, radio tuning and other control commands
+         */
+        CONTROL(5_000),
+
+        /**
+         * Status reads; identical reads waiting or in flight are coalesced
+         */
+        STATUS(2_000);
+
+        /**
+         * Latency budget, in milliseconds
+         */
+        @Getter
+        private final long budgetMillis;
+
+        Priority(long budgetMillis) {
+            this.budgetMillis = budgetMillis;
+        }
+
+    }
+
+}
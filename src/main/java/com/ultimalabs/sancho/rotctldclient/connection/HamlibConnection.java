@@ -0,0 +1,974 @@
+package com.ultimalabs.sancho.rotctldclient.connection;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent connection to a single rigctld/rotctld daemon
+ * <p>
+ * The socket is opened lazily, on first use, and kept open between commands.
+ * A connection which has been idle for a while is probed before use, and a
+ * broken connection is re-established with exponential backoff between
+ * the attempts.
+ * <p>
+ * Besides plain request/response, commands can be pipelined: several commands
+ * are written in a single flush, and the responses, one line per command in
+ * the extended protocol, are matched to them in order.
+ * <p>
+ * The connection is non-blocking and driven by a {@link HamlibEventLoop}.
+ * Public methods may be called from any thread; everything else runs on the
+ * loop thread, which is the only writer to the socket. Callers never wait
+ * for each other: commands are queued by priority, and only a few are kept
+ * in flight, so tracking commands overtake queued status reads. Identical
+ * status reads are coalesced into one.
+ * <p>
+ * Nothing waits forever: commands time out at their deadline, connection
+ * attempts and responses have timeouts too, and while the daemon is
+ * unresponsive, a circuit breaker fails commands fast. Command latency is
+ * published per command type.
+ */
+@Slf4j
+public class HamlibConnection {
+
+    /**
+     * Command used to check whether the daemon still responds
+     */
+    private static final String HEALTH_CHECK_COMMAND = ",\\get_info";
+
+    /**
+     * Idle time after which the connection is probed before use (milliseconds)
+     */
+    private static final long HEALTH_CHECK_INTERVAL = 30_000;
+
+    /**
+     * Wait time after the first failed connection attempt (milliseconds)
+     */
+    private static final long INITIAL_BACKOFF = 1_000;
+
+    /**
+     * Maximum wait time between two connection attempts (milliseconds)
+     */
+    private static final long MAX_BACKOFF = 60_000;
+
+    /**
+     * Initial size of the response buffer; it grows if a response doesn't fit
+     */
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    /**
+     * Maximum number of commands written to the socket and waiting for a response
+     */
+    private static final int MAX_INFLIGHT = 4;
+
+    /**
+     * Time allowed for establishing a connection (milliseconds)
+     */
+    private static final long CONNECT_TIMEOUT = 3_000;
+
+    /**
+     * Time without any response to a command in flight after which the
+     * connection is considered hung and re-established (milliseconds)
+     */
+    private static final long READ_TIMEOUT = 5_000;
+
+    /**
+     * Consecutive failures that open the circuit breaker
+     */
+    private static final int CIRCUIT_FAILURES = 3;
+
+    /**
+     * How long the circuit breaker stays open (milliseconds)
+     */
+    private static final long CIRCUIT_OPEN_INTERVAL = 10_000;
+
+    /**
+     * Event loop driving this connection
+     */
+    private final HamlibEventLoop eventLoop;
+
+    /**
+     * Connection name, used for logging
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * Daemon host address; empty string if the daemon is not used
+     */
+    private final String host;
+
+    /**
+     * Daemon port
+     */
+    private final int port;
+
+    /**
+     * Connection state, written on the loop thread only
+     */
+    private volatile State state = State.DISCONNECTED;
+
+    private SocketChannel channel;
+    private SelectionKey key;
+
+    /**
+     * Commands waiting to be written, per priority
+     */
+    private final Map<HamlibCommand.Priority, Deque<HamlibCommand<?>>> outbox =
+            new EnumMap<>(HamlibCommand.Priority.class);
+
+    /**
+     * Status reads waiting or in flight, by message, for coalescing
+     */
+    private final Map<String, HamlibCommand<?>> pendingReads = new HashMap<>();
+
+    /**
+     * Encoded commands waiting to be written
+     */
+    private final Deque<ByteBuffer> writeQueue = new ArrayDeque<>();
+
+    /**
+     * Commands written to the socket, waiting for a response, in order
+     */
+    private final Deque<HamlibCommand<?>> inflight = new ArrayDeque<>();
+
+    /**
+     * Response buffer, in write mode between reads
+     */
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    /**
+     * Timestamp (epoch, milliseconds) of the last response
+     */
+    private long lastActivity;
+
+    /**
+     * Health check waiting or in flight; null if there's none
+     */
+    private HamlibCommand<?> healthCheck;
+
+    /**
+     * Timestamp (epoch, milliseconds) before which no connection attempt is made
+     */
+    private long nextConnectAttempt;
+
+    /**
+     * Current wait time between connection attempts (milliseconds)
+     */
+    private long backoff = INITIAL_BACKOFF;
+
+    /**
+     * Time (System.nanoTime()) the current connection attempt started
+     */
+    private long connectStarted;
+
+    /**
+     * Fails commands fast while the daemon is unresponsive
+     */
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(CIRCUIT_FAILURES, CIRCUIT_OPEN_INTERVAL);
+
+    /**
+     * Registry for the command latency and timeout meters
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Command latency timers, by command type
+     */
+    private final Map<String, Timer> latencyTimers = new HashMap<>();
+
+    /**
+     * Command timeout counters, by command type
+     */
+    private final Map<String, Counter> timeoutCounters = new HashMap<>();
+
+    /**
+     * Constructor; connections are created by {@link HamlibEventLoop#open}
+     *
+     * @param eventLoop event loop driving this connection
+     * @param name      connection name
+     * @param host      daemon host address; use empty string if the daemon is not used
+     * @param port      daemon port
+     */
+    HamlibConnection(HamlibEventLoop eventLoop, String name, String host, int port) {
+        this.eventLoop = eventLoop;
+        this.name = name;
+        this.host = host;
+        this.port = port;
+        this.meterRegistry = eventLoop.meterRegistry();
+
+        for (HamlibCommand.Priority priority : HamlibCommand.Priority.values()) {
+            outbox.put(priority, new ArrayDeque<>());
+        }
+
+        Gauge.builder("sancho.hamlib.circuit.open", circuitBreaker,
+                        breaker -> breaker.isOpen(System.currentTimeMillis()) ? 1 : 0)
+                .description("Whether commands to the daemon fail fast because it's unresponsive")
+                .tag("daemon", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the daemon is configured at all
+     *
+     * @return true if the daemon is used
+     */
+    public boolean isEnabled() {
+        return host != null && !host.equals("");
+    }
+
+    /**
+     * Whether the socket is currently open
+     *
+     * @return true if connected
+     */
+    public boolean isConnected() {
+        return state == State.CONNECTED;
+    }
+
+    /**
+     * Sends a message and returns its response asynchronously
+     * <p>
+     * Connects on demand. If the connection breaks before the response
+     * arrives, the message is sent once more over a new connection; all
+     * commands we send this way are idempotent.
+     *
+     * @param msg message to be sent
+     * @return response future; completes exceptionally if the daemon is not available
+     */
+    public CompletableFuture<String> submit(String msg) {
+        return submit(msg, HamlibResponseDecoder.TEXT);
+    }
+
+    /**
+     * Sends a message and returns its decoded response asynchronously
+     * <p>
+     * Same as {@link #submit(String)}, but the response is decoded on the
+     * event loop thread, straight from the read buffer.
+     *
+     * @param msg     message to be sent
+     * @param decoder response decoder
+     * @param <T>     type of the decoded response
+     * @return decoded response future; completes exceptionally if the daemon is not available
+     */
+    public <T> CompletableFuture<T> submit(String msg, HamlibResponseDecoder<T> decoder) {
+        return submit(msg, decoder, HamlibCommand.Priority.CONTROL);
+    }
+
+    /**
+     * Sends a message with the given priority and returns its decoded response asynchronously
+     * <p>
+     * Same as {@link #submit(String, HamlibResponseDecoder)}. A status read
+     * identical to one already waiting or in flight isn't sent again; it gets
+     * the same response.
+     *
+     * @param msg      message to be sent
+     * @param decoder  response decoder
+     * @param priority command priority
+     * @param <T>      type of the decoded response
+     * @return decoded response future; completes exceptionally if the daemon is not available
+     */
+    public <T> CompletableFuture<T> submit(String msg, HamlibResponseDecoder<T> decoder,
+                                           HamlibCommand.Priority priority) {
+        HamlibCommand<T> command = new HamlibCommand<>(msg, decoder, priority).retriable();
+        enqueue(Collections.singletonList(command));
+        return command.getFuture();
+    }
+
+    /**
+     * Sends a message and waits for a single line of response
+     * <p>
+     * Must not be called from the event loop thread.
+     *
+     * @param msg message to be sent
+     * @return response line, or null if the daemon is not available
+     */
+    public String send(String msg) {
+
+        if (eventLoop.inEventLoop()) {
+            throw new IllegalStateException("Blocking send called from the Hamlib event loop");
+        }
+
+        return submit(msg).exceptionally(e -> null).join();
+
+    }
+
+    /**
+     * Sends several messages in a single flush, in-flight limit permitting
+     * <p>
+     * Responses are matched to the messages in order, and each message gets
+     * its own future. If the connection breaks halfway, the futures of the
+     * messages without a response complete exceptionally. Pipelined messages
+     * are not retried, as we don't know which of them reached the daemon.
+     *
+     * @param messages messages to be sent
+     * @return per-message response futures, in the same order as messages
+     */
+    public List<CompletableFuture<String>> sendPipelined(List<String> messages) {
+
+        List<HamlibCommand<?>> commands = new ArrayList<>(messages.size());
+        List<CompletableFuture<String>> futures = new ArrayList<>(messages.size());
+
+        for (String msg : messages) {
+            HamlibCommand<String> command = new HamlibCommand<>(msg, HamlibResponseDecoder.TEXT);
+            commands.add(command);
+            futures.add(command.getFuture());
+        }
+
+        enqueue(commands);
+        return futures;
+
+    }
+
+    /**
+     * Sends several commands, each with its own response decoder, in a single flush
+     * <p>
+     * Same as {@link #sendPipelined(List)}; results are delivered through the
+     * commands' futures.
+     *
+     * @param commands commands to be sent
+     */
+    public void pipeline(List<HamlibCommand<?>> commands) {
+        enqueue(commands);
+    }
+
+    /**
+     * Closes the connection
+     * <p>
+     * Commands waiting for a response fail. The connection will be
+     * re-opened on the next send.
+     */
+    public void close() {
+        eventLoop.execute(() -> disconnect(new IOException("connection closed")));
+    }
+
+    /**
+     * Hands the commands over to the loop thread
+     *
+     * @param commands commands to send
+     */
+    private void enqueue(List<HamlibCommand<?>> commands) {
+
+        if (!isEnabled()) {
+            fail(commands, new IOException(name + " is not configured"));
+            return;
+        }
+
+        eventLoop.execute(() -> {
+
+            if (!circuitBreaker.allows(System.currentTimeMillis())) {
+                fail(commands, new IOException(name + " is not responding"));
+                return;
+            }
+
+            if (state == State.DISCONNECTED && !connect()) {
+                fail(commands, new IOException(name + " is not available"));
+                return;
+            }
+
+            if (state == State.CONNECTED && System.currentTimeMillis() - lastActivity >= HEALTH_CHECK_INTERVAL
+                    && (healthCheck == null || healthCheck.getFuture().isDone())) {
+                // pipelined in front of the commands, so it costs no extra round trip
+                healthCheck = new HamlibCommand<>(HEALTH_CHECK_COMMAND, HamlibResponseDecoder.TEXT,
+                        HamlibCommand.Priority.TRACKING);
+                outbox.get(HamlibCommand.Priority.TRACKING).addFirst(healthCheck);
+            }
+
+            for (HamlibCommand<?> command : commands) {
+                queue(command);
+            }
+
+            if (state == State.CONNECTED) {
+                flushOutbox();
+            }
+
+        });
+
+    }
+
+    /**
+     * Handles I/O readiness reported by the selector
+     *
+     * @param selectionKey selection key of this connection
+     */
+    void handle(SelectionKey selectionKey) {
+
+        if (!selectionKey.isValid()) {
+            return;
+        }
+
+        try {
+
+            if (selectionKey.isConnectable()) {
+                finishConnect();
+                return;
+            }
+
+            if (selectionKey.isReadable()) {
+                read();
+            }
+
+            if (selectionKey.isValid() && selectionKey.isWritable()) {
+                write();
+            }
+
+        } catch (IOException e) {
+            connectionFailed(e);
+        }
+
+    }
+
+    /**
+     * Closes the socket and fails all pending commands
+     *
+     * @param cause reason for disconnecting
+     */
+    void disconnect(IOException cause) {
+        closeChannel();
+        fail(inflight, cause);
+        inflight.clear();
+        failOutbox(cause);
+    }
+
+    /**
+     * Times out the commands past their deadline, and the connection attempt
+     * or the responses if they take too long
+     *
+     * @param now current time (System.nanoTime())
+     */
+    void checkDeadlines(long now) {
+
+        for (Deque<HamlibCommand<?>> commands : outbox.values()) {
+
+            Iterator<HamlibCommand<?>> waiting = commands.iterator();
+
+            while (waiting.hasNext()) {
+
+                HamlibCommand<?> command = waiting.next();
+
+                if (command.expire(now)) {
+                    timeoutCounter(command.getType()).increment();
+                }
+
+                if (command.isDone()) {
+                    forget(command);
+                    waiting.remove();
+                }
+
+            }
+
+        }
+
+        for (HamlibCommand<?> command : inflight) {
+            if (command.expire(now)) {
+                timedOut(command);
+            }
+        }
+
+        HamlibCommand<?> oldest = inflight.peek();
+
+        if (state == State.CONNECTED && oldest != null
+                && now - oldest.getSentTime() > TimeUnit.MILLISECONDS.toNanos(READ_TIMEOUT)) {
+            connectionFailed(new SocketTimeoutException("no response in " + READ_TIMEOUT + " ms"));
+        } else if (state == State.CONNECTING && now - connectStarted > TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT)) {
+            connectFailed(new SocketTimeoutException("connection timed out after " + CONNECT_TIMEOUT + " ms"));
+            failOutbox(new IOException(name + " is not available"));
+        }
+
+    }
+
+    /**
+     * Time until the next deadline {@link #checkDeadlines(long)} has to handle
+     * <p>
+     * Deadlines that already passed were handled by the last check. Status
+     * reads coalesced into a command are due no earlier than the command.
+     *
+     * @param now time (System.nanoTime()) of the last check
+     * @return time until the next deadline, in nanoseconds; Long.MAX_VALUE if there's none
+     */
+    long timeToNextDeadline(long now) {
+
+        long next = Long.MAX_VALUE;
+
+        for (Deque<HamlibCommand<?>> commands : outbox.values()) {
+            for (HamlibCommand<?> command : commands) {
+                next = earliest(next, command.getDeadline() - now);
+            }
+        }
+
+        for (HamlibCommand<?> command : inflight) {
+            next = earliest(next, command.getDeadline() - now);
+        }
+
+        HamlibCommand<?> oldest = inflight.peek();
+
+        if (state == State.CONNECTED && oldest != null) {
+            next = earliest(next, oldest.getSentTime() + TimeUnit.MILLISECONDS.toNanos(READ_TIMEOUT) - now);
+        } else if (state == State.CONNECTING) {
+            next = earliest(next, connectStarted + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT) - now);
+        }
+
+        return next;
+
+    }
+
+    /**
+     * The earlier of two delays, ignoring the delays that already passed
+     *
+     * @param next  earliest delay so far, in nanoseconds
+     * @param delay delay, in nanoseconds
+     * @return earliest delay
+     */
+    private static long earliest(long next, long delay) {
+        return delay > 0 && delay < next ? delay : next;
+    }
+
+    /**
+     * Adds a command to the outbox, or coalesces it into an identical pending status read
+     *
+     * @param command command to send
+     */
+    private void queue(HamlibCommand<?> command) {
+
+        if (command.getPriority() == HamlibCommand.Priority.STATUS) {
+
+            HamlibCommand<?> pending = pendingReads.get(command.getMessage());
+
+            if (pending != null) {
+                pending.coalesce(command);
+                return;
+            }
+
+            pendingReads.put(command.getMessage(), command);
+
+        }
+
+        outbox.get(command.getPriority()).add(command);
+
+    }
+
+    /**
+     * Takes the highest-priority waiting command out of the outbox
+     *
+     * @return command, or null if the outbox is empty
+     */
+    private HamlibCommand<?> pollOutbox() {
+
+        for (Deque<HamlibCommand<?>> commands : outbox.values()) {
+            if (!commands.isEmpty()) {
+                return commands.poll();
+            }
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Whether there are commands waiting to be written
+     *
+     * @return true if the outbox is empty
+     */
+    private boolean isOutboxEmpty() {
+
+        for (Deque<HamlibCommand<?>> commands : outbox.values()) {
+            if (!commands.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Fails all the commands waiting to be written
+     *
+     * @param cause failure cause
+     */
+    private void failOutbox(IOException cause) {
+
+        for (Deque<HamlibCommand<?>> commands : outbox.values()) {
+            fail(commands, cause);
+            commands.clear();
+        }
+
+        pendingReads.clear();
+
+    }
+
+    /**
+     * Starts a non-blocking connection attempt, unless we're still waiting
+     * for the backoff period to expire
+     *
+     * @return true if the connection is established or being established
+     */
+    private boolean connect() {
+
+        long now = System.currentTimeMillis();
+
+        if (now < nextConnectAttempt) {
+            log.debug("Not connecting to {}, next attempt in {} ms.", name, nextConnectAttempt - now);
+            return false;
+        }
+
+        try {
+
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            key = channel.register(eventLoop.selector(), 0, this);
+
+            if (channel.connect(new InetSocketAddress(host, port))) {
+                connected();
+            } else {
+                state = State.CONNECTING;
+                connectStarted = System.nanoTime();
+                key.interestOps(SelectionKey.OP_CONNECT);
+            }
+
+        } catch (IOException e) {
+            connectFailed(e);
+            return false;
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Completes a pending connection attempt
+     */
+    private void finishConnect() {
+
+        try {
+            channel.finishConnect();
+        } catch (IOException e) {
+            connectFailed(e);
+            failOutbox(new IOException(name + " is not available", e));
+            return;
+        }
+
+        connected();
+
+    }
+
+    /**
+     * Marks the connection as established and sends the waiting commands
+     */
+    private void connected() {
+
+        log.info("Connected to {} ({}:{}).", name, host, port);
+
+        state = State.CONNECTED;
+        lastActivity = System.currentTimeMillis();
+        nextConnectAttempt = 0;
+        backoff = INITIAL_BACKOFF;
+        key.interestOps(SelectionKey.OP_READ);
+
+        flushOutbox();
+
+    }
+
+    /**
+     * Handles a failed connection attempt: schedules the next one with backoff
+     *
+     * @param e connection error
+     */
+    private void connectFailed(IOException e) {
+        log.error("Error connecting to {} ({}:{}): {}; retrying in {} ms.", name, host, port, e.getMessage(), backoff);
+        closeChannel();
+        nextConnectAttempt = System.currentTimeMillis() + backoff;
+        backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        circuitFailure();
+    }
+
+    /**
+     * Handles a broken connection: re-sends the retriable commands over
+     * a new connection and fails the others
+     *
+     * @param e connection error
+     */
+    private void connectionFailed(IOException e) {
+
+        log.warn("Error communicating with {}: {}", name, e.getMessage());
+        closeChannel();
+
+        List<HamlibCommand<?>> resend = new ArrayList<>();
+
+        for (HamlibCommand<?> command : inflight) {
+            if (command.isDone()) {
+                forget(command);
+            } else if (command.retry()) {
+                resend.add(command);
+            } else {
+                forget(command);
+                command.fail(e);
+            }
+        }
+
+        inflight.clear();
+
+        for (int i = resend.size() - 1; i >= 0; i--) {
+            HamlibCommand<?> command = resend.get(i);
+            outbox.get(command.getPriority()).addFirst(command);
+        }
+
+        if (!isOutboxEmpty() && !connect()) {
+            failOutbox(new IOException(name + " is not available", e));
+        }
+
+    }
+
+    /**
+     * Moves the waiting commands to the write queue, highest priority first,
+     * up to the in-flight limit, and writes them in a single flush
+     */
+    private void flushOutbox() {
+
+        HamlibCommand<?> command;
+
+        long now = System.nanoTime();
+
+        while (inflight.size() < MAX_INFLIGHT && (command = pollOutbox()) != null) {
+            writeQueue.add(command.encode());
+            inflight.add(command);
+            command.sent(now);
+        }
+
+        try {
+            write();
+        } catch (IOException e) {
+            connectionFailed(e);
+        }
+
+    }
+
+    /**
+     * Writes as much of the write queue as the socket accepts, with a single gathering write
+     *
+     * @throws IOException on write error
+     */
+    private void write() throws IOException {
+
+        if (!writeQueue.isEmpty()) {
+            channel.write(writeQueue.toArray(new ByteBuffer[0]));
+        }
+
+        while (!writeQueue.isEmpty() && !writeQueue.peek().hasRemaining()) {
+            writeQueue.poll();
+        }
+
+        if (writeQueue.isEmpty()) {
+            key.interestOps(SelectionKey.OP_READ);
+        } else {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+    }
+
+    /**
+     * Reads available data, completes a command for every complete response
+     * line and sends the commands waiting for room in flight
+     *
+     * @throws IOException on read error, or if the daemon closed the connection
+     */
+    private void read() throws IOException {
+
+        if (!readBuffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            readBuffer.flip();
+            larger.put(readBuffer);
+            readBuffer = larger;
+        }
+
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("connection closed by peer");
+        }
+
+        readBuffer.flip();
+
+        int lineStart = readBuffer.position();
+
+        for (int i = lineStart; i < readBuffer.limit(); i++) {
+            if (readBuffer.get(i) == '\n') {
+                int lineEnd = i > lineStart && readBuffer.get(i - 1) == '\r' ? i - 1 : i;
+                responseReceived(lineStart, lineEnd);
+                lineStart = i + 1;
+            }
+        }
+
+        readBuffer.position(lineStart);
+        readBuffer.compact();
+
+        // responses made room in flight for the waiting commands
+        if (!isOutboxEmpty()) {
+            flushOutbox();
+        }
+
+    }
+
+    /**
+     * Completes the oldest in-flight command with the response line
+     *
+     * @param start index of the first character of the line
+     * @param end   index one past the last character of the line
+     */
+    private void responseReceived(int start, int end) {
+
+        lastActivity = System.currentTimeMillis();
+        HamlibCommand<?> command = inflight.poll();
+
+        if (command == null) {
+            log.warn("Unexpected response from {}: {}", name, HamlibResponseDecoder.TEXT.decode(readBuffer, start, end));
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        forget(command);
+
+        if (command.getSentTime() != 0) {
+            latencyTimer(command.getType()).record(now - command.getSentTime(), TimeUnit.NANOSECONDS);
+        }
+
+        if (command.expire(now)) {
+            timedOut(command);
+        } else if (!command.getFuture().isDone()) {
+            circuitBreaker.success();
+        }
+
+        command.complete(readBuffer, start, end, now);
+
+    }
+
+    /**
+     * Counts a command that timed out waiting for its response as a daemon failure
+     *
+     * @param command command
+     */
+    private void timedOut(HamlibCommand<?> command) {
+        log.warn("{} command {} timed out.", name, command.getType());
+        timeoutCounter(command.getType()).increment();
+        circuitFailure();
+    }
+
+    /**
+     * Records a daemon failure with the circuit breaker
+     */
+    private void circuitFailure() {
+        if (circuitBreaker.failure(System.currentTimeMillis())) {
+            log.error("{} is not responding; failing commands for {} ms.", name, CIRCUIT_OPEN_INTERVAL);
+        }
+    }
+
+    /**
+     * Command latency timer
+     *
+     * @param type command type
+     * @return timer
+     */
+    private Timer latencyTimer(String type) {
+        return latencyTimers.computeIfAbsent(type, t -> Timer.builder("sancho.hamlib.command.latency")
+                .description("Time from writing a command to its response")
+                .tag("daemon", name)
+                .tag("command", t)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Command timeout counter
+     *
+     * @param type command type
+     * @return counter
+     */
+    private Counter timeoutCounter(String type) {
+        return timeoutCounters.computeIfAbsent(type, t -> Counter.builder("sancho.hamlib.command.timeouts")
+                .description("Commands that got no response within their latency budget")
+                .tag("daemon", name)
+                .tag("command", t)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Stops coalescing status reads into a command that's about to complete
+     *
+     * @param command command
+     */
+    private void forget(HamlibCommand<?> command) {
+        if (command.getPriority() == HamlibCommand.Priority.STATUS) {
+            pendingReads.remove(command.getMessage(), command);
+        }
+    }
+
+    /**
+     * Closes the socket channel
+     */
+    private void closeChannel() {
+
+        state = State.DISCONNECTED;
+        writeQueue.clear();
+        readBuffer.clear();
+
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error("Error closing socket: {}", e.getMessage());
+            }
+            channel = null;
+        }
+
+    }
+
+    /**
+     * Completes the commands exceptionally
+     *
+     * @param commands commands to fail
+     * @param cause    failure cause
+     */
+    private static void fail(Iterable<HamlibCommand<?>> commands, IOException cause) {
+        for (HamlibCommand<?> command : commands) {
+            command.fail(cause);
+        }
+    }
+
+    /**
+     * Connection states
+     */
+    private enum State {
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED
+    }
+
+}
@@ -0,0 +1,246 @@
+package com.ultimalabs.sancho.rotctldclient.connection;
+
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selector-based event loop for Hamlib connections
+ * <p>
+ * A single thread drives any number of rotctld/rigctld connections. Callers
+ * never touch the sockets directly: they hand tasks over to the loop, which
+ * does all the connecting, writing and reading, and completes the command
+ * futures as responses arrive.
+ */
+@Slf4j
+@Component
+public class HamlibEventLoop {
+
+    /**
+     * Registry for the connection meters
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Counts the loop wakeups
+     */
+    private final WakeupMeter wakeupMeter;
+
+    /**
+     * Tasks submitted from other threads, executed on the loop thread
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Connections opened through this loop
+     */
+    private final List<HamlibConnection> connections = new CopyOnWriteArrayList<>();
+
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructor
+     *
+     * @param meterRegistry registry for the connection meters
+     * @param wakeupMeter   counts the loop wakeups
+     */
+    public HamlibEventLoop(MeterRegistry meterRegistry, WakeupMeter wakeupMeter) {
+        this.meterRegistry = meterRegistry;
+        this.wakeupMeter = wakeupMeter;
+    }
+
+    /**
+     * Creates a new connection driven by this event loop
+     * <p>
+     * The connection is opened lazily, when the first command is sent.
+     *
+     * @param name connection name, used for logging
+     * @param host daemon host address; use empty string if the daemon is not used
+     * @param port daemon port
+     * @return new connection
+     */
+    public synchronized HamlibConnection open(String name, String host, int port) {
+        start();
+        HamlibConnection connection = new HamlibConnection(this, name, host, port);
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Stops the loop and closes all connections
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        selector.wakeup();
+
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Executes a task on the loop thread
+     *
+     * @param task task to execute
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Whether the current thread is the loop thread
+     *
+     * @return true if called from the loop thread
+     */
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Registry for the connection meters
+     *
+     * @return meter registry
+     */
+    MeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    /**
+     * Selector used for all connections of this loop
+     *
+     * @return selector
+     */
+    Selector selector() {
+        return selector;
+    }
+
+    /**
+     * Starts the loop thread, unless it's already running
+     */
+    private void start() {
+
+        if (running) {
+            return;
+        }
+
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open selector", e);
+        }
+
+        running = true;
+        thread = new Thread(this::run, "HamlibEventLoop");
+        thread.setDaemon(true);
+        thread.start();
+
+        log.info("Started Hamlib event loop.");
+
+    }
+
+    /**
+     * Loop body: waits for I/O readiness or submitted tasks, dispatches them,
+     * and checks the command deadlines
+     * <p>
+     * The loop only wakes up for I/O, for submitted tasks, and when the
+     * nearest deadline is due. With no commands in flight, it sleeps until
+     * the next command is submitted.
+     */
+    private void run() {
+
+        long timeout = 0;
+
+        while (running) {
+
+            try {
+                selector.select(timeout);
+            } catch (IOException e) {
+                log.error("Selector error: {}", e.getMessage());
+                break;
+            }
+
+            wakeupMeter.record("hamlib");
+
+            runTasks();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                ((HamlibConnection) key.attachment()).handle(key);
+            }
+
+            long now = System.nanoTime();
+            long nextDeadline = Long.MAX_VALUE;
+
+            for (HamlibConnection connection : connections) {
+                connection.checkDeadlines(now);
+                nextDeadline = Math.min(nextDeadline, connection.timeToNextDeadline(now));
+            }
+
+            // select(0) waits without a timeout
+            timeout = nextDeadline == Long.MAX_VALUE ? 0
+                    : Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextDeadline + 999_999));
+
+        }
+
+        runTasks();
+
+        for (HamlibConnection connection : connections) {
+            connection.disconnect(new IOException("Hamlib event loop stopped"));
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.error("Error closing selector: {}", e.getMessage());
+        }
+
+        log.info("Stopped Hamlib event loop.");
+
+    }
+
+    /**
+     * Runs all pending tasks
+     */
+    private void runTasks() {
+
+        Runnable task;
+
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Error in Hamlib event loop task", e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.ultimalabs.sancho.rotctldclient.connection;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes a rigctld/rotctld response line into a result
+ * <p>
+ * Decoders run on the event loop thread, directly on the read buffer, so
+ * typed results can be extracted without creating intermediate Strings.
+ * The line is given by absolute indices; decoders must not change the
+ * buffer position or limit, nor keep a reference to the buffer.
+ *
+ * @param <T> result type
+ */
+@FunctionalInterface
+public interface HamlibResponseDecoder<T> {
+
+    /**
+     * Decodes the response line as plain text
+     */
+    HamlibResponseDecoder<String> TEXT = (buf, start, end) -> {
+
+        byte[] line = new byte[end - start];
+
+        for (int i = 0; i < line.length; i++) {
+            line[i] = buf.get(start + i);
+        }
+
+        return new String(line, StandardCharsets.US_ASCII);
+
+    };
+
+    /**
+     * Decodes a response line
+     *
+     * @param buf   buffer holding the response
+     * @param start index of the first character of the line
+     * @param end   index one past the last character of the line, line terminator excluded
+     * @return decoded result
+     */
+    T decode(ByteBuffer buf, int start, int end);
+
+}
@@ -0,0 +1,33 @@
+package com.ultimalabs.sancho.rotctldclient.model;
+
+import lombok.Data;
+
+/**
+ * Snapshot of the rotator and radio state
+ * <p>
+ * Immutable; a new snapshot replaces the old one on every poll.
+ */
+@Data
+public class DeviceState {
+
+    /**
+     * Snapshot used before the first poll
+     */
+    public static final DeviceState EMPTY = new DeviceState(null, null, 0);
+
+    /**
+     * Rotator position; null if unknown
+     */
+    private final AzimuthElevation rotatorPosition;
+
+    /**
+     * Radio parameters; null if unknown or radio control is disabled
+     */
+    private final RadioParams radioParams;
+
+    /**
+     * Timestamp (epoch, milliseconds) of the poll; zero before the first poll
+     */
+    private final long timestamp;
+
+}
@@ -0,0 +1,189 @@
+package com.ultimalabs.sancho.rotctldclient.model;
+
+import lombok.Getter;
+
+/**
+ * Precomputed Doppler-corrected radio frequencies for a pass
+ * <p>
+ * Frequencies are stored in primitive arrays, evenly spaced in time, and
+ * looked up by index with linear interpolation, like {@link Trajectory}.
+ * The downlink frequency is what the radio should listen on to receive the
+ * satellite's nominal downlink; the uplink frequency is what it should
+ * transmit on for the satellite to receive its nominal uplink.
+ */
+public class DopplerSchedule {
+
+    /**
+     * Speed of light, in meters per second
+     */
+    private static final double SPEED_OF_LIGHT = 299_792_458;
+
+    /**
+     * Satellite name
+     */
+    @Getter
+    private final String satName;
+
+    /**
+     * Timestamp (epoch, milliseconds) of the first entry
+     */
+    @Getter
+    private final long startMillis;
+
+    /**
+     * Time between two entries, in milliseconds
+     */
+    @Getter
+    private final long stepMillis;
+
+    /**
+     * Doppler-corrected downlink frequencies, in Hz
+     */
+    private final double[] downlink;
+
+    /**
+     * Doppler-corrected uplink frequencies, in Hz; null if there's no uplink
+     */
+    private final double[] uplink;
+
+    /**
+     * Constructor
+     *
+     * @param satName     satellite name
+     * @param startMillis timestamp (epoch, milliseconds) of the first entry
+     * @param stepMillis  time between two entries, in milliseconds
+     * @param downlink    Doppler-corrected downlink frequencies, in Hz
+     * @param uplink      Doppler-corrected uplink frequencies, in Hz; null if there's no uplink
+     */
+    public DopplerSchedule(String satName, long startMillis, long stepMillis, double[] downlink, double[] uplink) {
+        this.satName = satName;
+        this.startMillis = startMillis;
+        this.stepMillis = stepMillis;
+        this.downlink = downlink;
+        this.uplink = uplink;
+    }
+
+    /**
+     * Builds a schedule from satellite range samples
+     * <p>
+     * The range rate is estimated from the ranges with finite differences,
+     * and the frequencies follow from it: f * (1 - v / c) for the downlink,
+     * f / (1 - v / c) for the uplink.
+     *
+     * @param satName           satellite name
+     * @param timestamps        sample timestamps (epoch, milliseconds), ascending
+     * @param ranges            satellite ranges, in meters
+     * @param stepMillis        schedule step, in milliseconds
+     * @param downlinkFrequency nominal downlink frequency, in Hz
+     * @param uplinkFrequency   nominal uplink frequency, in Hz; zero if there's no uplink
+     * @return schedule
+     */
+    public static DopplerSchedule fromRanges(String satName, long[] timestamps, double[] ranges, long stepMillis,
+                                             double downlinkFrequency, double uplinkFrequency) {
+
+        int n = timestamps.length;
+        double[] rangeRates = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            int from = Math.max(0, i - 1);
+            int to = Math.min(n - 1, i + 1);
+            long dt = timestamps[to] - timestamps[from];
+            rangeRates[i] = dt == 0 ? 0 : (ranges[to] - ranges[from]) * 1000 / dt;
+        }
+
+        long start = timestamps[0];
+        int size = (int) ((timestamps[n - 1] - start + stepMillis - 1) / stepMillis) + 1;
+        double[] downlink = new double[size];
+        double[] uplink = uplinkFrequency > 0 ? new double[size] : null;
+        int source = 0;
+
+        for (int i = 0; i < size; i++) {
+
+            long t = start + i * stepMillis;
+
+            while (source < n - 2 && timestamps[source + 1] <= t) {
+                source++;
+            }
+
+            double rangeRate = rangeRates[source];
+
+            if (n > 1) {
+                long h = timestamps[source + 1] - timestamps[source];
+                double f = h == 0 ? 0 : Math.min(1, (double) (t - timestamps[source]) / h);
+                rangeRate += (rangeRates[source + 1] - rangeRate) * f;
+            }
+
+            double factor = 1 - rangeRate / SPEED_OF_LIGHT;
+
+            downlink[i] = downlinkFrequency * factor;
+
+            if (uplink != null) {
+                uplink[i] = uplinkFrequency / factor;
+            }
+
+        }
+
+        return new DopplerSchedule(satName, start, stepMillis, downlink, uplink);
+
+    }
+
+    /**
+     * Timestamp (epoch, milliseconds) of the last entry
+     *
+     * @return timestamp of the last entry
+     */
+    public long getEndMillis() {
+        return startMillis + (downlink.length - 1) * stepMillis;
+    }
+
+    /**
+     * Whether there's an uplink
+     *
+     * @return true if uplink frequencies are scheduled
+     */
+    public boolean hasUplink() {
+        return uplink != null;
+    }
+
+    /**
+     * Doppler-corrected downlink frequency
+     *
+     * @param t timestamp (epoch, milliseconds), clamped to the schedule
+     * @return frequency, in Hz
+     */
+    public double downlinkAt(long t) {
+        return interpolate(downlink, t);
+    }
+
+    /**
+     * Doppler-corrected uplink frequency
+     *
+     * @param t timestamp (epoch, milliseconds), clamped to the schedule
+     * @return frequency, in Hz, or NaN if there's no uplink
+     */
+    public double uplinkAt(long t) {
+        return uplink == null ? Double.NaN : interpolate(uplink, t);
+    }
+
+    /**
+     * Linearly interpolates an array at a timestamp
+     *
+     * @param values values
+     * @param t      timestamp (epoch, milliseconds)
+     * @return interpolated value
+     */
+    private double interpolate(double[] values, long t) {
+
+        long offset = Math.max(0, t - startMillis);
+        int i = (int) Math.min(values.length - 1, offset / stepMillis);
+
+        if (i == values.length - 1) {
+            return values[i];
+        }
+
+        double f = (double) (offset - i * stepMillis) / stepMillis;
+        return values[i] + (values[i + 1] - values[i]) * f;
+
+    }
+
+}
@@ -3,7 +3,6 @@ package com.ultimalabs.sancho.rotctldclient.model;
 import lombok.Data;
 
 import java.time.Instant;
-import java.util.Map;
 
 /**
  * Stores pass event data used for tracking
@@ -42,29 +41,31 @@ public class TrackingData {
     private final int maxElevation;
 
     /**
-     * Map of maximum/elevation entries
+     * Azimuth/elevation trajectory
      */
-    private final Map<Long, AzimuthElevation> azimuthElevationMap;
+    private final Trajectory trajectory;
 
     /**
      * Returns azimuth/elevation at the current timestamp
      * <p>
-     * Timestamp is calculated as Unix epoch in seconds.
+     * Timestamp is calculated as Unix epoch in milliseconds.
      *
      * @return azimuth/elevation
      */
     public AzimuthElevation getCurrentAzimuthElevation() {
-        return getAzimuthElevation(Instant.now().toEpochMilli() / 1000);
+        return getAzimuthElevation(Instant.now().toEpochMilli());
     }
 
     /**
      * Returns azimuth/elevation at a given timestamp
+     * <p>
+     * Positions between trajectory samples are interpolated.
      *
-     * @param timeStamp timestamp, in seconds
+     * @param timeStamp timestamp, in milliseconds
      * @return azimuth/elevation or null if no data exists for the given timestamp
      */
     public AzimuthElevation getAzimuthElevation(long timeStamp) {
-        return azimuthElevationMap.get(timeStamp);
+        return trajectory.getAzimuthElevation(timeStamp);
     }
 
 }
@@ -0,0 +1,76 @@
+package com.ultimalabs.sancho.rotctldclient.model;
+
+import lombok.Data;
+
+/**
+ * Summary of how well the rotator followed a pass
+ * <p>
+ * Pointing error is the distance between the actual rotator position and the
+ * satellite; command error is the distance between the actual and the
+ * commanded rotator position. Errors are in degrees, NaN if there were no
+ * position readings.
+ */
+@Data
+public class TrackingReport {
+
+    /**
+     * Satellite name
+     */
+    private final String satName;
+
+    /**
+     * Timestamp (epoch, seconds) of tracking start
+     */
+    private final long trackingStart;
+
+    /**
+     * Timestamp (epoch, seconds) of tracking end
+     */
+    private final long trackingEnd;
+
+    /**
+     * Number of "set position" commands sent
+     */
+    private final long commands;
+
+    /**
+     * Number of forced re-sends after the rotator failed to converge
+     */
+    private final long recoveries;
+
+    /**
+     * Number of tracking ticks skipped after stalls of the tracker itself
+     */
+    private final long skippedTicks;
+
+    /**
+     * Number of rotator position readings
+     */
+    private final long positionReadings;
+
+    /**
+     * Mean pointing error
+     */
+    private final double meanPointingError;
+
+    /**
+     * Root mean square pointing error
+     */
+    private final double rmsPointingError;
+
+    /**
+     * Maximum pointing error
+     */
+    private final double maxPointingError;
+
+    /**
+     * Mean command error
+     */
+    private final double meanCommandError;
+
+    /**
+     * Maximum command error
+     */
+    private final double maxCommandError;
+
+}
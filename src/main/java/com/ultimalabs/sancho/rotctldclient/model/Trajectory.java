@@ -0,0 +1,461 @@
+package com.ultimalabs.sancho.rotctldclient.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Array-backed satellite trajectory
+ * <p>
+ * Azimuth/elevation samples are stored in primitive arrays, evenly spaced in
+ * time, so the sample for a timestamp is found by index: (t - start) / step.
+ * Lookups at arbitrary millisecond timestamps interpolate between the two
+ * neighbouring samples, either linearly or with a cubic Hermite spline using
+ * the sample velocities. Lookups are O(1) and allocation-free.
+ * <p>
+ * Azimuth is stored unwrapped (continuous across 0/360) so interpolation never
+ * swings the wrong way round; returned azimuths are normalized again.
+ */
+public class Trajectory {
+
+    /**
+     * Interpolation between samples
+     */
+    public enum Interpolation {
+
+        /**
+         * Straight line between the two neighbouring samples
+         */
+        LINEAR,
+
+        /**
+         * Cubic Hermite spline, using the sample velocities as tangents
+         */
+        HERMITE
+
+    }
+
+    /**
+     * Timestamp (epoch, milliseconds) of the first sample
+     */
+    @Getter
+    private final long startMillis;
+
+    /**
+     * Time between two samples, in milliseconds
+     */
+    @Getter
+    private final long stepMillis;
+
+    /**
+     * Interpolation used for lookups
+     */
+    @Getter
+    private final Interpolation interpolation;
+
+    /**
+     * Unwrapped azimuth samples, in degrees
+     */
+    private final double[] azimuth;
+
+    /**
+     * Elevation samples, in degrees
+     */
+    private final double[] elevation;
+
+    /**
+     * Azimuth velocity at each sample, in degrees per step
+     */
+    private final double[] azimuthVelocity;
+
+    /**
+     * Elevation velocity at each sample, in degrees per step
+     */
+    private final double[] elevationVelocity;
+
+    /**
+     * Constructor
+     *
+     * @param startMillis   timestamp (epoch, milliseconds) of the first sample
+     * @param stepMillis    time between two samples, in milliseconds
+     * @param azimuth       azimuth samples, in degrees; may be wrapped
+     * @param elevation     elevation samples, in degrees
+     * @param interpolation interpolation used for lookups
+     */
+    public Trajectory(long startMillis, long stepMillis, double[] azimuth, double[] elevation,
+                      Interpolation interpolation) {
+
+        if (azimuth.length == 0 || azimuth.length != elevation.length) {
+            throw new IllegalArgumentException("Azimuth and elevation arrays must be non-empty and of equal length");
+        }
+
+        if (stepMillis <= 0) {
+            throw new IllegalArgumentException("Step must be positive");
+        }
+
+        this.startMillis = startMillis;
+        this.stepMillis = stepMillis;
+        this.interpolation = interpolation;
+        this.azimuth = unwrap(azimuth);
+        this.elevation = elevation.clone();
+        this.azimuthVelocity = velocities(this.azimuth);
+        this.elevationVelocity = velocities(this.elevation);
+
+    }
+
+    /**
+     * Builds an evenly spaced trajectory from samples at arbitrary timestamps
+     * <p>
+     * The samples are interpolated onto the grid with the given interpolation,
+     * so a coarse trajectory can be densified onto a fine grid. The grid
+     * covers the last sample; a trailing partial step is extrapolated linearly.
+     *
+     * @param timestamps    sample timestamps (epoch, milliseconds), ascending
+     * @param azimuth       azimuth samples, in degrees; may be wrapped
+     * @param elevation     elevation samples, in degrees
+     * @param stepMillis    grid step, in milliseconds
+     * @param interpolation interpolation used for resampling and lookups
+     * @return trajectory
+     */
+    public static Trajectory resample(long[] timestamps, double[] azimuth, double[] elevation, long stepMillis,
+                                      Interpolation interpolation) {
+
+        long start = timestamps[0];
+        long span = timestamps[timestamps.length - 1] - start;
+        int size = (int) ((span + stepMillis - 1) / stepMillis) + 1;
+        double[] gridAzimuth = new double[size];
+        double[] gridElevation = new double[size];
+
+        if (timestamps.length == 1) {
+            Arrays.fill(gridAzimuth, azimuth[0]);
+            Arrays.fill(gridElevation, elevation[0]);
+            return new Trajectory(start, stepMillis, gridAzimuth, gridElevation, interpolation);
+        }
+
+        double[] unwrappedAzimuth = unwrap(azimuth);
+        double[] azimuthSlope = slopes(timestamps, unwrappedAzimuth);
+        double[] elevationSlope = slopes(timestamps, elevation);
+        int source = 0;
+
+        for (int i = 0; i < size; i++) {
+
+            long t = start + i * stepMillis;
+
+            while (source < timestamps.length - 2 && timestamps[source + 1] <= t) {
+                source++;
+            }
+
+            long h = timestamps[source + 1] - timestamps[source];
+            double f = h == 0 ? 0 : (double) (t - timestamps[source]) / h;
+
+            if (interpolation == Interpolation.LINEAR || f > 1) {
+                gridAzimuth[i] = lerp(unwrappedAzimuth[source], unwrappedAzimuth[source + 1], f);
+                gridElevation[i] = lerp(elevation[source], elevation[source + 1], f);
+            } else {
+                gridAzimuth[i] = hermite(unwrappedAzimuth[source], azimuthSlope[source] * h,
+                        unwrappedAzimuth[source + 1], azimuthSlope[source + 1] * h, f);
+                gridElevation[i] = hermite(elevation[source], elevationSlope[source] * h,
+                        elevation[source + 1], elevationSlope[source + 1] * h, f);
+            }
+
+        }
+
+        return new Trajectory(start, stepMillis, gridAzimuth, gridElevation, interpolation);
+
+    }
+
+    /**
+     * Number of samples
+     *
+     * @return number of samples
+     */
+    public int size() {
+        return azimuth.length;
+    }
+
+    /**
+     * Timestamp (epoch, milliseconds) of the last sample
+     *
+     * @return timestamp of the last sample
+     */
+    public long getEndMillis() {
+        return startMillis + (azimuth.length - 1) * stepMillis;
+    }
+
+    /**
+     * Whether the timestamp is covered by the trajectory
+     *
+     * @param t timestamp (epoch, milliseconds)
+     * @return true if there's data for the timestamp
+     */
+    public boolean contains(long t) {
+        return t >= startMillis && t <= getEndMillis();
+    }
+
+    /**
+     * Interpolated azimuth
+     *
+     * @param t timestamp (epoch, milliseconds); must be covered by the trajectory
+     * @return azimuth, in degrees, normalized to [0, 360)
+     */
+    public double azimuthAt(long t) {
+        double az = interpolate(azimuth, azimuthVelocity, t) % 360;
+        return az < 0 ? az + 360 : az;
+    }
+
+    /**
+     * Interpolated elevation
+     *
+     * @param t timestamp (epoch, milliseconds); must be covered by the trajectory
+     * @return elevation, in degrees
+     */
+    public double elevationAt(long t) {
+        return interpolate(elevation, elevationVelocity, t);
+    }
+
+    /**
+     * Azimuth angular velocity
+     *
+     * @param t timestamp (epoch, milliseconds); must be covered by the trajectory
+     * @return azimuth velocity, in degrees per second
+     */
+    public double azimuthRateAt(long t) {
+        return derivative(azimuth, azimuthVelocity, t) * 1000 / stepMillis;
+    }
+
+    /**
+     * Elevation angular velocity
+     *
+     * @param t timestamp (epoch, milliseconds); must be covered by the trajectory
+     * @return elevation velocity, in degrees per second
+     */
+    public double elevationRateAt(long t) {
+        return derivative(elevation, elevationVelocity, t) * 1000 / stepMillis;
+    }
+
+    /**
+     * Interpolated azimuth/elevation, rounded to whole degrees
+     *
+     * @param t timestamp (epoch, milliseconds)
+     * @return azimuth/elevation, or null if the timestamp is not covered by the trajectory
+     */
+    public AzimuthElevation getAzimuthElevation(long t) {
+
+        if (!contains(t)) {
+            return null;
+        }
+
+        return new AzimuthElevation(azimuthAt(t), elevationAt(t));
+
+    }
+
+    /**
+     * Interpolates a sample array at a timestamp
+     *
+     * @param samples    samples
+     * @param velocities sample velocities, in units per step
+     * @param t          timestamp (epoch, milliseconds)
+     * @return interpolated value
+     */
+    private double interpolate(double[] samples, double[] velocities, long t) {
+
+        if (interpolation == Interpolation.LINEAR) {
+            return interpolateLinear(samples, t);
+        }
+
+        int i = index(t);
+
+        if (i == samples.length - 1) {
+            return samples[i];
+        }
+
+        return hermite(samples[i], velocities[i], samples[i + 1], velocities[i + 1], fraction(t, i));
+
+    }
+
+    /**
+     * Derivative of the interpolating curve at a timestamp
+     *
+     * @param samples    samples
+     * @param velocities sample velocities, in units per step
+     * @param t          timestamp (epoch, milliseconds)
+     * @return derivative, in units per step
+     */
+    private double derivative(double[] samples, double[] velocities, long t) {
+
+        int i = index(t);
+
+        if (i == samples.length - 1) {
+            return velocities[i];
+        }
+
+        if (interpolation == Interpolation.LINEAR) {
+            return samples[i + 1] - samples[i];
+        }
+
+        double f = fraction(t, i);
+        double f2 = f * f;
+
+        return (6 * f2 - 6 * f) * samples[i]
+                + (3 * f2 - 4 * f + 1) * velocities[i]
+                + (-6 * f2 + 6 * f) * samples[i + 1]
+                + (3 * f2 - 2 * f) * velocities[i + 1];
+
+    }
+
+    /**
+     * Linearly interpolates a sample array at a timestamp
+     *
+     * @param samples samples
+     * @param t       timestamp (epoch, milliseconds)
+     * @return interpolated value
+     */
+    private double interpolateLinear(double[] samples, long t) {
+
+        int i = index(t);
+
+        if (i == samples.length - 1) {
+            return samples[i];
+        }
+
+        return lerp(samples[i], samples[i + 1], fraction(t, i));
+
+    }
+
+    /**
+     * Index of the sample at or before the timestamp, clamped to the array
+     *
+     * @param t timestamp (epoch, milliseconds)
+     * @return sample index
+     */
+    private int index(long t) {
+        long i = (t - startMillis) / stepMillis;
+        return (int) Math.max(0, Math.min(azimuth.length - 1, i));
+    }
+
+    /**
+     * Position of the timestamp between sample i and i + 1, in [0, 1]
+     *
+     * @param t timestamp (epoch, milliseconds)
+     * @param i sample index
+     * @return fraction of the step
+     */
+    private double fraction(long t, int i) {
+        double f = (double) (t - startMillis - i * stepMillis) / stepMillis;
+        return Math.max(0, Math.min(1, f));
+    }
+
+    private static double lerp(double a, double b, double f) {
+        return a + (b - a) * f;
+    }
+
+    /**
+     * Cubic Hermite interpolation on the unit interval
+     *
+     * @param p0 value at the start
+     * @param m0 tangent at the start, in units per interval
+     * @param p1 value at the end
+     * @param m1 tangent at the end, in units per interval
+     * @param f  position in the interval, in [0, 1]
+     * @return interpolated value
+     */
+    private static double hermite(double p0, double m0, double p1, double m1, double f) {
+
+        double f2 = f * f;
+        double f3 = f2 * f;
+
+        return (2 * f3 - 3 * f2 + 1) * p0
+                + (f3 - 2 * f2 + f) * m0
+                + (-2 * f3 + 3 * f2) * p1
+                + (f3 - f2) * m1;
+
+    }
+
+    /**
+     * Removes 360 degree jumps between consecutive azimuth samples
+     *
+     * @param azimuth azimuth samples
+     * @return continuous azimuth samples
+     */
+    private static double[] unwrap(double[] azimuth) {
+
+        double[] unwrapped = new double[azimuth.length];
+        double offset = 0;
+
+        unwrapped[0] = azimuth[0];
+
+        for (int i = 1; i < azimuth.length; i++) {
+
+            double delta = azimuth[i] - azimuth[i - 1];
+
+            if (delta > 180) {
+                offset -= 360;
+            } else if (delta < -180) {
+                offset += 360;
+            }
+
+            unwrapped[i] = azimuth[i] + offset;
+
+        }
+
+        return unwrapped;
+
+    }
+
+    /**
+     * Estimates the slope at each of a set of unevenly spaced samples with
+     * finite differences: central inside the array, one-sided at the ends
+     *
+     * @param timestamps sample timestamps, in milliseconds
+     * @param samples    samples
+     * @return slopes, in units per millisecond
+     */
+    private static double[] slopes(long[] timestamps, double[] samples) {
+
+        int n = samples.length;
+        double[] slopes = new double[n];
+
+        slopes[0] = slope(timestamps, samples, 0, 1);
+        slopes[n - 1] = slope(timestamps, samples, n - 2, n - 1);
+
+        for (int i = 1; i < n - 1; i++) {
+            slopes[i] = slope(timestamps, samples, i - 1, i + 1);
+        }
+
+        return slopes;
+
+    }
+
+    private static double slope(long[] timestamps, double[] samples, int from, int to) {
+        long dt = timestamps[to] - timestamps[from];
+        return dt == 0 ? 0 : (samples[to] - samples[from]) / dt;
+    }
+
+    /**
+     * Estimates the velocity at each sample with finite differences:
+     * central inside the array, one-sided at the ends
+     *
+     * @param samples samples
+     * @return velocities, in units per step
+     */
+    private static double[] velocities(double[] samples) {
+
+        int n = samples.length;
+        double[] velocities = new double[n];
+
+        if (n == 1) {
+            return velocities;
+        }
+
+        velocities[0] = samples[1] - samples[0];
+        velocities[n - 1] = samples[n - 1] - samples[n - 2];
+
+        for (int i = 1; i < n - 1; i++) {
+            velocities[i] = (samples[i + 1] - samples[i - 1]) / 2;
+        }
+
+        return velocities;
+
+    }
+
+}
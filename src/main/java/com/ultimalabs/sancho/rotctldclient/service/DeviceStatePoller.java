@@ -0,0 +1,131 @@
+package com.ultimalabs.sancho.rotctldclient.service;
+
+import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import com.ultimalabs.sancho.rotctldclient.model.DeviceState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Polls the rotator and radio state in the background
+ * <p>
+ * The status API serves the latest snapshot instead of querying rotctld and
+ * rigctld on every request, so the device load doesn't grow with the number
+ * of clients, and doesn't compete with tracking. Polling pauses while the
+ * station is idle, see {@link #setPaused(boolean)}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeviceStatePoller {
+
+    /**
+     * Config object
+     */
+    private final SanchoConfig config;
+
+    /**
+     * Rotctld/rigctld client service
+     */
+    private final HamlibClientService hamlibClientService;
+
+    /**
+     * Task scheduler
+     */
+    private final ThreadPoolTaskScheduler taskScheduler;
+
+    /**
+     * Counts the polls
+     */
+    private final WakeupMeter wakeupMeter;
+
+    /**
+     * Latest snapshot
+     */
+    private final AtomicReference<DeviceState> state = new AtomicReference<>(DeviceState.EMPTY);
+
+    /**
+     * Polling task; null if polling is disabled or paused
+     */
+    private ScheduledFuture<?> pollingTask;
+
+    /**
+     * Starts polling at the configured interval
+     */
+    @PostConstruct
+    private synchronized void start() {
+
+        long intervalMillis = Math.round(config.getStatusPollInterval() * 1000);
+
+        if (intervalMillis <= 0) {
+            log.info("Device state polling disabled.");
+            return;
+        }
+
+        pollingTask = taskScheduler.scheduleWithFixedDelay(this::poll, intervalMillis);
+
+    }
+
+    /**
+     * Stops polling on shutdown
+     */
+    @PreDestroy
+    private synchronized void stop() {
+
+        if (pollingTask != null) {
+            pollingTask.cancel(false);
+            pollingTask = null;
+        }
+
+    }
+
+    /**
+     * Pauses or resumes polling
+     * <p>
+     * While paused, the last snapshot is kept.
+     *
+     * @param paused true to pause polling
+     */
+    public synchronized void setPaused(boolean paused) {
+
+        if (paused) {
+            stop();
+        } else if (pollingTask == null) {
+            start();
+        }
+
+    }
+
+    /**
+     * Reads the rotator and radio state and publishes a new snapshot
+     */
+    void poll() {
+
+        wakeupMeter.record("status-poll");
+
+        try {
+            state.set(new DeviceState(hamlibClientService.getAzEl(), hamlibClientService.getRadioParams(),
+                    System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            log.error("Device state polling failed: {}", e.getMessage());
+        }
+
+    }
+
+    /**
+     * Get the latest snapshot
+     *
+     * @return latest device state
+     */
+    public DeviceState getState() {
+        return state.get();
+    }
+
+}
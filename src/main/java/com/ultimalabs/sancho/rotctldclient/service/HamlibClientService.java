@@ -1,54 +1,192 @@
 package com.ultimalabs.sancho.rotctldclient.service;
 
+import com.ultimalabs.sancho.common.config.AntennaChain;
+import com.ultimalabs.sancho.common.config.RadioConfig;
+import com.ultimalabs.sancho.common.config.RotatorConfig;
 import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.rotctldclient.connection.HamlibCommand;
+import com.ultimalabs.sancho.rotctldclient.connection.HamlibConnection;
+import com.ultimalabs.sancho.rotctldclient.connection.HamlibEventLoop;
+import com.ultimalabs.sancho.rotctldclient.connection.HamlibResponseDecoder;
 import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.model.DopplerSchedule;
 import com.ultimalabs.sancho.rotctldclient.model.RadioParams;
 import com.ultimalabs.sancho.rotctldclient.model.TrackingData;
+import com.ultimalabs.sancho.rotctldclient.model.TrackingReport;
+import com.ultimalabs.sancho.rotctldclient.tracking.FixedRateTicker;
+import com.ultimalabs.sancho.rotctldclient.tracking.LeadCompensator;
+import com.ultimalabs.sancho.rotctldclient.tracking.PointingFeedback;
+import com.ultimalabs.sancho.rotctldclient.tracking.RotatorCommandPolicy;
+import com.ultimalabs.sancho.rotctldclient.util.HamlibResponseParser;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.time.Instant;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Client service for rigctld/rotctld
+ * <p>
+ * Each antenna chain has its own rotctld and rigctld connections, and its
+ * own rotator lag estimate, so chains can track passes in parallel. Status
+ * calls go to the first chain.
  */
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class HamlibClientService {
 
+    /**
+     * Counts rotator command decisions, tagged by decision
+     */
+    private static final String ROTATOR_COMMANDS_METER = "sancho.rotator.commands";
+
+    /**
+     * Counts Doppler correction decisions, tagged by decision
+     */
+    private static final String DOPPLER_UPDATES_METER = "sancho.radio.doppler.updates";
+
+    /**
+     * Number of tracking reports kept
+     */
+    private static final int MAX_TRACKING_REPORTS = 20;
+
     private final SanchoConfig config;
-    private Socket clientSocketRigctl;
-    private PrintWriter outRigctl;
-    private BufferedReader inRigctl;
-    private Socket clientSocketRotctl;
-    private PrintWriter outRotctl;
-    private BufferedReader inRotctl;
+
+    /**
+     * Event loop driving the rotctld/rigctld connections
+     */
+    private final HamlibEventLoop eventLoop;
+
+    /**
+     * Meter registry
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Connections of each antenna chain, by chain name; in config order
+     */
+    private final Map<String, Chain> chains = new LinkedHashMap<>();
+
+    /**
+     * Reports of the most recent tracked passes, oldest first
+     */
+    private final Deque<TrackingReport> trackingReports = new ArrayDeque<>();
+
+    /**
+     * Lateness of tracking ticks
+     */
+    private Timer tickLatenessTimer;
+
+    /**
+     * Pointing error of rotator position readings during tracking
+     */
+    private DistributionSummary pointingErrorSummary;
+
+    /**
+     * Delay between a Doppler correction tick and the radio confirming the new frequency
+     */
+    private Timer tuningLagTimer;
+
+    /**
+     * Chain used for status calls
+     */
+    private Chain statusChain;
+
+    /**
+     * Sets up the (lazily connected) rotctld and rigctld connections of each antenna chain
+     */
+    @PostConstruct
+    private void initConnections() {
+        tickLatenessTimer = Timer.builder("sancho.tracking.tick.lateness")
+                .description("Delay between the scheduled and the actual tracking tick time")
+                .register(meterRegistry);
+        tuningLagTimer = Timer.builder("sancho.radio.tuning.lag")
+                .description("Delay between a Doppler correction tick and rigctld confirming the new frequency")
+                .register(meterRegistry);
+        pointingErrorSummary = DistributionSummary.builder("sancho.rotator.pointing.error")
+                .description("Distance between the actual rotator position and the satellite during tracking")
+                .baseUnit("degrees")
+                .register(meterRegistry);
+
+        List<AntennaChain> antennaChains = AntennaChain.of(config);
+
+        for (AntennaChain antennaChain : antennaChains) {
+
+            // keep the daemon names (and metric tags) of a single-chain station
+            String suffix = antennaChains.size() == 1 ? "" : "-" + antennaChain.getName();
+            Chain chain = new Chain(antennaChain.getName(),
+                    eventLoop.open("rotctld" + suffix, antennaChain.getRotctldHost(), antennaChain.getRotctldPort()),
+                    eventLoop.open("rigctld" + suffix, antennaChain.getRigctldHost(), antennaChain.getRigctldPort()));
+
+            Gauge.builder("sancho.rotator.roundtrip", chain.leadCompensator, LeadCompensator::getRoundTripMillis)
+                    .description("Smoothed rotctld set_pos round trip")
+                    .baseUnit("milliseconds")
+                    .tag("chain", chain.name)
+                    .register(meterRegistry);
+            Gauge.builder("sancho.rotator.slew.rate", chain.leadCompensator, LeadCompensator::getSlewRate)
+                    .description("Smoothed rotator slew rate, measured during tracking")
+                    .baseUnit("degrees/second")
+                    .tag("chain", chain.name)
+                    .register(meterRegistry);
+            Gauge.builder("sancho.rotator.lead", chain.leadCompensator, LeadCompensator::getLeadMillis)
+                    .description("Most recent rotator lead compensation")
+                    .baseUnit("milliseconds")
+                    .tag("chain", chain.name)
+                    .register(meterRegistry);
+
+            chains.put(chain.name, chain);
+
+        }
+
+        statusChain = chains.values().iterator().next();
+
+    }
+
+    /**
+     * Closes the connections on shutdown
+     */
+    @PreDestroy
+    private void closeConnections() {
+        for (Chain chain : chains.values()) {
+            chain.rotctlConnection.close();
+            chain.rigctlConnection.close();
+        }
+    }
 
     /**
      * Points the rotator in the specified direction
      *
-     * @param position parking azimuth/elevation position
+     * @param chainName antenna chain name
+     * @param position  parking azimuth/elevation position
      * @return true if successful
      */
-    public boolean parkRotator(AzimuthElevation position) {
+    public boolean parkRotator(String chainName, AzimuthElevation position) {
 
-        startConnection();
-        String returnMessage = sendMessage(",\\set_pos " + position.getAzimuth() + " " + position.getElevation(), SendWhere.ROTCTL);
-        stopConnection();
+        Integer returnCode = sendMessage(setPosCommand(position), HamlibClientService::decodeReturnCode,
+                HamlibCommand.Priority.CONTROL, chain(chainName).rotctlConnection);
 
-        if (isInvalidResponse(returnMessage)) {
-            log.error("Parking failed; rotctld failed executing setAzEl() command. Response: {}", returnMessage);
+        if (isInvalidResponse(returnCode)) {
+            log.error("Parking failed; rotctld failed executing setAzEl() command. Response: RPRT {}", returnCode);
             return false;
         }
 
-        log.info("Parked the rotator at {}, {}.", position.getAzimuth(), position.getElevation());
+        log.info("Parked the {} rotator at {}, {}.", chainName, position.getAzimuth(), position.getElevation());
         return true;
 
     }
@@ -56,262 +194,475 @@ public class HamlibClientService {
     /**
      * Tracks the satellite
      * <p>
-     * Sends a sequence of "set position" commands to the rotctld, with a
-     * short pause (sleepDuration) between them.
+     * Sends a sequence of "set position" commands to the rotctld, driven by a
+     * fixed-rate ticker aligned to rotator step boundaries. The position for
+     * each tick is interpolated from the trajectory, and the command policy
+     * decides whether the rotator needs to move: only when the predicted
+     * pointing error exceeds the beamwidth-derived tolerance, and no more
+     * often than the configured command rate. With lead compensation, the
+     * position is taken for now + the measured rotator lag (command round trip
+     * plus slew time). The thread sleeps between ticks.
+     * <p>
+     * Each "set position" command is pipelined with a "get position" command,
+     * and the position is also read at the feedback interval, so the actual
+     * rotator position is compared with the satellite and the commanded
+     * position during the whole pass. If the rotator stops converging on its
+     * target, the target is re-sent. Responses are handled asynchronously, so
+     * the tracker never waits for rotctld.
      *
+     * @param chainName    antenna chain name
      * @param trackingData tracking data
+     * @param rotator      tracking settings of the chain's rotator
      */
-    public void track(TrackingData trackingData) {
-
-        int sleepDuration = (int) (config.getRotator().getStepSize() * 1000);
+    public void track(String chainName, TrackingData trackingData, RotatorConfig rotator) {
+
+        Chain chain = chain(chainName);
+        LeadCompensator leadCompensator = chain.leadCompensator;
+        FixedRateTicker ticker = new FixedRateTicker(rotator.getStepSize(), tickLatenessTimer);
+        RotatorCommandPolicy policy = new RotatorCommandPolicy(rotator,
+                trackingData.getTrajectory(), trackingData.getRiseAzimuthElevation(),
+                rotator.isLeadCompensation() ? leadCompensator : null);
+        PointingFeedback feedback = new PointingFeedback(trackingData.getTrajectory());
+        long feedbackTicks = rotator.getFeedbackInterval() > 0
+                ? Math.max(1, Math.round(rotator.getFeedbackInterval() / rotator.getStepSize())) : 0;
+
+        log.info("Started tracking {} on {}. Pointing tolerance: {} deg, min command interval: {} ms.",
+                trackingData.getSatName(), chainName, policy.getTolerance(), policy.getMinIntervalMillis());
+
+        while (ticker.await(trackingData.getTrackingEnd() * 1000)) {
+
+            if (feedback.takeRecoveryRequest()) {
+                log.warn("Rotator not converging on {}, re-sending position.", policy.getCommanded());
+                policy.recover();
+            }
 
-        startConnection();
+            AzimuthElevation newAzEl = policy.next(ticker.getTickTime());
 
-        log.info("Started tracking {}.", trackingData.getSatName());
+            if (newAzEl != null) {
+                sendTrackingCommand(chain, newAzEl, feedback);
+            } else if (feedbackTicks > 0 && ticker.getTicks() % feedbackTicks == 0) {
+                readTrackingPosition(chain, policy.getCommanded(), feedback);
+            }
 
-        AzimuthElevation oldAzEl = trackingData.getRiseAzimuthElevation();
+        }
 
-        while ((Instant.now().toEpochMilli() / 1000) < trackingData.getTrackingEnd()) {
+        meterRegistry.counter(ROTATOR_COMMANDS_METER, "decision", "sent").increment(policy.getCommands());
+        meterRegistry.counter(ROTATOR_COMMANDS_METER, "decision", "within_tolerance").increment(policy.getWithinTolerance());
+        meterRegistry.counter(ROTATOR_COMMANDS_METER, "decision", "rate_limited").increment(policy.getRateLimited());
 
-            AzimuthElevation newAzEl = trackingData.getCurrentAzimuthElevation();
+        TrackingReport report = new TrackingReport(trackingData.getSatName(),
+                trackingData.getTrackingStart(), trackingData.getTrackingEnd(),
+                policy.getCommands(), feedback.getRecoveries(), ticker.getSkippedTicks(),
+                feedback.getSamples(), feedback.getMeanError(), feedback.getRmsError(), feedback.getMaxError(),
+                feedback.getMeanCommandError(), feedback.getMaxCommandError());
 
-            if (newAzEl == null || newAzEl.equals(oldAzEl)) {
-                if (newAzEl == null) {
-                    log.info("Az/el not found for current timestamp.");
-                }
-                continue;
+        synchronized (trackingReports) {
+            if (trackingReports.size() == MAX_TRACKING_REPORTS) {
+                trackingReports.removeFirst();
             }
+            trackingReports.addLast(report);
+        }
 
-            String returnMessage = sendMessage(",\\set_pos " + newAzEl.getAzimuth() + " " + newAzEl.getElevation(), SendWhere.ROTCTL);
+        log.info("Stopped tracking {}. Ticks: {}, skipped: {}, mean lateness: {} us, max lateness: {} us. " +
+                        "Commands: {}, within tolerance: {}, rate limited: {}, lead: {} ms.",
+                trackingData.getSatName(), ticker.getTicks(), ticker.getSkippedTicks(),
+                ticker.getMeanLatenessNanos() / 1000, ticker.getMaxLatenessNanos() / 1000,
+                policy.getCommands(), policy.getWithinTolerance(), policy.getRateLimited(),
+                leadCompensator.getLeadMillis());
+        log.info("Pointing error for {}: mean {} deg, RMS {} deg, max {} deg over {} readings; " +
+                        "max command error {} deg, recoveries: {}.",
+                trackingData.getSatName(), report.getMeanPointingError(), report.getRmsPointingError(),
+                report.getMaxPointingError(), report.getPositionReadings(), report.getMaxCommandError(),
+                report.getRecoveries());
 
-            if (isInvalidResponse(returnMessage)) {
-                log.error("Rotctld failed executing setAzEl() command. Response: {}", returnMessage);
-            }
+    }
+
+    /**
+     * Reports of the most recent tracked passes
+     *
+     * @return tracking reports, oldest first
+     */
+    public List<TrackingReport> getTrackingReports() {
+        synchronized (trackingReports) {
+            return new ArrayList<>(trackingReports);
+        }
+    }
+
+    /**
+     * Sends a tracking "set position" command, pipelined with a "get position" command
+     *
+     * @param chain    antenna chain
+     * @param newAzEl  position to command
+     * @param feedback pass feedback
+     */
+    private void sendTrackingCommand(Chain chain, AzimuthElevation newAzEl, PointingFeedback feedback) {
 
-            try {
-                Thread.sleep(sleepDuration);
-            } catch (InterruptedException e) {
-                log.error("Interrupted exception: {}", e.getMessage());
-                Thread.currentThread().interrupt();
+        HamlibCommand<Integer> setPos = new HamlibCommand<>(setPosCommand(newAzEl),
+                HamlibClientService::decodeReturnCode, HamlibCommand.Priority.TRACKING);
+        HamlibCommand<AzimuthElevation> getPos = new HamlibCommand<>(",\\get_pos",
+                HamlibClientService::decodeAzEl, HamlibCommand.Priority.TRACKING);
+
+        long sentNanos = System.nanoTime();
+
+        chain.rotctlConnection.pipeline(Arrays.asList(setPos, getPos));
+
+        setPos.getFuture().whenComplete((returnCode, e) -> {
+            if (isInvalidResponse(returnCode)) {
+                log.error("Rotctld failed executing setAzEl() command. Response: RPRT {}", returnCode);
+            } else {
+                chain.leadCompensator.recordRoundTrip(System.nanoTime() - sentNanos);
             }
+        });
 
-            oldAzEl = newAzEl;
+        getPos.getFuture().thenAccept(azEl -> {
+            positionReceived(chain, azEl, newAzEl, feedback);
+            log.debug("Commanded {}, rotator at {}.", newAzEl, azEl);
+        });
 
-        }
+    }
+
+    /**
+     * Reads the rotator position during tracking
+     *
+     * @param chain     antenna chain
+     * @param commanded position the rotator is commanded to
+     * @param feedback  pass feedback
+     */
+    private void readTrackingPosition(Chain chain, AzimuthElevation commanded, PointingFeedback feedback) {
+        chain.rotctlConnection.submit(",\\get_pos", HamlibClientService::decodeAzEl, HamlibCommand.Priority.TRACKING)
+                .thenAccept(azEl -> positionReceived(chain, azEl, commanded, feedback));
+    }
 
-        log.info("Stopped tracking {}.", trackingData.getSatName());
+    /**
+     * Handles a rotator position reading during tracking
+     *
+     * @param chain     antenna chain
+     * @param azEl      actual rotator position, or null if the reading failed
+     * @param commanded position the rotator is commanded to
+     * @param feedback  pass feedback
+     */
+    private void positionReceived(Chain chain, AzimuthElevation azEl, AzimuthElevation commanded,
+                                  PointingFeedback feedback) {
 
-        stopConnection();
+        chain.leadCompensator.recordPosition(azEl, commanded, System.nanoTime());
+
+        double error = feedback.record(azEl, commanded, System.currentTimeMillis());
+
+        if (!Double.isNaN(error)) {
+            pointingErrorSummary.record(error);
+        }
 
     }
 
     /**
-     * Get rotator azimuth & elevation
+     * Get rotator azimuth & elevation, of the first antenna chain
      *
      * @return azimuth & elevation
      */
     public AzimuthElevation getAzEl() {
 
-        startConnection();
-        String returnMessage = sendMessage(",\\get_pos", SendWhere.ROTCTL);
-        log.info("Got this back: {}", returnMessage);
-        stopConnection();
+        AzimuthElevation azEl = sendMessage(",\\get_pos", HamlibClientService::decodeAzEl,
+                HamlibCommand.Priority.STATUS, statusChain.rotctlConnection);
+        log.debug("Got this back: {}", azEl);
 
-        if (isInvalidResponse(returnMessage)) {
-            log.error("Rotctld failed executing getAzEl() command. Response: {}", returnMessage);
-            return null;
+        if (azEl == null) {
+            log.error("Rotctld failed executing getAzEl() command.");
         }
 
-        String[] parts = returnMessage.split(",");
+        return azEl;
+
+    }
 
-        return new AzimuthElevation(Double.parseDouble(parts[1].replace("Azimuth: ", "")),
-                Double.parseDouble(parts[2].replace("Elevation: ", "")));
+    /**
+     * Sends several commands to rotctld of the first antenna chain, in a single flush
+     *
+     * @param commands commands, in the extended protocol format
+     * @return per-command response futures, in the same order as commands
+     */
+    public List<CompletableFuture<String>> sendRotctldPipelined(List<String> commands) {
+        return statusChain.rotctlConnection.sendPipelined(commands);
+    }
 
+    /**
+     * Sends several commands to rigctld of the first antenna chain, in a single flush
+     *
+     * @param commands commands, in the extended protocol format
+     * @return per-command response futures, in the same order as commands
+     */
+    public List<CompletableFuture<String>> sendRigctldPipelined(List<String> commands) {
+        return statusChain.rigctlConnection.sendPipelined(commands);
     }
 
     /**
-     * Get the current radio parameters
+     * Get the current radio parameters, of the first antenna chain
      *
      * @return current radio parameters
      */
     public RadioParams getRadioParams() {
 
-        startConnection();
-        String returnMessage = sendMessage(",\\get_freq", SendWhere.RIGCTL);
-        log.info("Got this back: {}", returnMessage);
-        stopConnection();
-
-        if (returnMessage == null) {
+        if (!statusChain.rigctlConnection.isEnabled()) {
             return null;
         }
 
-        String[] parts = returnMessage.split(",");
+        RadioParams radioParams = sendMessage(",\\get_freq", HamlibClientService::decodeRadioParams,
+                HamlibCommand.Priority.STATUS, statusChain.rigctlConnection);
+        log.debug("Got this back: {}", radioParams);
 
-        if (isInvalidResponse(returnMessage)) {
-            log.error("Rigctld failed executing getRadioFrequency() command. Response: {}", returnMessage);
-            return null;
+        if (radioParams == null) {
+            log.error("Rigctld failed executing getRadioFrequency() command.");
         }
 
-        Double frequency = Double.parseDouble(parts[1].replace("Frequency: ", ""));
-
-        return new RadioParams(frequency);
+        return radioParams;
 
     }
 
     /**
-     * Check whether rigctld/rotctld returned a successful response
+     * Applies Doppler correction to the radio during a pass
+     * <p>
+     * Driven by its own fixed-rate ticker, alongside the rotator tracker.
+     * On each tick, the Doppler-corrected downlink (and uplink, on the split
+     * TX VFO) frequency is looked up in the precomputed schedule, and the
+     * radio is only retuned when a frequency moved by more than the
+     * threshold since the last update. Commands are pipelined and their
+     * responses handled asynchronously. Tuning lag is the time from the
+     * scheduled tick until rigctld confirms the new frequency.
      *
-     * @param message string returned from rigctld/rotctld
-     * @return whether response indicates a success
+     * @param chainName antenna chain name
+     * @param schedule  Doppler schedule
+     * @param radio     Doppler correction settings of the chain's radio
      */
-    private boolean isInvalidResponse(String message) {
-        if (message == null) {
-            return true;
+    public void tuneDoppler(String chainName, DopplerSchedule schedule, RadioConfig radio) {
+
+        HamlibConnection rigctlConnection = chain(chainName).rigctlConnection;
+
+        if (!rigctlConnection.isEnabled() || radio.getDopplerStepSize() <= 0) {
+            return;
         }
-        return !message.contains("RPRT 0");
-    }
 
-    /**
-     * Open a connection to rigctld/rotctld
-     */
-    private void startConnection() {
-        try {
+        FixedRateTicker ticker = new FixedRateTicker(radio.getDopplerStepSize(), null);
+        double threshold = radio.getDopplerThreshold();
+        double lastDownlink = Double.NaN;
+        double lastUplink = Double.NaN;
+        long updates = 0;
+        long withinThreshold = 0;
+
+        if (schedule.hasUplink()) {
+            rigctlConnection.submit(",\\set_split_vfo 1 VFOB", HamlibClientService::decodeReturnCode)
+                    .thenAccept(returnCode -> {
+                        if (isInvalidResponse(returnCode)) {
+                            log.error("Rigctld failed enabling split mode. Response: RPRT {}", returnCode);
+                        }
+                    });
+        }
 
-            if (!config.getRotator().getRotctldHost().equals("")) {
-                clientSocketRotctl = new Socket(config.getRotator().getRotctldHost(), config.getRotator().getRotctldPort());
-            } else {
-                clientSocketRotctl = null;
-            }
+        log.info("Started Doppler correction for {} on {}.", schedule.getSatName(), chainName);
 
-            if (!config.getRadio().getRigctldHost().equals("")) {
-                clientSocketRigctl = new Socket(config.getRadio().getRigctldHost(), config.getRadio().getRigctldPort());
-            } else {
-                clientSocketRigctl = null;
-            }
+        while (ticker.await(schedule.getEndMillis())) {
 
-        } catch (IOException e) {
-            log.error("Error connecting to host: {}", e.getMessage());
-            return;
-        }
-        try {
+            long tickTime = ticker.getTickTime();
+            double downlink = Math.rint(schedule.downlinkAt(tickTime));
+            double uplink = Math.rint(schedule.uplinkAt(tickTime));
 
-            if (clientSocketRotctl != null) {
-                outRotctl = new PrintWriter(clientSocketRotctl.getOutputStream(), true);
-            } else {
-                outRotctl = null;
+            if (!exceeds(downlink, lastDownlink, threshold) && !exceeds(uplink, lastUplink, threshold)) {
+                withinThreshold++;
+                continue;
             }
 
-            if (clientSocketRigctl != null) {
-                outRigctl = new PrintWriter(clientSocketRigctl.getOutputStream(), true);
-            } else {
-                outRigctl = null;
+            HamlibCommand<Integer> setFreq = new HamlibCommand<>(",\\set_freq " + (long) downlink,
+                    HamlibClientService::decodeReturnCode, HamlibCommand.Priority.TRACKING);
+            List<HamlibCommand<?>> commands = new ArrayList<>(2);
+            commands.add(setFreq);
+
+            if (schedule.hasUplink()) {
+                HamlibCommand<Integer> setSplitFreq = new HamlibCommand<>(",\\set_split_freq " + (long) uplink,
+                        HamlibClientService::decodeReturnCode, HamlibCommand.Priority.TRACKING);
+                commands.add(setSplitFreq);
+                setSplitFreq.getFuture().thenAccept(returnCode -> {
+                    if (isInvalidResponse(returnCode)) {
+                        log.error("Rigctld failed setting the uplink frequency. Response: RPRT {}", returnCode);
+                    }
+                });
             }
 
-        } catch (IOException e) {
-            log.error("Error getting output stream for host: {}", e.getMessage());
-            return;
-        }
-        try {
+            setFreq.getFuture().thenAccept(returnCode -> {
+                if (isInvalidResponse(returnCode)) {
+                    log.error("Rigctld failed setting the downlink frequency. Response: RPRT {}", returnCode);
+                } else {
+                    tuningLagTimer.record(System.currentTimeMillis() - tickTime, TimeUnit.MILLISECONDS);
+                }
+            });
 
-            if (clientSocketRotctl != null) {
-                inRotctl = new BufferedReader(new InputStreamReader(clientSocketRotctl.getInputStream()));
-            } else {
-                inRotctl = null;
-            }
+            rigctlConnection.pipeline(commands);
 
-            if (clientSocketRigctl != null) {
-                inRigctl = new BufferedReader(new InputStreamReader(clientSocketRigctl.getInputStream()));
-            } else {
-                inRigctl = null;
-            }
+            lastDownlink = downlink;
+            lastUplink = uplink;
+            updates++;
 
-        } catch (IOException e) {
-            log.error("Error getting input stream for host: {}", e.getMessage());
         }
+
+        meterRegistry.counter(DOPPLER_UPDATES_METER, "decision", "sent").increment(updates);
+        meterRegistry.counter(DOPPLER_UPDATES_METER, "decision", "within_threshold").increment(withinThreshold);
+
+        log.info("Stopped Doppler correction for {}. Updates: {}, within threshold: {}, skipped ticks: {}.",
+                schedule.getSatName(), updates, withinThreshold, ticker.getSkippedTicks());
+
     }
 
     /**
-     * Send a message over the socket
+     * Whether a frequency moved by more than the threshold
      *
-     * @param msg   message to be sent
-     * @param where where to - rigctl/rotclt
-     * @return return message from rigctld/rotctld
-     */
-    private String sendMessage(String msg, SendWhere where) {
-
-        PrintWriter out;
-        BufferedReader in;
-
-        if (where == SendWhere.RIGCTL) {
-            out = outRigctl;
-            in = inRigctl;
-        } else if (where == SendWhere.ROTCTL) {
-            out = outRotctl;
-            in = inRotctl;
-        } else {
-            out = null;
-            in = null;
+     * @param frequency     new frequency, in Hz; NaN if not used
+     * @param lastFrequency last commanded frequency, in Hz; NaN if none
+     * @param threshold     threshold, in Hz
+     * @return true if the frequency needs updating
+     */
+    private static boolean exceeds(double frequency, double lastFrequency, double threshold) {
+
+        if (Double.isNaN(frequency)) {
+            return false;
         }
 
-        if (out == null || in == null) {
+        return Double.isNaN(lastFrequency) || Math.abs(frequency - lastFrequency) > threshold;
+
+    }
+
+    /**
+     * Builds the extended set_pos command
+     *
+     * @param position azimuth/elevation position
+     * @return set_pos command
+     */
+    private static String setPosCommand(AzimuthElevation position) {
+        return ",\\set_pos " + position.getAzimuth() + " " + position.getElevation();
+    }
+
+    /**
+     * Decodes the RPRT return code of a response
+     *
+     * @param buf   buffer holding the response
+     * @param start index of the first character of the response
+     * @param end   index one past the last character of the response
+     * @return return code, or null if there's none
+     */
+    private static Integer decodeReturnCode(ByteBuffer buf, int start, int end) {
+        int returnCode = HamlibResponseParser.rprtCode(buf, start, end);
+        return returnCode == HamlibResponseParser.NO_RPRT ? null : returnCode;
+    }
+
+    /**
+     * Decodes the extended get_pos response
+     *
+     * @param buf   buffer holding the response
+     * @param start index of the first character of the response
+     * @param end   index one past the last character of the response
+     * @return azimuth & elevation, or null if the response is not valid
+     */
+    private static AzimuthElevation decodeAzEl(ByteBuffer buf, int start, int end) {
+
+        if (!HamlibResponseParser.isOk(buf, start, end)) {
             return null;
         }
 
-        out.println(msg);
-        String resp = null;
-        try {
-            resp = in.readLine();
-        } catch (IOException e) {
-            log.error("Error reading response from host: {}", e.getMessage());
+        double azimuth = HamlibResponseParser.numericField(buf, start, end, 1);
+        double elevation = HamlibResponseParser.numericField(buf, start, end, 2);
+
+        if (Double.isNaN(azimuth) || Double.isNaN(elevation)) {
+            return null;
         }
-        return resp;
+
+        return new AzimuthElevation(azimuth, elevation);
+
     }
 
     /**
-     * Close the connection to both rigctld and rotcld
+     * Decodes the extended get_freq response
+     *
+     * @param buf   buffer holding the response
+     * @param start index of the first character of the response
+     * @param end   index one past the last character of the response
+     * @return radio parameters, or null if the response is not valid
      */
-    private void stopConnection() {
+    private static RadioParams decodeRadioParams(ByteBuffer buf, int start, int end) {
+
+        if (!HamlibResponseParser.isOk(buf, start, end)) {
+            return null;
+        }
+
+        double frequency = HamlibResponseParser.numericField(buf, start, end, 1);
+
+        return Double.isNaN(frequency) ? null : new RadioParams(frequency);
 
-        closeParticularConnection(clientSocketRigctl, outRigctl, inRigctl);
-        closeParticularConnection(clientSocketRotctl, outRotctl, inRotctl);
+    }
 
+    /**
+     * Check whether rigctld/rotctld returned a successful response
+     *
+     * @param returnCode RPRT code returned from rigctld/rotctld
+     * @return whether response indicates a failure
+     */
+    private boolean isInvalidResponse(Integer returnCode) {
+        return returnCode == null || returnCode != 0;
     }
 
     /**
-     * Close the particular rigctld/rotcld connection
+     * Send a message over a persistent rigctld/rotctld connection and wait for the response
      *
-     * @param clientSocket client socket
-     * @param out          print writer
-     * @param in           buffered reader
+     * @param msg        message to be sent
+     * @param decoder    response decoder
+     * @param priority   command priority
+     * @param connection rigctld/rotctld connection
+     * @param <T>        type of the decoded response
+     * @return decoded response from rigctld/rotctld, or null on failure
      */
-    private void closeParticularConnection(Socket clientSocket, PrintWriter out, BufferedReader in) {
+    private <T> T sendMessage(String msg, HamlibResponseDecoder<T> decoder, HamlibCommand.Priority priority,
+                              HamlibConnection connection) {
+        return connection.submit(msg, decoder, priority).exceptionally(e -> null).join();
+    }
 
-        if (in != null) {
-            try {
-                in.close();
-            } catch (IOException e) {
-                log.error("Error closing socket reader: {}", e.getMessage());
-            }
-        }
+    /**
+     * Finds an antenna chain
+     *
+     * @param name antenna chain name
+     * @return antenna chain
+     */
+    private Chain chain(String name) {
 
-        if (out != null) {
-            out.close();
-        }
+        Chain chain = chains.get(name);
 
-        if (clientSocket != null) {
-            try {
-                clientSocket.close();
-            } catch (IOException e) {
-                log.error("Error closing socket: {}", e.getMessage());
-            }
+        if (chain == null) {
+            throw new IllegalArgumentException("Unknown antenna chain: " + name);
         }
 
-    }
+        return chain;
 
-    private enum SendWhere {
-        RIGCTL,
-        ROTCTL
     }
 
+    /**
+     * Connections and rotator lag estimate of an antenna chain
+     */
+    @RequiredArgsConstructor
+    private static final class Chain {
+
+        /**
+         * Antenna chain name
+         */
+        private final String name;
+
+        /**
+         * Persistent rotctld connection, shared by tracking, parking and status calls
+         */
+        private final HamlibConnection rotctlConnection;
+
+        /**
+         * Persistent rigctld connection
+         */
+        private final HamlibConnection rigctlConnection;
+
+        /**
+         * Estimates the rotator lag from command round trips and position readings
+         */
+        private final LeadCompensator leadCompensator = new LeadCompensator();
+
+    }
 
 }
@@ -0,0 +1,191 @@
+package com.ultimalabs.sancho.rotctldclient.tracking;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-rate, drift-free ticker
+ * <p>
+ * Ticks are aligned to wall-clock step boundaries (multiples of the period
+ * since the epoch), but waiting is done against the monotonic
+ * {@link System#nanoTime()} clock, so the cadence doesn't drift with the time
+ * spent handling a tick or with wall-clock adjustments. The thread is parked
+ * between ticks. If the caller stalls for longer than a period, the missed
+ * ticks are skipped rather than fired in a burst.
+ * <p>
+ * Usage:
+ * <pre>
+ * while (ticker.await(endMillis)) {
+ *     handle(ticker.getTickTime());
+ * }
+ * </pre>
+ */
+public class FixedRateTicker {
+
+    /**
+     * Tick period, in nanoseconds
+     */
+    @Getter
+    private final long periodNanos;
+
+    /**
+     * Records the lateness of each tick; may be null
+     */
+    private final Timer latenessTimer;
+
+    /**
+     * Wall-clock time (epoch, milliseconds) of the first tick
+     */
+    private long baseMillis;
+
+    /**
+     * Monotonic time of the first tick
+     */
+    private long baseNanos;
+
+    /**
+     * Whether the ticker has been aligned to a step boundary
+     */
+    private boolean aligned;
+
+    /**
+     * Index of the next tick, counted from the first one
+     */
+    private long nextTick;
+
+    /**
+     * Scheduled wall-clock time (epoch, milliseconds) of the current tick
+     */
+    @Getter
+    private long tickTime;
+
+    /**
+     * Number of ticks fired
+     */
+    @Getter
+    private long ticks;
+
+    /**
+     * Number of ticks skipped after stalls
+     */
+    @Getter
+    private long skippedTicks;
+
+    /**
+     * Maximum tick lateness, in nanoseconds
+     */
+    @Getter
+    private long maxLatenessNanos;
+
+    /**
+     * Sum of all tick latenesses, in nanoseconds
+     */
+    private long totalLatenessNanos;
+
+    /**
+     * Constructor
+     *
+     * @param periodSeconds tick period, in seconds
+     * @param latenessTimer records the lateness of each tick; may be null
+     */
+    public FixedRateTicker(double periodSeconds, Timer latenessTimer) {
+        this.periodNanos = Math.max(1, Math.round(periodSeconds * 1e9));
+        this.latenessTimer = latenessTimer;
+    }
+
+    /**
+     * Waits for the next tick
+     * <p>
+     * The first call aligns the ticker to the next step boundary.
+     *
+     * @param endMillis wall-clock time (epoch, milliseconds) at which ticking stops
+     * @return true if a tick fired, false if the end time was reached or the thread was interrupted
+     */
+    public boolean await(long endMillis) {
+
+        if (!aligned) {
+            align();
+        }
+
+        long tickNanos = baseNanos + nextTick * periodNanos;
+
+        if (millisAt(nextTick) >= endMillis) {
+            return false;
+        }
+
+        long remaining;
+
+        while ((remaining = tickNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+
+        long lateness = -remaining;
+
+        if (lateness >= periodNanos) {
+            long missed = lateness / periodNanos;
+            nextTick += missed;
+            skippedTicks += missed;
+            lateness -= missed * periodNanos;
+        }
+
+        tickTime = millisAt(nextTick);
+
+        if (tickTime >= endMillis) {
+            return false;
+        }
+
+        nextTick++;
+        ticks++;
+        totalLatenessNanos += lateness;
+        maxLatenessNanos = Math.max(maxLatenessNanos, lateness);
+
+        if (latenessTimer != null) {
+            latenessTimer.record(lateness, TimeUnit.NANOSECONDS);
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Mean tick lateness, in nanoseconds
+     *
+     * @return mean lateness
+     */
+    public long getMeanLatenessNanos() {
+        return ticks == 0 ? 0 : totalLatenessNanos / ticks;
+    }
+
+    /**
+     * Aligns the first tick with the next wall-clock step boundary
+     */
+    private void align() {
+
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        long periodMillis = Math.max(1, periodNanos / 1_000_000);
+
+        baseMillis = (nowMillis / periodMillis + 1) * periodMillis;
+        baseNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(baseMillis - nowMillis);
+        nextTick = 0;
+        aligned = true;
+
+    }
+
+    /**
+     * Wall-clock time of a tick
+     *
+     * @param tick tick index
+     * @return tick time (epoch, milliseconds)
+     */
+    private long millisAt(long tick) {
+        return baseMillis + tick * periodNanos / 1_000_000;
+    }
+
+}
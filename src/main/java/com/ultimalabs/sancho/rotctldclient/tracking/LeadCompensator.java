@@ -0,0 +1,165 @@
+package com.ultimalabs.sancho.rotctldclient.tracking;
+
+import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.util.AzimuthElevationUtil;
+
+/**
+ * Estimates how far the rotator lags behind its commands
+ * <p>
+ * The lag has two parts: the "set position" round trip through rotctld, and
+ * the time the rotator needs to slew to the new position. The round trip is
+ * measured on every command; the slew rate is measured from consecutive
+ * "get position" readings taken while the rotator is still on its way to a
+ * target. Both are smoothed with an exponentially weighted moving average.
+ * <p>
+ * Commanding the position for now + lag makes the rotator arrive when the
+ * satellite does. Measurements come from the Hamlib event loop while the
+ * tracker reads the estimates, so updates are synchronized and the estimates
+ * are volatile.
+ */
+public class LeadCompensator {
+
+    /**
+     * Weight of a new sample in the moving averages
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * Upper bound for the lead, in milliseconds
+     */
+    private static final long MAX_LEAD_MILLIS = 10_000;
+
+    /**
+     * Minimum distance from the target, in degrees, for the rotator to be
+     * considered still moving
+     */
+    private static final double MOVING_DISTANCE = 1;
+
+    /**
+     * Smoothed "set position" round trip, in milliseconds; NaN until measured
+     */
+    private volatile double roundTripMillis = Double.NaN;
+
+    /**
+     * Smoothed rotator slew rate, in degrees per second; NaN until measured
+     */
+    private volatile double slewRate = Double.NaN;
+
+    /**
+     * Most recently computed lead, in milliseconds
+     */
+    private volatile long leadMillis;
+
+    /**
+     * Last position reading
+     */
+    private AzimuthElevation lastPosition;
+
+    /**
+     * Monotonic time of the last position reading
+     */
+    private long lastPositionNanos;
+
+    /**
+     * Target the rotator was commanded to at the last position reading
+     */
+    private AzimuthElevation lastTarget;
+
+    /**
+     * Records a "set position" round trip
+     *
+     * @param nanos round trip duration, in nanoseconds
+     */
+    public synchronized void recordRoundTrip(long nanos) {
+        roundTripMillis = smooth(roundTripMillis, nanos / 1e6);
+    }
+
+    /**
+     * Records a rotator position reading
+     *
+     * @param position actual rotator position
+     * @param target   position the rotator is currently commanded to
+     * @param nanos    monotonic time of the reading
+     */
+    public synchronized void recordPosition(AzimuthElevation position, AzimuthElevation target, long nanos) {
+
+        if (position == null) {
+            return;
+        }
+
+        if (lastPosition != null && lastTarget != null && nanos > lastPositionNanos
+                && distance(lastPosition, lastTarget) > MOVING_DISTANCE
+                && distance(position, lastTarget) > MOVING_DISTANCE) {
+
+            double moved = distance(lastPosition, position);
+            double seconds = (nanos - lastPositionNanos) / 1e9;
+
+            if (moved > 0) {
+                slewRate = smooth(slewRate, moved / seconds);
+            }
+
+        }
+
+        lastPosition = position;
+        lastPositionNanos = nanos;
+        lastTarget = target;
+
+    }
+
+    /**
+     * Estimates the lead for a move
+     *
+     * @param distance distance the rotator has to travel, in degrees
+     * @return lead, in milliseconds
+     */
+    public long lead(double distance) {
+
+        double rtt = roundTripMillis;
+        double rate = slewRate;
+        double lead = Double.isNaN(rtt) ? 0 : rtt;
+
+        if (!Double.isNaN(rate) && rate > 0) {
+            lead += distance / rate * 1000;
+        }
+
+        leadMillis = Math.min(MAX_LEAD_MILLIS, Math.round(lead));
+        return leadMillis;
+
+    }
+
+    /**
+     * Smoothed "set position" round trip
+     *
+     * @return round trip, in milliseconds, or NaN if not measured yet
+     */
+    public double getRoundTripMillis() {
+        return roundTripMillis;
+    }
+
+    /**
+     * Smoothed rotator slew rate
+     *
+     * @return slew rate, in degrees per second, or NaN if not measured yet
+     */
+    public double getSlewRate() {
+        return slewRate;
+    }
+
+    /**
+     * Most recently computed lead
+     *
+     * @return lead, in milliseconds
+     */
+    public long getLeadMillis() {
+        return leadMillis;
+    }
+
+    private static double smooth(double average, double sample) {
+        return Double.isNaN(average) ? sample : average + SMOOTHING * (sample - average);
+    }
+
+    private static double distance(AzimuthElevation a, AzimuthElevation b) {
+        return AzimuthElevationUtil.angularDistance(a.getAzimuth(), a.getElevation(), b.getAzimuth(), b.getElevation());
+    }
+
+}
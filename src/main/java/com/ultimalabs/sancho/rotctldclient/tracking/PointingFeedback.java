@@ -0,0 +1,215 @@
+package com.ultimalabs.sancho.rotctldclient.tracking;
+
+import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.model.Trajectory;
+import com.ultimalabs.sancho.rotctldclient.util.AzimuthElevationUtil;
+import lombok.Getter;
+
+/**
+ * Collects rotator position readings during a pass
+ * <p>
+ * For each reading, the pointing error (actual rotator position vs the
+ * satellite position at the time of the reading) and the command error
+ * (actual vs commanded position) are accumulated. The readings also reveal a
+ * rotator that isn't converging on its target: stalled, or stopped past it
+ * after an overshoot. When that persists for a few readings, a recovery is
+ * requested. Readings arrive on the Hamlib event loop, so recording is
+ * synchronized.
+ */
+public class PointingFeedback {
+
+    /**
+     * Distance from the commanded position, in degrees, within which the rotator is on target
+     */
+    private static final double ON_TARGET_DISTANCE = 1;
+
+    /**
+     * Minimum progress towards the target between two readings, in degrees
+     */
+    private static final double MIN_PROGRESS = 0.5;
+
+    /**
+     * Consecutive readings without progress before a recovery is requested
+     */
+    private static final int STALLED_READINGS = 2;
+
+    /**
+     * Trajectory the rotator follows
+     */
+    private final Trajectory trajectory;
+
+    /**
+     * Number of readings with a pointing error
+     */
+    @Getter
+    private long samples;
+
+    /**
+     * Sum of pointing errors, in degrees
+     */
+    private double errorSum;
+
+    /**
+     * Sum of squared pointing errors
+     */
+    private double errorSquareSum;
+
+    /**
+     * Maximum pointing error, in degrees
+     */
+    @Getter
+    private double maxError;
+
+    /**
+     * Number of readings with a command error
+     */
+    private long commandSamples;
+
+    /**
+     * Sum of command errors, in degrees
+     */
+    private double commandErrorSum;
+
+    /**
+     * Maximum command error, in degrees
+     */
+    @Getter
+    private double maxCommandError;
+
+    /**
+     * Number of recoveries requested
+     */
+    @Getter
+    private long recoveries;
+
+    /**
+     * Commanded position at the previous reading
+     */
+    private AzimuthElevation lastCommanded;
+
+    /**
+     * Command error at the previous reading, in degrees
+     */
+    private double lastCommandError;
+
+    /**
+     * Consecutive readings without progress towards the target
+     */
+    private int stalledReadings;
+
+    /**
+     * Constructor
+     *
+     * @param trajectory trajectory the rotator follows
+     */
+    public PointingFeedback(Trajectory trajectory) {
+        this.trajectory = trajectory;
+    }
+
+    /**
+     * Records a rotator position reading
+     *
+     * @param actual    actual rotator position; ignored if null
+     * @param commanded position the rotator was commanded to
+     * @param readTime  time (epoch, milliseconds) of the reading
+     * @return pointing error, in degrees, or NaN if there's none
+     */
+    public synchronized double record(AzimuthElevation actual, AzimuthElevation commanded, long readTime) {
+
+        if (actual == null) {
+            return Double.NaN;
+        }
+
+        double error = Double.NaN;
+
+        if (trajectory.contains(readTime)) {
+            error = AzimuthElevationUtil.angularDistance(actual.getAzimuth(), actual.getElevation(),
+                    trajectory.azimuthAt(readTime), trajectory.elevationAt(readTime));
+            samples++;
+            errorSum += error;
+            errorSquareSum += error * error;
+            maxError = Math.max(maxError, error);
+        }
+
+        if (commanded != null) {
+            double commandError = distance(actual, commanded);
+            commandSamples++;
+            commandErrorSum += commandError;
+            maxCommandError = Math.max(maxCommandError, commandError);
+            checkConvergence(commanded, commandError);
+        }
+
+        return error;
+
+    }
+
+    /**
+     * Whether the rotator has failed to converge on its target and needs a
+     * recovery; clears the request
+     *
+     * @return true if a recovery is needed
+     */
+    public synchronized boolean takeRecoveryRequest() {
+
+        if (stalledReadings < STALLED_READINGS) {
+            return false;
+        }
+
+        stalledReadings = 0;
+        recoveries++;
+        return true;
+
+    }
+
+    /**
+     * Mean pointing error
+     *
+     * @return mean error, in degrees, or NaN if there were no readings
+     */
+    public synchronized double getMeanError() {
+        return samples == 0 ? Double.NaN : errorSum / samples;
+    }
+
+    /**
+     * Root mean square pointing error
+     *
+     * @return RMS error, in degrees, or NaN if there were no readings
+     */
+    public synchronized double getRmsError() {
+        return samples == 0 ? Double.NaN : Math.sqrt(errorSquareSum / samples);
+    }
+
+    /**
+     * Mean command error
+     *
+     * @return mean error, in degrees, or NaN if there were no readings
+     */
+    public synchronized double getMeanCommandError() {
+        return commandSamples == 0 ? Double.NaN : commandErrorSum / commandSamples;
+    }
+
+    /**
+     * Counts readings where the rotator is off target and hasn't got closer
+     * to the same target since the previous reading
+     *
+     * @param commanded    commanded position
+     * @param commandError actual vs commanded distance, in degrees
+     */
+    private void checkConvergence(AzimuthElevation commanded, double commandError) {
+
+        if (commandError <= ON_TARGET_DISTANCE) {
+            stalledReadings = 0;
+        } else if (commanded.equals(lastCommanded) && lastCommandError - commandError < MIN_PROGRESS) {
+            stalledReadings++;
+        }
+
+        lastCommanded = commanded;
+        lastCommandError = commandError;
+
+    }
+
+    private static double distance(AzimuthElevation a, AzimuthElevation b) {
+        return AzimuthElevationUtil.angularDistance(a.getAzimuth(), a.getElevation(), b.getAzimuth(), b.getElevation());
+    }
+
+}
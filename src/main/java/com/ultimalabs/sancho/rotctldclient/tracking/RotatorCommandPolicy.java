@@ -0,0 +1,226 @@
+package com.ultimalabs.sancho.rotctldclient.tracking;
+
+import com.ultimalabs.sancho.common.config.RotatorConfig;
+import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.model.Trajectory;
+import com.ultimalabs.sancho.rotctldclient.util.AzimuthElevationUtil;
+import lombok.Getter;
+
+/**
+ * Decides when the rotator needs a new "set position" command
+ * <p>
+ * On each tick, the pointing error expected by the next tick is predicted
+ * from the current error and the angular velocity of the satellite along the
+ * trajectory. The rotator is only commanded when that exceeds the pointing
+ * tolerance, and never more often than the configured command rate. Slow,
+ * low passes need few commands; fast passes near zenith are capped.
+ * <p>
+ * The tolerance is derived from the antenna beamwidth and the acceptable
+ * pointing loss, using the Gaussian beam approximation
+ * loss = 12 * (error / beamwidth)^2 dB.
+ * <p>
+ * With a lead compensator, positions are taken from the trajectory at
+ * now + estimated rotator lag instead of now.
+ */
+public class RotatorCommandPolicy {
+
+    /**
+     * Pointing loss, in dB, at an error equal to the half-power beamwidth
+     */
+    private static final double BEAMWIDTH_LOSS_DB = 12;
+
+    /**
+     * Trajectory the rotator follows
+     */
+    private final Trajectory trajectory;
+
+    /**
+     * Estimates the rotator lag; null to command the position for now
+     */
+    private final LeadCompensator leadCompensator;
+
+    /**
+     * Time between two ticks, in milliseconds
+     */
+    private final long tickMillis;
+
+    /**
+     * Pointing error tolerance, in degrees
+     */
+    @Getter
+    private final double tolerance;
+
+    /**
+     * Minimum time between two commands, in milliseconds
+     */
+    @Getter
+    private final long minIntervalMillis;
+
+    /**
+     * Last commanded position
+     */
+    @Getter
+    private AzimuthElevation commanded;
+
+    /**
+     * Time (epoch, milliseconds) of the last command
+     */
+    private long lastCommandMillis;
+
+    /**
+     * Whether the next tick re-commands the target unconditionally
+     */
+    private boolean recovering;
+
+    /**
+     * Number of commands issued
+     */
+    @Getter
+    private long commands;
+
+    /**
+     * Number of ticks without a command because the error was within tolerance
+     */
+    @Getter
+    private long withinTolerance;
+
+    /**
+     * Number of ticks without a command because of the command rate limit
+     */
+    @Getter
+    private long rateLimited;
+
+    /**
+     * Constructor
+     *
+     * @param config          rotator config
+     * @param trajectory      trajectory the rotator follows
+     * @param initial         position the rotator is at when tracking starts
+     * @param leadCompensator estimates the rotator lag; null to command the position for now
+     */
+    public RotatorCommandPolicy(RotatorConfig config, Trajectory trajectory, AzimuthElevation initial,
+                                LeadCompensator leadCompensator) {
+        this.trajectory = trajectory;
+        this.leadCompensator = leadCompensator;
+        this.tickMillis = Math.round(config.getStepSize() * 1000);
+        this.tolerance = pointingTolerance(config.getBeamwidth(), config.getMaxPointingLoss());
+        this.minIntervalMillis = config.getMaxCommandRate() > 0 ? Math.round(1000 / config.getMaxCommandRate()) : 0;
+        this.commanded = initial;
+    }
+
+    /**
+     * Pointing error tolerance for an antenna
+     *
+     * @param beamwidth half-power beamwidth, in degrees
+     * @param maxLoss   acceptable pointing loss, in dB
+     * @return tolerance, in degrees
+     */
+    public static double pointingTolerance(double beamwidth, double maxLoss) {
+        return beamwidth * Math.sqrt(maxLoss / BEAMWIDTH_LOSS_DB);
+    }
+
+    /**
+     * Makes the next tick command the current target even if it's within
+     * tolerance, the same as the last command, or over the rate limit
+     * <p>
+     * Used to recover a rotator that's stalled or stopped off target.
+     */
+    public void recover() {
+        recovering = true;
+    }
+
+    /**
+     * Decides whether to command the rotator at a tick
+     *
+     * @param t tick time (epoch, milliseconds)
+     * @return position to command, or null if no command is needed
+     */
+    public AzimuthElevation next(long t) {
+
+        if (!trajectory.contains(t)) {
+            return null;
+        }
+
+        long aim = Math.min(t + lead(t), trajectory.getEndMillis());
+        double az = trajectory.azimuthAt(aim);
+        double el = trajectory.elevationAt(aim);
+        AzimuthElevation target = new AzimuthElevation(az, el);
+
+        if (recovering) {
+            recovering = false;
+            return command(t, target);
+        }
+
+        if (target.equals(commanded)) {
+            return null;
+        }
+
+        if (commanded != null && predictedError(aim, az, el) <= tolerance) {
+            withinTolerance++;
+            return null;
+        }
+
+        if (commands > 0 && t - lastCommandMillis < minIntervalMillis) {
+            rateLimited++;
+            return null;
+        }
+
+        return command(t, target);
+
+    }
+
+    /**
+     * Records a command
+     *
+     * @param t      tick time (epoch, milliseconds)
+     * @param target position to command
+     * @return position to command
+     */
+    private AzimuthElevation command(long t, AzimuthElevation target) {
+
+        commanded = target;
+        lastCommandMillis = t;
+        commands++;
+
+        return target;
+
+    }
+
+    /**
+     * Estimated rotator lag for a move from the commanded position to the
+     * satellite's current position
+     *
+     * @param t tick time (epoch, milliseconds)
+     * @return lead, in milliseconds
+     */
+    private long lead(long t) {
+
+        if (leadCompensator == null || commanded == null) {
+            return 0;
+        }
+
+        return leadCompensator.lead(AzimuthElevationUtil.angularDistance(commanded.getAzimuth(),
+                commanded.getElevation(), trajectory.azimuthAt(t), trajectory.elevationAt(t)));
+
+    }
+
+    /**
+     * Pointing error expected at the next tick if the rotator isn't moved
+     *
+     * @param t  trajectory time (epoch, milliseconds)
+     * @param az satellite azimuth, in degrees
+     * @param el satellite elevation, in degrees
+     * @return predicted error, in degrees
+     */
+    private double predictedError(long t, double az, double el) {
+
+        double error = AzimuthElevationUtil.angularDistance(
+                commanded.getAzimuth(), commanded.getElevation(), az, el);
+        double speed = AzimuthElevationUtil.angularSpeed(
+                el, trajectory.azimuthRateAt(t), trajectory.elevationRateAt(t));
+
+        return error + speed * tickMillis / 1000;
+
+    }
+
+}
@@ -35,4 +35,41 @@ public class AzimuthElevationUtil {
         return normalizeAngle(intAngle);
     }
 
+    /**
+     * Angle between two pointing directions (great-circle distance)
+     * <p>
+     * Works with flipped positions too (elevation above 90 degrees).
+     *
+     * @param az1 first azimuth, in degrees
+     * @param el1 first elevation, in degrees
+     * @param az2 second azimuth, in degrees
+     * @param el2 second elevation, in degrees
+     * @return angle between the directions, in degrees
+     */
+    public static double angularDistance(double az1, double el1, double az2, double el2) {
+
+        double phi1 = Math.toRadians(el1);
+        double phi2 = Math.toRadians(el2);
+        double sinDPhi = Math.sin((phi2 - phi1) / 2);
+        double sinDLambda = Math.sin(Math.toRadians(az2 - az1) / 2);
+        double h = sinDPhi * sinDPhi + Math.cos(phi1) * Math.cos(phi2) * sinDLambda * sinDLambda;
+
+        return Math.toDegrees(2 * Math.asin(Math.min(1, Math.sqrt(Math.max(0, h)))));
+
+    }
+
+    /**
+     * Angular speed of a pointing direction moving at the given azimuth and
+     * elevation rates
+     *
+     * @param el     elevation, in degrees
+     * @param azRate azimuth rate, in degrees per second
+     * @param elRate elevation rate, in degrees per second
+     * @return angular speed, in degrees per second
+     */
+    public static double angularSpeed(double el, double azRate, double elRate) {
+        double crossRate = azRate * Math.cos(Math.toRadians(el));
+        return Math.sqrt(crossRate * crossRate + elRate * elRate);
+    }
+
 }
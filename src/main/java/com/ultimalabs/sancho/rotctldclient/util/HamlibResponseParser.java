@@ -0,0 +1,309 @@
+package com.ultimalabs.sancho.rotctldclient.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free parser for rigctld/rotctld extended responses
+ * <p>
+ * Works directly on the bytes of a single response line, using absolute
+ * buffer indices, so neither the buffer position nor limit are changed and
+ * no intermediate Strings are created. An extended response with ',' as
+ * the separator looks like this:
+ * <pre>
+ * get_pos:,Azimuth: 180.000000,Elevation: 45.000000,RPRT 0
+ * </pre>
+ * Field 0 is the echoed command, the value fields follow, and the
+ * line ends with the RPRT result code.
+ */
+public class HamlibResponseParser {
+
+    /**
+     * Returned by {@link #rprtCode} when the line contains no result code
+     */
+    public static final int NO_RPRT = Integer.MIN_VALUE;
+
+    private static final byte SEPARATOR = ',';
+
+    private static final byte[] RPRT = {'R', 'P', 'R', 'T', ' '};
+
+    /**
+     * Exact powers of ten representable as doubles
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private HamlibResponseParser() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Extracts the RPRT result code
+     *
+     * @param buf   buffer holding the response
+     * @param start index of the first character of the line
+     * @param end   index one past the last character of the line
+     * @return result code, or NO_RPRT if there's none
+     */
+    public static int rprtCode(ByteBuffer buf, int start, int end) {
+
+        for (int i = end - RPRT.length; i >= start; i--) {
+            if (matches(buf, i, RPRT)) {
+                return parseInt(buf, i + RPRT.length, end);
+            }
+        }
+
+        return NO_RPRT;
+
+    }
+
+    /**
+     * Whether the response reports success (RPRT 0)
+     *
+     * @param buf   buffer holding the response
+     * @param start index of the first character of the line
+     * @param end   index one past the last character of the line
+     * @return true if the result code is zero
+     */
+    public static boolean isOk(ByteBuffer buf, int start, int end) {
+        return rprtCode(buf, start, end) == 0;
+    }
+
+    /**
+     * Extracts a numeric field value
+     * <p>
+     * Fields are separated by ','. The value is the number following the
+     * last ':' in the field, or the whole field if there's no ':'.
+     *
+     * @param buf   buffer holding the response
+     * @param start index of the first character of the line
+     * @param end   index one past the last character of the line
+     * @param field field index; 0 is the echoed command
+     * @return field value, or NaN if the field doesn't exist or isn't a number
+     */
+    public static double numericField(ByteBuffer buf, int start, int end, int field) {
+
+        int fieldStart = start;
+
+        for (int n = 0; n < field; n++) {
+            fieldStart = indexOf(buf, SEPARATOR, fieldStart, end);
+            if (fieldStart < 0) {
+                return Double.NaN;
+            }
+            fieldStart++;
+        }
+
+        int fieldEnd = indexOf(buf, SEPARATOR, fieldStart, end);
+
+        if (fieldEnd < 0) {
+            fieldEnd = end;
+        }
+
+        int valueStart = fieldStart;
+
+        for (int i = fieldStart; i < fieldEnd; i++) {
+            if (buf.get(i) == ':') {
+                valueStart = i + 1;
+            }
+        }
+
+        return parseDouble(buf, valueStart, fieldEnd);
+
+    }
+
+    /**
+     * Parses a decimal number, like "-12.5" or "1.4e8"
+     * <p>
+     * Leading and trailing spaces are skipped. Results are exact for up to
+     * 15 significant digits, which covers everything rigctld/rotctld print.
+     *
+     * @param buf   buffer holding the number
+     * @param start index of the first character
+     * @param end   index one past the last character
+     * @return parsed value, or NaN if there's no valid number
+     */
+    public static double parseDouble(ByteBuffer buf, int start, int end) {
+
+        int i = skipSpaces(buf, start, end);
+        end = trimSpaces(buf, i, end);
+
+        if (i >= end) {
+            return Double.NaN;
+        }
+
+        boolean negative = false;
+        byte c = buf.get(i);
+
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+
+        for (; i < end; i++) {
+
+            c = buf.get(i);
+
+            if (c >= '0' && c <= '9') {
+                if (mantissa < 100_000_000_000_000_000L) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction) {
+                        scale--;
+                    }
+                } else if (!fraction) {
+                    scale++;
+                }
+                digits++;
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                int exponent = parseInt(buf, i + 1, end);
+                if (exponent == NO_RPRT) {
+                    return Double.NaN;
+                }
+                scale += exponent;
+                break;
+            } else {
+                return Double.NaN;
+            }
+
+        }
+
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        double value = scale(mantissa, scale);
+        return negative ? -value : value;
+
+    }
+
+    /**
+     * Multiplies the mantissa by ten to the power of scale
+     *
+     * @param mantissa decimal mantissa
+     * @param scale    decimal exponent
+     * @return scaled value
+     */
+    private static double scale(long mantissa, int scale) {
+
+        double value = mantissa;
+
+        if (scale == 0) {
+            return value;
+        }
+
+        if (scale > 0) {
+            while (scale > 22) {
+                value *= 1e22;
+                scale -= 22;
+            }
+            return value * POWERS_OF_TEN[scale];
+        }
+
+        while (scale < -22) {
+            value /= 1e22;
+            scale += 22;
+        }
+
+        return value / POWERS_OF_TEN[-scale];
+
+    }
+
+    /**
+     * Parses a signed decimal integer, ignoring surrounding spaces
+     *
+     * @param buf   buffer holding the number
+     * @param start index of the first character
+     * @param end   index one past the last character
+     * @return parsed value, or NO_RPRT if there's no valid number
+     */
+    private static int parseInt(ByteBuffer buf, int start, int end) {
+
+        int i = skipSpaces(buf, start, end);
+        end = trimSpaces(buf, i, end);
+
+        if (i >= end) {
+            return NO_RPRT;
+        }
+
+        boolean negative = false;
+        byte c = buf.get(i);
+
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        if (i >= end) {
+            return NO_RPRT;
+        }
+
+        int value = 0;
+
+        for (; i < end; i++) {
+            c = buf.get(i);
+            if (c < '0' || c > '9') {
+                return NO_RPRT;
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        return negative ? -value : value;
+
+    }
+
+    private static boolean matches(ByteBuffer buf, int at, byte[] pattern) {
+
+        for (int i = 0; i < pattern.length; i++) {
+            if (buf.get(at + i) != pattern[i]) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    private static int indexOf(ByteBuffer buf, byte value, int start, int end) {
+
+        for (int i = start; i < end; i++) {
+            if (buf.get(i) == value) {
+                return i;
+            }
+        }
+
+        return -1;
+
+    }
+
+    private static int skipSpaces(ByteBuffer buf, int start, int end) {
+
+        while (start < end && isSpace(buf.get(start))) {
+            start++;
+        }
+
+        return start;
+
+    }
+
+    private static int trimSpaces(ByteBuffer buf, int start, int end) {
+
+        while (end > start && isSpace(buf.get(end - 1))) {
+            end--;
+        }
+
+        return end;
+
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+}
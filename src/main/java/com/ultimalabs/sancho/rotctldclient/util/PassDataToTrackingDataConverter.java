@@ -1,14 +1,15 @@
 package com.ultimalabs.sancho.rotctldclient.util;
 
+import com.ultimalabs.sancho.common.config.SatelliteData;
 import com.ultimalabs.sancho.common.model.PassEventDataPoint;
 import com.ultimalabs.sancho.common.model.SatellitePass;
 import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.model.DopplerSchedule;
 import com.ultimalabs.sancho.rotctldclient.model.TrackingData;
+import com.ultimalabs.sancho.rotctldclient.model.Trajectory;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Pass data to tracking data converter utility class
@@ -16,6 +17,24 @@ import java.util.Map;
 @Slf4j
 public class PassDataToTrackingDataConverter {
 
+    /**
+     * Largest acceptable estimated error of a densified trajectory, in degrees
+     */
+    public static final double MAX_DENSIFICATION_ERROR = 0.5;
+
+    /**
+     * Ratio between the spline error at twice the sample step and at the step
+     * <p>
+     * A well-sampled cubic spline gives 4-8; fast passes sampled too coarsely
+     * give less, so this is kept conservative.
+     */
+    private static final double HALF_STEP_ERROR_RATIO = 2;
+
+    /**
+     * Minimum number of samples needed for an error estimate
+     */
+    private static final int MIN_ESTIMATE_SAMPLES = 5;
+
     private PassDataToTrackingDataConverter() {
         throw new IllegalStateException("Utility class");
     }
@@ -37,18 +56,26 @@ public class PassDataToTrackingDataConverter {
         String satName = passData.getSatelliteData().getName();
         long trackingStart = passData.getRisePoint().getT().getTime() / 1000;
         long trackingEnd = passData.getSetPoint().getT().getTime() / 1000;
-        Map<Long, AzimuthElevation> azElEntriesHashMap = new HashMap<>();
         boolean isFlipped = shouldFlip(passEventDetailsEntries);
 
-        for (PassEventDataPoint entry : passEventDetailsEntries) {
+        int size = passEventDetailsEntries.size();
+        long[] timeStamps = new long[size];
+        double[] azimuths = new double[size];
+        double[] elevations = new double[size];
+
+        for (int i = 0; i < size; i++) {
 
-            long timeStamp = entry.getT().getTime() / 1000;
-            AzimuthElevation azEl = flipConversion(entry, isFlipped);
+            PassEventDataPoint entry = passEventDetailsEntries.get(i);
 
-            azElEntriesHashMap.put(timeStamp, azEl);
+            timeStamps[i] = entry.getT().getTime();
+            azimuths[i] = isFlipped ? entry.getAz() + 180 : entry.getAz();
+            elevations[i] = isFlipped ? 180 - entry.getEl() : entry.getEl();
 
         }
 
+        Trajectory trajectory = Trajectory.resample(timeStamps, azimuths, elevations,
+                stepMillis(passData, timeStamps), Trajectory.Interpolation.HERMITE);
+
         AzimuthElevation riseAzEl = flipConversion(passData.getRisePoint(), isFlipped);
         AzimuthElevation setAzEl = flipConversion(passData.getSetPoint(), isFlipped);
 
@@ -58,11 +85,152 @@ public class PassDataToTrackingDataConverter {
                 riseAzEl,
                 setAzEl,
                 AzimuthElevationUtil.normalizeAngle(passData.getMidPoint().getEl()),
-                azElEntriesHashMap
+                trajectory
         );
 
     }
 
+    /**
+     * Converts pass event data into a Doppler correction schedule
+     * <p>
+     * The frequencies are computed from the satellite range rate, so they're
+     * correct for any frequency; the Doppler shift reported with the pass
+     * data is for a frequency the API isn't told about.
+     *
+     * @param passData   pass event data
+     * @param stepMillis schedule step, in milliseconds
+     * @return Doppler schedule, or null if there are no pass details
+     */
+    public static DopplerSchedule convertDoppler(SatellitePass passData, long stepMillis) {
+
+        if (passData == null || passData.getEventDetails() == null || passData.getEventDetails().isEmpty()) {
+            return null;
+        }
+
+        List<PassEventDataPoint> entries = passData.getEventDetails();
+        int size = entries.size();
+        long[] timeStamps = new long[size];
+        double[] ranges = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            timeStamps[i] = entries.get(i).getT().getTime();
+            ranges[i] = entries.get(i).getDst();
+        }
+
+        SatelliteData satelliteData = passData.getSatelliteData();
+
+        return DopplerSchedule.fromRanges(satelliteData.getName(), timeStamps, ranges, stepMillis,
+                satelliteData.getRadioFrequency(), satelliteData.getUplinkFrequency());
+
+    }
+
+    /**
+     * Estimates the error of densifying the pass details with a spline
+     * <p>
+     * The spline is fitted through every other sample (both the even and the
+     * odd ones) and compared with the samples left out. That's the error at
+     * twice the actual step; it's scaled down to estimate the error at the
+     * actual step.
+     * Passes with too few samples to estimate yield infinity.
+     *
+     * @param passData pass event data
+     * @return estimated maximum error, in degrees
+     */
+    public static double estimateDensificationError(SatellitePass passData) {
+
+        List<PassEventDataPoint> entries = passData.getEventDetails();
+
+        if (entries == null || entries.size() < MIN_ESTIMATE_SAMPLES) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double maxError = Math.max(halfStepError(entries, 0), halfStepError(entries, 1));
+
+        return maxError / HALF_STEP_ERROR_RATIO;
+
+    }
+
+    /**
+     * Fits a spline through every other sample and measures its maximum
+     * error at the samples left out
+     *
+     * @param entries pass event detail entries
+     * @param offset  index of the first fitted sample, 0 or 1
+     * @return maximum error, in degrees
+     */
+    private static double halfStepError(List<PassEventDataPoint> entries, int offset) {
+
+        int size = (entries.size() - offset + 1) / 2;
+        long[] timeStamps = new long[size];
+        double[] azimuths = new double[size];
+        double[] elevations = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            PassEventDataPoint entry = entries.get(offset + 2 * i);
+            timeStamps[i] = entry.getT().getTime();
+            azimuths[i] = entry.getAz();
+            elevations[i] = entry.getEl();
+        }
+
+        Trajectory trajectory = Trajectory.resample(timeStamps, azimuths, elevations,
+                timeStamps[1] - timeStamps[0], Trajectory.Interpolation.HERMITE);
+        double maxError = 0;
+
+        for (int i = offset + 1; i < offset + 2 * size - 1; i += 2) {
+
+            PassEventDataPoint entry = entries.get(i);
+            long t = entry.getT().getTime();
+            double azError = Math.abs(angleDifference(trajectory.azimuthAt(t), entry.getAz()));
+            double elError = Math.abs(trajectory.elevationAt(t) - entry.getEl());
+
+            maxError = Math.max(maxError, Math.max(azError, elError));
+
+        }
+
+        return maxError;
+
+    }
+
+    /**
+     * Signed difference between two angles
+     *
+     * @param a angle, in degrees
+     * @param b angle, in degrees
+     * @return a - b, in the range [-180, 180)
+     */
+    private static double angleDifference(double a, double b) {
+        double d = (a - b) % 360;
+        if (d < -180) {
+            d += 360;
+        } else if (d >= 180) {
+            d -= 360;
+        }
+        return d;
+    }
+
+    /**
+     * Trajectory sample step
+     * <p>
+     * Uses the configured tracking step size, or the spacing of the first two
+     * samples if there's none. Pass details fetched at a coarser step are
+     * densified to this step with a spline.
+     *
+     * @param passData   pass event data
+     * @param timeStamps sample timestamps, in milliseconds
+     * @return step, in milliseconds
+     */
+    private static long stepMillis(SatellitePass passData, long[] timeStamps) {
+
+        long step = Math.round(passData.getSatelliteData().getStepSize() * 1000);
+
+        if (step <= 0 && timeStamps.length > 1) {
+            step = timeStamps[1] - timeStamps[0];
+        }
+
+        return step > 0 ? step : 1000;
+
+    }
+
     /**
      * Should the tracking data be flipped?
      * <p>
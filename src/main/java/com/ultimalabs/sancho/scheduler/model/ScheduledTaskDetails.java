@@ -12,4 +12,9 @@ public class ScheduledTaskDetails {
     private final String description;
     private final Date startTime;
 
+    /**
+     * Time the task runs until; same as the start time for tasks that don't take up time
+     */
+    private final Date endTime;
+
 }
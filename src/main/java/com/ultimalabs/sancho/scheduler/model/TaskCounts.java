@@ -0,0 +1,31 @@
+package com.ultimalabs.sancho.scheduler.model;
+
+import lombok.Data;
+
+/**
+ * Number of scheduled tasks in each state
+ */
+@Data
+public class TaskCounts {
+
+    /**
+     * Tasks waiting for their start time
+     */
+    private final long pending;
+
+    /**
+     * Tasks running now
+     */
+    private final long running;
+
+    /**
+     * Tasks that completed normally, since startup
+     */
+    private final long done;
+
+    /**
+     * Tasks that threw an exception, since startup
+     */
+    private final long failed;
+
+}
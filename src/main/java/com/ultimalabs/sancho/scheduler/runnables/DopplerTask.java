@@ -0,0 +1,29 @@
+package com.ultimalabs.sancho.scheduler.runnables;
+
+import com.ultimalabs.sancho.common.config.RadioConfig;
+import com.ultimalabs.sancho.rotctldclient.model.DopplerSchedule;
+import com.ultimalabs.sancho.rotctldclient.service.HamlibClientService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Doppler correction of the radio during a pass
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DopplerTask implements Runnable {
+
+    private final HamlibClientService hamlibClientService;
+    private final String chainName;
+    private final DopplerSchedule dopplerSchedule;
+    private final RadioConfig radio;
+
+    @Override
+    public void run() {
+
+        log.info("Started DopplerTask on thread {}", Thread.currentThread().getName());
+        hamlibClientService.tuneDoppler(chainName, dopplerSchedule, radio);
+
+    }
+}
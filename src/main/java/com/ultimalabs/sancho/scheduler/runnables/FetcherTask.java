@@ -1,21 +1,23 @@
 package com.ultimalabs.sancho.scheduler.runnables;
 
+import com.ultimalabs.sancho.common.config.AntennaChain;
 import com.ultimalabs.sancho.scheduler.service.SchedulerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Next pass fetcher
+ * Next pass fetcher, for an antenna chain
  */
 @Slf4j
 @RequiredArgsConstructor
 public class FetcherTask implements Runnable {
 
     private final SchedulerService schedulerService;
+    private final AntennaChain chain;
 
     @Override
     public void run() {
         log.info("Started FetcherTask on thread {}", Thread.currentThread().getName());
-        schedulerService.scheduleNextEvent();
+        schedulerService.scheduleNextEvent(chain);
     }
 }
@@ -0,0 +1,28 @@
+package com.ultimalabs.sancho.scheduler.runnables;
+
+import com.ultimalabs.sancho.common.config.AntennaChain;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import com.ultimalabs.sancho.scheduler.service.SchedulerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fetches the details of a scheduled pass shortly before it rises, and
+ * schedules tracking and Doppler correction
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PassDetailsTask implements Runnable {
+
+    private final SchedulerService schedulerService;
+    private final AntennaChain chain;
+    private final SatellitePass pass;
+
+    @Override
+    public void run() {
+
+        log.info("Started PassDetailsTask on thread {}", Thread.currentThread().getName());
+        schedulerService.scheduleTracking(chain, pass);
+
+    }
+}
@@ -1,6 +1,5 @@
 package com.ultimalabs.sancho.scheduler.runnables;
 
-import com.ultimalabs.sancho.scheduler.model.ScheduledTaskDetails;
 import com.ultimalabs.sancho.scheduler.service.SchedulerService;
 
 import lombok.RequiredArgsConstructor;
@@ -31,9 +30,7 @@ public class ShutdownTask implements Runnable {
             Thread.currentThread().interrupt();
         }
 
-        for (ScheduledTaskDetails task : schedulerService.getScheduledTasks()) {
-            task.getFuture().cancel(false);
-        }
+        schedulerService.cancelTasks();
 
         System.exit(0);
    
@@ -1,5 +1,6 @@
 package com.ultimalabs.sancho.scheduler.runnables;
 
+import com.ultimalabs.sancho.common.config.RotatorConfig;
 import com.ultimalabs.sancho.rotctldclient.model.TrackingData;
 import com.ultimalabs.sancho.rotctldclient.service.HamlibClientService;
 import lombok.RequiredArgsConstructor;
@@ -14,13 +15,15 @@ import lombok.extern.slf4j.Slf4j;
 public class TrackerTask implements Runnable {
 
     private final HamlibClientService hamlibClientService;
+    private final String chainName;
     private final TrackingData trackingData;
+    private final RotatorConfig rotator;
 
     @Override
     public void run() {
 
         log.info("Started TrackerTask on thread {}", Thread.currentThread().getName());
-        hamlibClientService.track(trackingData);
+        hamlibClientService.track(chainName, trackingData, rotator);
 
     }
 }
@@ -0,0 +1,191 @@
+package com.ultimalabs.sancho.scheduler.service;
+
+import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import com.ultimalabs.sancho.rotctldclient.service.DeviceStatePoller;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Idle mode between passes
+ * <p>
+ * The station is active from the idle window before a scheduled pass rises
+ * until it sets, and idle otherwise. While idle, device state polling is
+ * paused and the task scheduler keeps a single thread, so nothing wakes the
+ * CPU except the scheduled tasks themselves. Switching between the modes is
+ * deadline-based too: a single timer is set for the next switch.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class IdleModeService {
+
+    /**
+     * Task scheduler threads kept while idle
+     */
+    private static final int IDLE_POOL_SIZE = 1;
+
+    /**
+     * Config object
+     */
+    private final SanchoConfig config;
+
+    /**
+     * Task scheduler
+     */
+    private final ThreadPoolTaskScheduler taskScheduler;
+
+    /**
+     * Device state poller
+     */
+    private final DeviceStatePoller deviceStatePoller;
+
+    /**
+     * Counts the mode switch timer wakeups
+     */
+    private final WakeupMeter wakeupMeter;
+
+    /**
+     * Periods the station has to be active (epoch, milliseconds: from, until), guarded by this
+     */
+    private final List<long[]> activePeriods = new ArrayList<>();
+
+    /**
+     * Task scheduler threads while active
+     */
+    private int activePoolSize;
+
+    /**
+     * Whether the station is idle
+     */
+    private boolean idle;
+
+    /**
+     * Timer for the next mode switch; null if there's none
+     */
+    private ScheduledFuture<?> nextSwitch;
+
+    /**
+     * Remembers the configured task scheduler size, and goes idle until a pass is scheduled
+     */
+    @PostConstruct
+    void init() {
+
+        activePoolSize = taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize();
+
+        if (config.getIdleWindow() > 0) {
+            update();
+        }
+
+    }
+
+    /**
+     * Keeps the station active for a scheduled pass
+     *
+     * @param rise pass rise time
+     * @param set  pass set time
+     */
+    public synchronized void passScheduled(Date rise, Date set) {
+
+        if (config.getIdleWindow() <= 0) {
+            return;
+        }
+
+        activePeriods.add(new long[]{rise.getTime() - config.getIdleWindow() * 1000L, set.getTime()});
+        update();
+
+    }
+
+    /**
+     * Whether the station is idle
+     *
+     * @return true if idle
+     */
+    public synchronized boolean isIdle() {
+        return idle;
+    }
+
+    /**
+     * Switches to the mode for the current time, and sets the timer for the next switch
+     */
+    private void update() {
+        update(System.currentTimeMillis());
+    }
+
+    /**
+     * Switches to the mode for a given time, and sets the timer for the next switch
+     *
+     * @param now current time (epoch, milliseconds)
+     */
+    synchronized void update(long now) {
+
+        boolean active = false;
+        long next = Long.MAX_VALUE;
+
+        Iterator<long[]> periods = activePeriods.iterator();
+
+        while (periods.hasNext()) {
+
+            long[] period = periods.next();
+
+            if (period[1] <= now) {
+                periods.remove();
+            } else if (period[0] <= now) {
+                active = true;
+                next = Math.min(next, period[1]);
+            } else {
+                next = Math.min(next, period[0]);
+            }
+
+        }
+
+        setIdle(!active);
+
+        if (nextSwitch != null) {
+            nextSwitch.cancel(false);
+            nextSwitch = null;
+        }
+
+        if (next != Long.MAX_VALUE) {
+            nextSwitch = taskScheduler.schedule(this::switchTimerFired, new Date(next));
+        }
+
+    }
+
+    /**
+     * Mode switch timer
+     */
+    private void switchTimerFired() {
+        wakeupMeter.record("idle-mode");
+        update();
+    }
+
+    /**
+     * Enters or leaves idle mode
+     *
+     * @param newIdle true to enter idle mode
+     */
+    private void setIdle(boolean newIdle) {
+
+        if (newIdle == idle) {
+            return;
+        }
+
+        idle = newIdle;
+        taskScheduler.setPoolSize(idle ? IDLE_POOL_SIZE : activePoolSize);
+        deviceStatePoller.setPaused(idle);
+
+        log.info(idle ? "Entered idle mode." : "Left idle mode.");
+
+    }
+
+}
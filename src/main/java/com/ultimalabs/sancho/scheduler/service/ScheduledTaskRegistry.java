@@ -0,0 +1,328 @@
+package com.ultimalabs.sancho.scheduler.service;
+
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import com.ultimalabs.sancho.common.util.IntervalTree;
+import com.ultimalabs.sancho.scheduler.model.ScheduledTaskDetails;
+import com.ultimalabs.sancho.scheduler.model.TaskCounts;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the scheduled tasks
+ * <p>
+ * Tasks are registered when they're scheduled, and removed by the task
+ * itself when it completes, so there's no cleanup polling. Readers get an
+ * immutable snapshot, which is replaced whenever a task is added or removed,
+ * and never block the scheduler. Task counts by state are kept as they
+ * change, and are also exposed as the <code>sancho.scheduler.tasks</code>
+ * gauges.
+ */
+@RequiredArgsConstructor
+@Service
+public class ScheduledTaskRegistry {
+
+    /**
+     * Task scheduler
+     */
+    private final ThreadPoolTaskScheduler taskScheduler;
+
+    /**
+     * Meter registry
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Counts the task runs
+     */
+    private final WakeupMeter wakeupMeter;
+
+    /**
+     * Tasks, indexed by the time they run; guarded by itself
+     */
+    private final IntervalTree<ScheduledTaskDetails> index = new IntervalTree<>();
+
+    /**
+     * Registered tasks by their details, for cancellation; guarded by the index
+     */
+    private final Map<ScheduledTaskDetails, RegisteredTask> tasks = new IdentityHashMap<>();
+
+    /**
+     * Tasks ordered by start time, replaced on every change
+     */
+    private volatile List<ScheduledTaskDetails> snapshot = Collections.emptyList();
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong running = new AtomicLong();
+    private final AtomicLong done = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Registers the task count gauges
+     */
+    @PostConstruct
+    private void registerMeters() {
+        registerGauge("pending", pending);
+        registerGauge("running", running);
+        registerGauge("done", done);
+        registerGauge("failed", failed);
+    }
+
+    private void registerGauge(String state, AtomicLong count) {
+        Gauge.builder("sancho.scheduler.tasks", count, AtomicLong::get)
+                .description("Number of scheduled tasks, by state; done and failed since startup")
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules a task, and registers it until it completes
+     *
+     * @param task        a task scheduled for execution
+     * @param startTime   task start time
+     * @param endTime     time the task runs until; same as the start time for tasks that don't take up time
+     * @param description task description
+     * @return task details
+     */
+    public ScheduledTaskDetails schedule(Runnable task, Date startTime, Date endTime, String description) {
+
+        RegisteredTask registered = new RegisteredTask(task);
+
+        pending.incrementAndGet();
+
+        ScheduledFuture<?> future = taskScheduler.schedule(registered, startTime);
+        ScheduledTaskDetails details = new ScheduledTaskDetails(future, description, startTime,
+                endTime.before(startTime) ? startTime : endTime);
+
+        registered.attach(details);
+
+        return details;
+
+    }
+
+    /**
+     * Cancels all the tasks that haven't started yet
+     * <p>
+     * Running tasks are left to complete.
+     */
+    public void cancelAll() {
+        snapshot.forEach(this::cancel);
+    }
+
+    /**
+     * Cancels a task, unless it already started
+     *
+     * @param details task details
+     * @return true if the task was canceled
+     */
+    public boolean cancel(ScheduledTaskDetails details) {
+
+        RegisteredTask registered;
+
+        synchronized (index) {
+            registered = tasks.get(details);
+        }
+
+        return registered != null && registered.cancel();
+
+    }
+
+    /**
+     * Get the registered tasks
+     *
+     * @return immutable list of tasks, ordered by start time
+     */
+    public List<ScheduledTaskDetails> getTasks() {
+        return snapshot;
+    }
+
+    /**
+     * Get a page of the tasks that run in a time range
+     *
+     * @param from   range start
+     * @param to     range end
+     * @param offset number of tasks to skip
+     * @param limit  maximum number of tasks
+     * @return tasks, ordered by start time
+     */
+    public List<ScheduledTaskDetails> getTasks(Date from, Date to, int offset, int limit) {
+        synchronized (index) {
+            return index.overlapping(from.getTime(), to.getTime(), offset, limit);
+        }
+    }
+
+    /**
+     * Finds the earliest time window without tasks
+     *
+     * @param from   earliest window start
+     * @param length window length, in milliseconds
+     * @return window start
+     */
+    public Date getNextFreeWindow(Date from, long length) {
+        synchronized (index) {
+            return new Date(index.nextFreeWindow(from.getTime(), length));
+        }
+    }
+
+    /**
+     * Get the number of tasks in each state
+     *
+     * @return task counts
+     */
+    public TaskCounts getCounts() {
+        return new TaskCounts(pending.get(), running.get(), done.get(), failed.get());
+    }
+
+    private void add(ScheduledTaskDetails details, RegisteredTask registered) {
+        synchronized (index) {
+            index.add(details.getStartTime().getTime(), details.getEndTime().getTime(), details);
+            tasks.put(details, registered);
+            snapshot = Collections.unmodifiableList(index.values());
+        }
+    }
+
+    private void remove(ScheduledTaskDetails details) {
+        synchronized (index) {
+            tasks.remove(details);
+            if (index.remove(details)) {
+                snapshot = Collections.unmodifiableList(index.values());
+            }
+        }
+    }
+
+    /**
+     * Runs a task, keeps the counts, and removes the task from the registry when it completes
+     */
+    private final class RegisteredTask implements Runnable {
+
+        private final Runnable task;
+
+        /**
+         * Task details; null until the task is scheduled. Guarded by this
+         */
+        private ScheduledTaskDetails details;
+
+        /**
+         * Whether the task started; guarded by this
+         */
+        private boolean started;
+
+        /**
+         * Whether the task was canceled; guarded by this
+         */
+        private boolean canceled;
+
+        /**
+         * Whether the task completed; guarded by this
+         */
+        private boolean completed;
+
+        private RegisteredTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+
+            wakeupMeter.record("scheduler");
+
+            if (!start()) {
+                return;
+            }
+
+            pending.decrementAndGet();
+            running.incrementAndGet();
+
+            boolean ok = false;
+
+            try {
+                task.run();
+                ok = true;
+            } finally {
+                // remove first, so a task counted as done is no longer listed
+                complete();
+                running.decrementAndGet();
+                (ok ? done : failed).incrementAndGet();
+            }
+
+        }
+
+        /**
+         * Marks the task as started, unless it was canceled
+         *
+         * @return true if the task should run
+         */
+        private synchronized boolean start() {
+
+            if (canceled) {
+                return false;
+            }
+
+            started = true;
+
+            return true;
+
+        }
+
+        /**
+         * Cancels the task, unless it already started
+         *
+         * @return true if the task was canceled
+         */
+        private synchronized boolean cancel() {
+
+            if (started || canceled) {
+                return false;
+            }
+
+            canceled = true;
+            details.getFuture().cancel(false);
+            pending.decrementAndGet();
+            complete();
+
+            return true;
+
+        }
+
+        /**
+         * Registers the task, unless it already completed
+         *
+         * @param scheduled task details
+         */
+        private synchronized void attach(ScheduledTaskDetails scheduled) {
+
+            details = scheduled;
+
+            if (!completed) {
+                add(details, this);
+            }
+
+        }
+
+        /**
+         * Removes the task from the registry, if it was registered
+         */
+        private synchronized void complete() {
+
+            completed = true;
+
+            if (details != null) {
+                remove(details);
+            }
+
+        }
+
+    }
+
+}
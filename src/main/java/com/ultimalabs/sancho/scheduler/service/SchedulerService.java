@@ -3,45 +3,65 @@ package com.ultimalabs.sancho.scheduler.service;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 
+import com.ultimalabs.sancho.common.config.AntennaChain;
+import com.ultimalabs.sancho.common.config.RadioConfig;
 import com.ultimalabs.sancho.common.config.SanchoConfig;
 import com.ultimalabs.sancho.common.model.SatellitePass;
+import com.ultimalabs.sancho.predictclient.service.PassHorizon;
 import com.ultimalabs.sancho.predictclient.service.PredictClientService;
+import com.ultimalabs.sancho.rotctldclient.model.DopplerSchedule;
 import com.ultimalabs.sancho.rotctldclient.model.TrackingData;
 import com.ultimalabs.sancho.rotctldclient.service.HamlibClientService;
 import com.ultimalabs.sancho.rotctldclient.util.PassDataToTrackingDataConverter;
-import com.ultimalabs.sancho.scheduler.model.ScheduledTaskDetails;
+import com.ultimalabs.sancho.scheduler.runnables.DopplerTask;
 import com.ultimalabs.sancho.scheduler.runnables.FetcherTask;
-import com.ultimalabs.sancho.scheduler.runnables.ScheduledTasksCleanupTask;
+import com.ultimalabs.sancho.scheduler.runnables.PassDetailsTask;
 import com.ultimalabs.sancho.scheduler.runnables.ShellCmdTask;
 import com.ultimalabs.sancho.scheduler.runnables.ShutdownTask;
+import com.ultimalabs.sancho.scheduler.model.ScheduledTaskDetails;
 import com.ultimalabs.sancho.scheduler.runnables.TrackerTask;
 import com.ultimalabs.sancho.shellexec.service.ShellExecService;
 
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Service;
 
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Tracking scheduler
+ * <p>
+ * Each antenna chain runs its own scheduling loop: when a chain is free, it
+ * picks its next pass, and asks for the one after that when the pass sets.
+ * If the pass details can't be fetched or the rotator can't be parked, the
+ * pass is dropped, and the chain picks a pass again after the error wait.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SchedulerService {
 
+    /**
+     * How long before rise the pass details are fetched, in seconds; also gives the rotator time to park
+     */
+    private static final long PASS_DETAILS_LEAD = 120;
+
     /**
      * Config object
      */
     private final SanchoConfig config;
 
+    /**
+     * Upcoming passes
+     */
+    private final PassHorizon passHorizon;
+
     /**
      * Predict client service
      */
@@ -63,10 +83,24 @@ public class SchedulerService {
     private final ThreadPoolTaskScheduler taskScheduler;
 
     /**
-     * List of scheduled tasks
+     * Scheduled tasks
+     */
+    private final ScheduledTaskRegistry taskRegistry;
+
+    /**
+     * Idle mode between passes
+     */
+    private final IdleModeService idleModeService;
+
+    /**
+     * Pass each chain picked last, by chain name
      */
-    @Getter
-    private List<ScheduledTaskDetails> scheduledTasks;
+    private final Map<String, SatellitePass> chainPasses = new HashMap<>();
+
+    /**
+     * Tasks scheduled for the pass each chain picked last, including the next pass fetcher, by chain name
+     */
+    private final Map<String, List<ScheduledTaskDetails>> chainTasks = new HashMap<>();
 
     /**
      * Scheduling autostart
@@ -74,110 +108,245 @@ public class SchedulerService {
     @PostConstruct
     private void autoStartScheduler() {
 
-        scheduledTasks = new ArrayList<>();
-        taskScheduler.execute(new ScheduledTasksCleanupTask(this));
-
         if (config.isSchedulerAutoStartDisabled()) {
             return;
         }
 
-        scheduleNextEvent();
+        for (AntennaChain chain : AntennaChain.of(config)) {
+            scheduleNextEvent(chain);
+        }
 
     }
 
     /**
-     * Schedules handling of the next event
+     * Schedules handling of the next event on an antenna chain
+     * <p>
+     * Synchronized, since the chains share the shell commands substituted
+     * into the satellite data when a pass is picked.
+     *
+     * @param chain antenna chain
      */
-    public void scheduleNextEvent() {
+    public synchronized void scheduleNextEvent(AntennaChain chain) {
 
         Date nextFetch;
-        boolean scheduleOk = false;
+        List<ScheduledTaskDetails> tasks = new ArrayList<>();
 
-        SatellitePass nextPass = predictClientService.getNextPass();
+        SatellitePass nextPass = passHorizon.getNextPass(chain);
 
         if (nextPass != null) {
-            log.info("Fetched next pass: {}.", nextPass.getSatelliteData().getName());
-            scheduleOk = scheduleTracking(nextPass);
-        }
-
-        if (scheduleOk) {
+            log.info("Next pass on {}: {}.", chain.getName(), nextPass.getSatelliteData().getName());
+            schedulePass(chain, nextPass, tasks);
             nextFetch = nextPass.getSetPoint().getT();
         } else {
-            Calendar calendar = Calendar.getInstance();
-            calendar.add(Calendar.SECOND, config.getSchedulerErrorWait());
-            nextFetch = calendar.getTime();
+            nextFetch = afterErrorWait();
+        }
+
+        chainPasses.put(chain.getName(), nextPass);
+        chainTasks.put(chain.getName(), tasks);
+        scheduleFetcher(chain, nextFetch, tasks);
+
+    }
+
+    /**
+     * Drops the pass an antenna chain picked, and picks again after the error wait
+     * <p>
+     * The pass's tasks that haven't run yet are canceled, including the next
+     * pass fetcher at its set time. Does nothing if the chain already moved
+     * on to another pass.
+     *
+     * @param chain antenna chain
+     * @param pass  pass picked by the chain
+     */
+    private synchronized void dropPass(AntennaChain chain, SatellitePass pass) {
+
+        if (!isCurrentPass(chain, pass)) {
+            return;
         }
 
-        // schedule fetching of next pass
-        scheduleTask(new FetcherTask(this), nextFetch, "Next pass fetcher");
-        log.info("Scheduled fetcher: {}", nextFetch);
+        List<ScheduledTaskDetails> tasks = new ArrayList<>();
+
+        chainTasks.get(chain.getName()).forEach(taskRegistry::cancel);
+        chainPasses.put(chain.getName(), null);
+        chainTasks.put(chain.getName(), tasks);
+        scheduleFetcher(chain, afterErrorWait(), tasks);
+
+    }
+
+    /**
+     * Whether a pass is still the one an antenna chain picked last
+     *
+     * @param chain antenna chain
+     * @param pass  pass
+     * @return true if the chain hasn't dropped the pass or moved on
+     */
+    private synchronized boolean isCurrentPass(AntennaChain chain, SatellitePass pass) {
+        return chainPasses.get(chain.getName()) == pass;
+    }
+
+    /**
+     * Schedules fetching of the next pass on an antenna chain
+     *
+     * @param chain     antenna chain
+     * @param nextFetch fetch time
+     * @param tasks     tasks of the chain's pass, the fetcher is added to
+     */
+    private void scheduleFetcher(AntennaChain chain, Date nextFetch, List<ScheduledTaskDetails> tasks) {
+        tasks.add(scheduleTask(new FetcherTask(this, chain), nextFetch, "Next pass fetcher for " + chain.getName()));
+        log.info("Scheduled fetcher for {}: {}", chain.getName(), nextFetch);
+    }
 
+    /**
+     * Time the scheduling is retried after an error
+     *
+     * @return now + scheduler error wait
+     */
+    private Date afterErrorWait() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.SECOND, config.getSchedulerErrorWait());
+        return calendar.getTime();
     }
 
     /**
-     * Schedules tracking
+     * Schedules a pass
      * 
-     * Tracking starts at the next pass rise time.
+     * Tracking and Doppler correction need the pass details, which are
+     * fetched shortly before the pass rises; the shell commands are
+     * scheduled right away. Passes below the tracking elevation threshold
+     * are never picked, see
+     * {@link com.ultimalabs.sancho.predictclient.util.PassSelector}.
      *
-     * @param passData pass data
-     * @return true if tracking was scheduled successfully
+     * @param chain    antenna chain
+     * @param passData pass data, without details
+     * @param tasks    tasks of the pass, the scheduled tasks are added to
      */
-    private boolean scheduleTracking(SatellitePass passData) {
+    private void schedulePass(AntennaChain chain, SatellitePass passData, List<ScheduledTaskDetails> tasks) {
 
         Date trackerDate = passData.getRisePoint().getT();
         Date fetcherDate = passData.getSetPoint().getT();
-        double maxElevation = passData.getMidPoint().getEl();
-        double trackingElevationThreshold = passData.getSatelliteData().getTrackingElevationThreshold();
-        boolean rotatorEnabled = passData.getSatelliteData().isRotatorEnabled();
-        double stepSize = passData.getSatelliteData().getStepSize();
         String riseShellCmdSubstituted = passData.getSatelliteData().getSatRiseShellCmdSubstituted();
         String setShellCmdSubstituted = passData.getSatelliteData().getSatSetShellCmdSubstituted();
 
-        // skip tracking and command execution if the maximum elevation
-        // is below the tracking threshold
-        if (maxElevation < trackingElevationThreshold) {
-            log.info("Skipped tracking: maximum elevation ({}) below the tracking threshold ({}).", maxElevation,
-                    trackingElevationThreshold);
-            return true;
+        idleModeService.passScheduled(trackerDate, fetcherDate);
+
+        // schedule the pass details fetch, for tracking and Doppler correction
+        if (isTracked(passData) || isDopplerCorrected(chain, passData)) {
+            Date detailsDate = new Date(Math.max(System.currentTimeMillis(),
+                    trackerDate.getTime() - PASS_DETAILS_LEAD * 1000));
+            tasks.add(scheduleTask(new PassDetailsTask(this, chain, passData), detailsDate,
+                    "Pass details " + passData.getSatelliteData().getName() + " rising at " + trackerDate
+                            + " on " + chain.getName()));
+            log.info("Scheduled pass details fetch: {} at {}", passData.getSatelliteData().getName(), detailsDate);
         }
 
+        // schedule rise-time shell cmd execution
+        if (!riseShellCmdSubstituted.equals("")) {
+            tasks.add(scheduleTask(new ShellCmdTask(riseShellCmdSubstituted, shellExecService), trackerDate,
+                    "Rise-time command execution: " + riseShellCmdSubstituted));
+            log.info("Scheduled rise-time cmd exec: {} at {}", riseShellCmdSubstituted, trackerDate);
+        }
+
+        // schedule set-time shell cmd execution
+        if (!setShellCmdSubstituted.equals("")) {
+            tasks.add(scheduleTask(new ShellCmdTask(setShellCmdSubstituted, shellExecService), fetcherDate,
+                    "Set-time command execution: " + setShellCmdSubstituted));
+            log.info("Scheduled set-time cmd exec: {} at {}", setShellCmdSubstituted, fetcherDate);
+        }
+
+    }
+
+    /**
+     * Fetches the pass details, and schedules tracking and Doppler correction
+     * 
+     * Tracking starts at the pass rise time. If the details can't be fetched
+     * or the rotator can't be parked, the pass is dropped, as it can't be
+     * tracked, and the chain picks a pass again after the error wait.
+     *
+     * @param chain   antenna chain
+     * @param summary pass data, without details
+     */
+    public void scheduleTracking(AntennaChain chain, SatellitePass summary) {
+
+        if (!isCurrentPass(chain, summary)) {
+            log.info("Tracking canceled: {} is no longer scheduled on {}.", summary.getSatelliteData().getName(),
+                    chain.getName());
+            return;
+        }
+
+        SatellitePass passData = predictClientService.fetchPassDetails(summary);
+
+        if (passData == null) {
+            log.error("Tracking canceled: no pass details for {}.", summary.getSatelliteData().getName());
+            dropPass(chain, summary);
+            return;
+        }
+
+        Date trackerDate = passData.getRisePoint().getT();
+        Date fetcherDate = passData.getSetPoint().getT();
+
         // schedule tracking
-        if (rotatorEnabled && stepSize != 0.0) {
+        if (isTracked(passData)) {
 
             // convert the pass data into tracking format
             TrackingData trackingData = PassDataToTrackingDataConverter.convert(passData);
 
             // park the rotator in the starting position
-            boolean parkOk = hamlibClientService.parkRotator(trackingData.getRiseAzimuthElevation());
-
-            if (parkOk) {
-                // schedule tracker task
-                scheduleTask(new TrackerTask(hamlibClientService, trackingData), trackerDate,
-                        "Tracking " + passData.getSatelliteData().getName() + " until " + fetcherDate);
-                log.info("Scheduled tracking: {}, {} - {}", passData.getSatelliteData().getName(), trackerDate,
-                        passData.getSetPoint().getT());
-            } else {
+            boolean parkOk = hamlibClientService.parkRotator(chain.getName(),
+                    trackingData.getRiseAzimuthElevation());
+
+            if (!parkOk) {
                 log.error("Tracking canceled due to parking error.");
-                return false;
+                dropPass(chain, summary);
+                return;
             }
-        }
 
-        // schedule rise-time shell cmd execution
-        if (!riseShellCmdSubstituted.equals("")) {
-            scheduleTask(new ShellCmdTask(riseShellCmdSubstituted, shellExecService), trackerDate,
-                    "Rise-time command execution: " + riseShellCmdSubstituted);
-            log.info("Scheduled rise-time cmd exec: {} at {}", riseShellCmdSubstituted, trackerDate);
+            // schedule tracker task
+            scheduleTask(new TrackerTask(hamlibClientService, chain.getName(), trackingData,
+                    chain.rotatorSettings(config)), trackerDate, fetcherDate,
+                    "Tracking " + passData.getSatelliteData().getName() + " until " + fetcherDate
+                            + " on " + chain.getName());
+            log.info("Scheduled tracking on {}: {}, {} - {}", chain.getName(),
+                    passData.getSatelliteData().getName(), trackerDate, passData.getSetPoint().getT());
         }
 
-        // schedule set-time shell cmd execution
-        if (!setShellCmdSubstituted.equals("")) {
-            scheduleTask(new ShellCmdTask(setShellCmdSubstituted, shellExecService), fetcherDate,
-                    "Set-time command execution: " + setShellCmdSubstituted);
-            log.info("Scheduled set-time cmd exec: {} at {}", setShellCmdSubstituted, fetcherDate);
+        // schedule Doppler correction
+        if (isDopplerCorrected(chain, passData)) {
+
+            RadioConfig radio = chain.radioSettings(config);
+            DopplerSchedule dopplerSchedule = PassDataToTrackingDataConverter.convertDoppler(passData,
+                    Math.round(radio.getDopplerStepSize() * 1000));
+
+            if (dopplerSchedule != null) {
+                scheduleTask(new DopplerTask(hamlibClientService, chain.getName(), dopplerSchedule, radio),
+                        trackerDate, fetcherDate,
+                        "Doppler correction " + passData.getSatelliteData().getName() + " until " + fetcherDate
+                                + " on " + chain.getName());
+                log.info("Scheduled Doppler correction on {}: {}, {} - {}", chain.getName(),
+                        passData.getSatelliteData().getName(), trackerDate, fetcherDate);
+            }
         }
 
-        return true;
+    }
 
+    /**
+     * Whether the rotator tracks a pass
+     *
+     * @param passData pass data
+     * @return true if the pass is tracked
+     */
+    private boolean isTracked(SatellitePass passData) {
+        return passData.getSatelliteData().isRotatorEnabled() && passData.getSatelliteData().getStepSize() != 0.0;
+    }
+
+    /**
+     * Whether the chain's radio is Doppler-corrected during a pass
+     *
+     * @param chain    antenna chain
+     * @param passData pass data
+     * @return true if Doppler correction is needed
+     */
+    private boolean isDopplerCorrected(AntennaChain chain, SatellitePass passData) {
+        return passData.getSatelliteData().isRadioControlEnabled()
+                && chain.radioSettings(config).getDopplerStepSize() > 0;
     }
 
     /**
@@ -187,17 +356,36 @@ public class SchedulerService {
         taskScheduler.execute(new ShutdownTask(this));
     }
 
+    /**
+     * Cancels the scheduled tasks that haven't started yet
+     */
+    public void cancelTasks() {
+        taskRegistry.cancelAll();
+    }
+
     /**
      * Schedule a task for execution and add it to the task list
      * 
      * @param task        a task scheduled for execution
      * @param startTime   task start time
      * @param description task description
+     * @return task details
+     */
+    private ScheduledTaskDetails scheduleTask(Runnable task, Date startTime, String description) {
+        return scheduleTask(task, startTime, startTime, description);
+    }
+
+    /**
+     * Schedule a task that takes up time for execution and add it to the task list
+     *
+     * @param task        a task scheduled for execution
+     * @param startTime   task start time
+     * @param endTime     time the task runs until
+     * @param description task description
+     * @return task details
      */
-    private void scheduleTask(Runnable task, Date startTime, String description) {
-        ScheduledFuture<?> future = taskScheduler.schedule(task, startTime);
-        ScheduledTaskDetails taskDetails = new ScheduledTaskDetails(future, description, startTime);
-        scheduledTasks.add(taskDetails);
+    private ScheduledTaskDetails scheduleTask(Runnable task, Date startTime, Date endTime, String description) {
+        return taskRegistry.schedule(task, startTime, endTime, description);
     }
 
 }
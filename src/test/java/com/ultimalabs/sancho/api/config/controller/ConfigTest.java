@@ -40,11 +40,11 @@ public class ConfigTest {
         public ConfigTest() {
 
                 StationDetails stationDetails = new StationDetails("Test station", 1.0, 1.0, 1);
-                RotatorConfig rotatorConfig = new RotatorConfig("127.0.0.1", 4533, 0.25);
-                RadioConfig radioConfig = new RadioConfig("127.0.0.1", 4532);
+                RotatorConfig rotatorConfig = new RotatorConfig("127.0.0.1", 4533, 0.25, 30, 0.5, 2, false, 0, 60);
+                RadioConfig radioConfig = new RadioConfig("127.0.0.1", 4532, 0.5, 10);
 
-                SatelliteData sat1 = new SatelliteData("25338", "NOAA15", 137.62, 10.0, 10.0, 1, false, false, "", "");
-                SatelliteData sat2 = new SatelliteData("28654", "NOAA18", 137.9125, 10.0, 10.0, 1, false, false, "",
+                SatelliteData sat1 = new SatelliteData("25338", "NOAA15", 137.62, 0, 10.0, 10.0, 1, 1, 0, false, false, "", "");
+                SatelliteData sat2 = new SatelliteData("28654", "NOAA18", 137.9125, 0, 10.0, 10.0, 1, 1, 0, false, false, "",
                                 "");
 
                 List<SatelliteData> emptySatsList = new ArrayList<>();
@@ -53,10 +53,10 @@ public class ConfigTest {
                 satellites.add(sat1);
                 satellites.add(sat2);
 
-                sanchoConfigOk = new SanchoConfig(true, 180, "https://sattrackapi.ultima.hr:8443/api/v1",
-                                stationDetails, rotatorConfig, radioConfig, satellites);
-                sanchoConfigNotOk = new SanchoConfig(true, 180, "https://sattrackapi.ultima.hr:8443/api/v1",
-                                stationDetails, rotatorConfig, radioConfig, emptySatsList);
+                sanchoConfigOk = new SanchoConfig(true, 180, 1, 300, "https://sattrackapi.ultima.hr:8443/api/v1", "",
+                                stationDetails, rotatorConfig, radioConfig, new ArrayList<>(), satellites);
+                sanchoConfigNotOk = new SanchoConfig(true, 180, 1, 300, "https://sattrackapi.ultima.hr:8443/api/v1", "",
+                                stationDetails, rotatorConfig, radioConfig, new ArrayList<>(), emptySatsList);
 
         }
 
@@ -0,0 +1,34 @@
+package com.ultimalabs.sancho.common.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WakeupMeterTest {
+
+    @DisplayName("Test counting wakeups over the last minute")
+    @Test
+    void perMinute()
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WakeupMeter meter = new WakeupMeter(meterRegistry);
+        long start = 1_600_000_000_000L;
+
+        for (int i = 0; i < 120; i++) {
+            meter.record(i % 2 == 0 ? "scheduler" : "hamlib", start + i * 500L);
+        }
+
+        // the last 60 seconds, one wakeup every 500 ms
+        assertEquals(120, meter.perMinute(start + 59_999));
+        assertEquals(60, meter.perMinute(start + 89_999));
+        assertEquals(0, meter.perMinute(start + 200_000));
+
+        meter.record("scheduler", start + 200_000);
+
+        assertEquals(1, meter.perMinute(start + 200_000));
+        assertEquals(61, meterRegistry.get("sancho.wakeups").tag("source", "scheduler").counter().count());
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.ultimalabs.sancho.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+
+    private static long[] interval(long start, long end) {
+        return new long[]{start, end};
+    }
+
+    @DisplayName("Test overlap queries, pages and the active intervals")
+    @Test
+    void overlapping()
+    {
+        IntervalTree<long[]> tree = new IntervalTree<>();
+        long[] a = interval(0, 10);
+        long[] b = interval(5, 5);
+        long[] c = interval(8, 20);
+        long[] d = interval(30, 40);
+
+        tree.add(d[0], d[1], d);
+        tree.add(c[0], c[1], c);
+        tree.add(a[0], a[1], a);
+        tree.add(b[0], b[1], b);
+
+        assertEquals(Arrays.asList(a, b, c, d), tree.values());
+        assertEquals(Arrays.asList(a, c), tree.overlapping(9, 15));
+        assertEquals(Arrays.asList(c, d), tree.overlapping(20, 30));
+        assertEquals(Collections.singletonList(c), tree.overlapping(9, 30, 1, 1));
+        assertEquals(Arrays.asList(a, b), tree.activeAt(5));
+        assertTrue(tree.activeAt(25).isEmpty());
+
+        assertTrue(tree.remove(c));
+        assertFalse(tree.remove(c));
+        assertEquals(3, tree.size());
+        assertEquals(Collections.singletonList(a), tree.overlapping(9, 15));
+        assertThrows(IllegalArgumentException.class, () -> tree.add(0, 1, a));
+    }
+
+    @DisplayName("Test finding free windows")
+    @Test
+    void freeWindows()
+    {
+        IntervalTree<long[]> tree = new IntervalTree<>();
+        long[] a = interval(0, 10);
+        long[] b = interval(12, 20);
+        long[] c = interval(25, 25);
+
+        tree.add(a[0], a[1], a);
+        tree.add(b[0], b[1], b);
+        tree.add(c[0], c[1], c);
+
+        assertEquals(10, tree.nextFreeWindow(0, 2));
+        assertEquals(20, tree.nextFreeWindow(0, 3));
+        assertEquals(25, tree.nextFreeWindow(0, 6));
+        assertEquals(25, tree.nextFreeWindow(21, 5));
+        assertEquals(50, tree.nextFreeWindow(50, 100));
+    }
+
+    @DisplayName("Test the queries against brute force")
+    @Test
+    void bruteForce()
+    {
+        Random random = new Random(1);
+        IntervalTree<long[]> tree = new IntervalTree<>();
+        List<long[]> intervals = new ArrayList<>();
+
+        for (int round = 0; round < 2000; round++) {
+
+            if (!intervals.isEmpty() && random.nextInt(3) == 0) {
+                long[] removed = intervals.remove(random.nextInt(intervals.size()));
+                assertTrue(tree.remove(removed));
+            } else {
+                long start = random.nextInt(1000);
+                long[] added = interval(start, start + random.nextInt(50));
+                intervals.add(added);
+                tree.add(added[0], added[1], added);
+            }
+
+            long from = random.nextInt(1100) - 50;
+            long to = from + random.nextInt(100);
+            List<long[]> expected = new ArrayList<>();
+
+            for (long[] interval : intervals) {
+                if (interval[0] <= to && interval[1] >= from) {
+                    expected.add(interval);
+                }
+            }
+
+            List<long[]> actual = tree.overlapping(from, to);
+            actual.sort(Comparator.comparingLong(interval -> interval[0]));
+
+            assertEquals(intervals.size(), tree.size());
+            assertEquals(expected.size(), actual.size());
+            assertTrue(actual.containsAll(expected));
+
+            long length = random.nextInt(20);
+            long window = tree.nextFreeWindow(from, length);
+            long expectedWindow = from;
+            boolean moved = true;
+
+            while (moved) {
+                moved = false;
+                for (long[] interval : intervals) {
+                    if (interval[0] < expectedWindow + length && interval[1] > expectedWindow) {
+                        expectedWindow = interval[1];
+                        moved = true;
+                    }
+                }
+            }
+
+            assertEquals(expectedWindow, window);
+
+        }
+    }
+
+}
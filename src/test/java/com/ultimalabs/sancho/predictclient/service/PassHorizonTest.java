@@ -0,0 +1,199 @@
+package com.ultimalabs.sancho.predictclient.service;
+
+import com.ultimalabs.sancho.common.config.AntennaChain;
+import com.ultimalabs.sancho.common.config.RadioConfig;
+import com.ultimalabs.sancho.common.config.RotatorConfig;
+import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.common.config.SatelliteData;
+import com.ultimalabs.sancho.common.config.StationDetails;
+import com.ultimalabs.sancho.common.model.PassEventDataPoint;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PassHorizonTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long NOW = 1_600_000_000_000L;
+
+    private static final SatelliteData SAT_A = sat("A");
+    private static final SatelliteData SAT_B = sat("B");
+
+    private static SatelliteData sat(String id) {
+        return new SatelliteData(id, id, 137.62, 0, 10, 10, 0, 0.5, 0, false, false, "", "");
+    }
+
+    private static SatellitePass pass(SatelliteData sat, long rise, long set) {
+
+        SatellitePass pass = new SatellitePass();
+        PassEventDataPoint risePoint = new PassEventDataPoint();
+        PassEventDataPoint midPoint = new PassEventDataPoint();
+        PassEventDataPoint setPoint = new PassEventDataPoint();
+
+        risePoint.setT(new Date(NOW + rise * MINUTE));
+        midPoint.setT(new Date(NOW + (rise + set) / 2 * MINUTE));
+        midPoint.setEl(45);
+        setPoint.setT(new Date(NOW + set * MINUTE));
+
+        pass.setRisePoint(risePoint);
+        pass.setMidPoint(midPoint);
+        pass.setSetPoint(setPoint);
+        pass.setDuration((set - rise) * 60.0);
+        pass.setSatelliteData(sat);
+
+        return pass;
+
+    }
+
+    private static SanchoConfig config(List<AntennaChain> chains) {
+        return new SanchoConfig(true, 180, 0, 0, "http://sattrackapi", "",
+                new StationDetails("Test station", 45.0, 16.0, 100),
+                new RotatorConfig("", 0, 0.25, 30, 0.5, 2, false, 0, 0), new RadioConfig("", 0, 0, 10),
+                chains, Arrays.asList(SAT_A, SAT_B));
+    }
+
+    private static List<SatellitePass> horizon(PassHorizon passHorizon) {
+        return passHorizon.getPasses(new Date(0), new Date(Long.MAX_VALUE), 0, Integer.MAX_VALUE);
+    }
+
+    @DisplayName("Test fetching satellites only when they run out of passes or get too old")
+    @Test
+    void fetches()
+    {
+        SanchoConfig config = config(new ArrayList<>());
+        AntennaChain chain = AntennaChain.of(config).get(0);
+        StubPredictClientService predictClient = new StubPredictClientService(config);
+        PassHorizon passHorizon = new PassHorizon(config, predictClient);
+
+        SatellitePass a1 = pass(SAT_A, 10, 20);
+        SatellitePass b1 = pass(SAT_B, 30, 40);
+        SatellitePass b2 = pass(SAT_B, 500, 510);
+        predictClient.passes.put("A", Collections.singletonList(a1));
+        predictClient.passes.put("B", Arrays.asList(b1, b2));
+
+        // both satellites in a single fetch; the pick leaves both the queue and the index
+        assertSame(a1, passHorizon.getNextPass(chain, NOW));
+        assertEquals(Collections.singletonList(Arrays.asList("A", "B")), predictClient.fetches);
+        assertEquals(Arrays.asList(b1, b2), horizon(passHorizon));
+
+        // A ran out of passes, B didn't
+        SatellitePass a2 = pass(SAT_A, 100, 110);
+        predictClient.passes.put("A", Arrays.asList(a1, a2));
+
+        assertSame(b1, passHorizon.getNextPass(chain, NOW + 20 * MINUTE));
+        assertEquals(Collections.singletonList("A"), predictClient.fetches.get(1));
+        assertEquals(Arrays.asList(a2, b2), horizon(passHorizon));
+
+        // nothing is fetched while the satellites have passes
+        assertSame(a2, passHorizon.getNextPass(chain, NOW + 40 * MINUTE));
+        assertEquals(2, predictClient.fetches.size());
+
+        // old passes are fetched again, and kept when the fetch fails
+        predictClient.passes.clear();
+
+        assertSame(b2, passHorizon.getNextPass(chain, NOW + 7 * 60 * MINUTE));
+        assertEquals(Arrays.asList("A", "B"), predictClient.fetches.get(2));
+        assertTrue(horizon(passHorizon).isEmpty());
+    }
+
+    @DisplayName("Test dropping passes that are over without being scheduled")
+    @Test
+    void endedPasses()
+    {
+        SanchoConfig config = config(new ArrayList<>());
+        AntennaChain chain = AntennaChain.of(config).get(0);
+        StubPredictClientService predictClient = new StubPredictClientService(config);
+        PassHorizon passHorizon = new PassHorizon(config, predictClient);
+
+        SatellitePass a1 = pass(SAT_A, 10, 20);
+        SatellitePass a2 = pass(SAT_A, 100, 110);
+        SatellitePass b1 = pass(SAT_B, 30, 40);
+        predictClient.passes.put("A", Arrays.asList(a1, a2));
+        predictClient.passes.put("B", Collections.singletonList(b1));
+
+        assertSame(a1, passHorizon.getNextPass(chain, NOW));
+
+        // B's pass ended without being scheduled, and B can't be fetched again
+        predictClient.passes.remove("B");
+
+        assertSame(a2, passHorizon.getNextPass(chain, NOW + 50 * MINUTE));
+        assertEquals(Collections.singletonList("B"), predictClient.fetches.get(1));
+        assertTrue(horizon(passHorizon).isEmpty());
+    }
+
+    @DisplayName("Test chains that are still busy, and passes fetched again while they're on")
+    @Test
+    void busyChains()
+    {
+        AntennaChain first = new AntennaChain("first", "", 0, "", 0, 0, 0, null, null);
+        AntennaChain second = new AntennaChain("second", "", 0, "", 0, 0, 0, null, null);
+        SanchoConfig config = config(Arrays.asList(first, second));
+        StubPredictClientService predictClient = new StubPredictClientService(config);
+        PassHorizon passHorizon = new PassHorizon(config, predictClient);
+
+        SatellitePass a1 = pass(SAT_A, 10, 30);
+        SatellitePass b1 = pass(SAT_B, 20, 40);
+        predictClient.passes.put("A", Collections.singletonList(a1));
+        predictClient.passes.put("B", Collections.singletonList(b1));
+
+        SatellitePass firstPick = passHorizon.getNextPass(first, NOW);
+        SatellitePass secondPick = passHorizon.getNextPass(second, NOW);
+
+        // the overlapping passes go to different chains; the first pick, fetched again, is left out
+        assertNotNull(firstPick);
+        assertNotNull(secondPick);
+        assertNotSame(firstPick, secondPick);
+        assertEquals(2, predictClient.fetches.size());
+
+        // the first chain is free again, and doesn't get the second chain's pass back
+        assertNull(passHorizon.getNextPass(first, NOW + 35 * MINUTE));
+    }
+
+    /**
+     * Predict client stub; returns the passes set up by the test, and records the fetches
+     */
+    private static final class StubPredictClientService extends PredictClientService {
+
+        private final Map<String, List<SatellitePass>> passes = new HashMap<>();
+        private final List<List<String>> fetches = new ArrayList<>();
+
+        private StubPredictClientService(SanchoConfig config)
+        {
+            super(config, null, null, null);
+        }
+
+        @Override
+        public Map<String, List<SatellitePass>> fetchPasses(List<SatelliteData> satellites, long until)
+        {
+            fetches.add(satellites.stream().map(SatelliteData::getId).collect(Collectors.toList()));
+
+            Map<String, List<SatellitePass>> fetched = new HashMap<>();
+
+            for (SatelliteData sat : satellites) {
+                if (passes.containsKey(sat.getId())) {
+                    fetched.put(sat.getId(), passes.get(sat.getId()));
+                }
+            }
+
+            return fetched;
+        }
+
+        @Override
+        public void substituteShellVariables(SatellitePass pass)
+        {
+        }
+
+    }
+
+}
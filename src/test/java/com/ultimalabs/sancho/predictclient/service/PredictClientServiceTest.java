@@ -0,0 +1,151 @@
+package com.ultimalabs.sancho.predictclient.service;
+
+import com.ultimalabs.sancho.common.config.RadioConfig;
+import com.ultimalabs.sancho.common.config.RotatorConfig;
+import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.common.config.SatelliteData;
+import com.ultimalabs.sancho.common.config.StationDetails;
+import com.ultimalabs.sancho.common.model.PassEventDataPoint;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PredictClientServiceTest {
+
+    private static final long RISE = 1_600_000_000_000L;
+
+    private ThreadPoolTaskExecutor executor;
+    private StubRestTemplate restTemplate;
+    private PredictClientService service;
+
+    @BeforeEach
+    void setUp()
+    {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+
+        SanchoConfig config = new SanchoConfig(true, 180, 0, 0, "http://sattrackapi", "",
+                new StationDetails("Test station", 45.0, 16.0, 100),
+                new RotatorConfig("", 0, 0.25, 30, 0.5, 2, false, 0, 60), new RadioConfig("", 0, 0, 10),
+                new ArrayList<>(), new ArrayList<>());
+
+        restTemplate = new StubRestTemplate();
+        service = new PredictClientService(config, new TleCatalog(config), restTemplate, executor);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        executor.shutdown();
+    }
+
+    private static SatelliteData sat(String id, boolean rotator) {
+        return new SatelliteData(id, id, 137.62, 0, 10, 10, 0, 0.5, 0, rotator, false, "", "");
+    }
+
+    private static SatellitePass pass(long rise) {
+
+        SatellitePass pass = new SatellitePass();
+        PassEventDataPoint risePoint = new PassEventDataPoint();
+        PassEventDataPoint setPoint = new PassEventDataPoint();
+
+        risePoint.setT(new Date(rise));
+        setPoint.setT(new Date(rise + 600_000));
+        pass.setRisePoint(risePoint);
+        pass.setSetPoint(setPoint);
+
+        return pass;
+
+    }
+
+    @DisplayName("Test partial results when satellites fail or miss the deadline")
+    @Test
+    void fetchDeadline()
+    {
+        List<SatelliteData> sats = Arrays.asList(sat("ok", false), sat("slow", false), sat("failing", false));
+
+        long start = System.currentTimeMillis();
+        Map<String, List<SatellitePass>> passes = service.fetchPasses(sats, Long.MAX_VALUE, 500);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(1, passes.size());
+        assertEquals(1, passes.get("ok").size());
+        assertSame(sats.get(0), passes.get("ok").get(0).getSatelliteData());
+        assertTrue(elapsed < 2000, "waited " + elapsed + " ms");
+    }
+
+    @DisplayName("Test matching the pass details with the summary")
+    @Test
+    void passDetails()
+    {
+        SatellitePass summary = pass(RISE);
+        summary.setSatelliteData(sat("ok", true));
+
+        restTemplate.rise = RISE + 30_000;
+        SatellitePass details = service.fetchPassDetails(summary);
+
+        assertNotNull(details);
+        assertTrue(restTemplate.lastUrl.endsWith("/step/0.5"));
+        assertSame(summary.getSatelliteData(), details.getSatelliteData());
+
+        // SatTrackAPI already returns the next pass
+        restTemplate.rise = RISE + 90 * 60_000;
+
+        assertNull(service.fetchPassDetails(summary));
+
+        summary.setSatelliteData(sat("failing", true));
+
+        assertNull(service.fetchPassDetails(summary));
+
+        // a summary is enough without tracking and Doppler correction
+        summary.setSatelliteData(sat("ok", false));
+
+        assertSame(summary, service.fetchPassDetails(summary));
+    }
+
+    /**
+     * SatTrackAPI stub; the satellite id decides the response
+     */
+    private static final class StubRestTemplate extends RestTemplate {
+
+        private volatile long rise = RISE;
+        private volatile String lastUrl;
+
+        @Override
+        public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables)
+        {
+            lastUrl = url;
+
+            if (url.contains("/passes/failing/")) {
+                throw new RestClientException("Service unavailable");
+            }
+
+            if (url.contains("/passes/slow/")) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return responseType.cast(pass(rise));
+        }
+
+    }
+
+}
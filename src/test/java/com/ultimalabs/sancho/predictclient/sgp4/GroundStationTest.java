@@ -0,0 +1,44 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroundStationTest {
+
+    @DisplayName("Test Greenwich mean sidereal time")
+    @Test
+    void gmst()
+    {
+        // Vallado, example 3-5: 1992-08-20 12:14 UT1
+        assertEquals(152.578787810, Math.toDegrees(GroundStation.gmst(714_312_840_000L)), 1e-6);
+    }
+
+    @DisplayName("Test look angles to a satellite overhead")
+    @Test
+    void overhead()
+    {
+        long t = 714_312_840_000L;
+        double gmst = GroundStation.gmst(t);
+        GroundStation station = new GroundStation(0, 0, 0);
+
+        // 500 km over the station, moving north, in TEME
+        double r = 6378.137 + 500;
+        double[] state = {r * Math.cos(gmst), r * Math.sin(gmst), 0, 0, 0, 7.6};
+        double[] look = station.lookAngles(state, t);
+
+        assertEquals(90, look[1], 1e-6);
+        assertEquals(500, look[2], 1e-6);
+        assertEquals(0, look[3], 1e-6);
+
+        // a moment later it's north of the station and receding
+        state = new double[]{r * Math.cos(gmst), r * Math.sin(gmst), 100, 0, 0, 7.6};
+        look = station.lookAngles(state, t);
+
+        assertEquals(0, look[0], 1e-6);
+        assertTrue(look[1] < 90);
+        assertTrue(look[3] > 0);
+    }
+
+}
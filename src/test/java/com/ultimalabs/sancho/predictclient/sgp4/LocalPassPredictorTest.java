@@ -0,0 +1,77 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import com.ultimalabs.sancho.common.model.PassEventDataPoint;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalPassPredictorTest {
+
+    private static final Tle NOAA_15 = new Tle("NOAA 15",
+            "1 25338U 98030A   21290.51463216  .00000036  00000-0  33519-4 0  9994",
+            "2 25338  98.6864 315.4383 0010271  40.6218 319.5727 14.26104897219044");
+
+    private static final double FREQUENCY = 137_620_000;
+
+    private static LocalPassPredictor predictor() {
+        return new LocalPassPredictor(new Sgp4(NOAA_15), new GroundStation(46.1685, 15.7484, 380));
+    }
+
+    @DisplayName("Test pass prediction")
+    @Test
+    void nextPass()
+    {
+        LocalPassPredictor predictor = predictor();
+        long now = NOAA_15.getEpochMillis();
+        SatellitePass pass = predictor.nextPass(now, 10, 0.5, FREQUENCY);
+
+        long rise = pass.getRisePoint().getT().getTime();
+        long mid = pass.getMidPoint().getT().getTime();
+        long set = pass.getSetPoint().getT().getTime();
+
+        assertEquals(NOAA_15.toString(), pass.getTle());
+        assertTrue(now < rise && rise < mid && mid < set);
+        assertEquals((rise - now) / 1000.0, pass.getWait(), 1e-9);
+        assertEquals((set - rise) / 1000.0, pass.getDuration(), 1e-9);
+        assertTrue(pass.getDuration() > 60 && pass.getDuration() < 1200);
+
+        assertEquals(10, pass.getRisePoint().getEl(), 0.01);
+        assertEquals(10, pass.getSetPoint().getEl(), 0.01);
+        assertTrue(predictor.dataPoint(rise - 1000, FREQUENCY).getEl() < 10);
+        assertTrue(predictor.dataPoint(set + 1000, FREQUENCY).getEl() < 10);
+
+        // approaching at rise, receding at set
+        assertTrue(pass.getRisePoint().getDop() > 0);
+        assertTrue(pass.getSetPoint().getDop() < 0);
+        assertTrue(pass.getRisePoint().getDst() > pass.getMidPoint().getDst());
+
+        List<PassEventDataPoint> details = pass.getEventDetails();
+
+        assertEquals(rise, details.get(0).getT().getTime());
+        assertEquals(set, details.get(details.size() - 1).getT().getTime());
+
+        for (int i = 0; i < details.size() - 1; i++) {
+            assertEquals(500, details.get(i + 1).getT().getTime() - details.get(i).getT().getTime(), 500);
+            assertTrue(details.get(i).getEl() <= pass.getMidPoint().getEl() + 1e-6);
+            assertTrue(details.get(i).getEl() >= 10 - 0.01);
+        }
+    }
+
+    @DisplayName("Test that a pass in progress is skipped")
+    @Test
+    void passInProgress()
+    {
+        LocalPassPredictor predictor = predictor();
+        SatellitePass first = predictor.nextPass(NOAA_15.getEpochMillis(), 10, 0, FREQUENCY);
+        long mid = first.getMidPoint().getT().getTime();
+        SatellitePass second = predictor.nextPass(mid, 10, 0, FREQUENCY);
+
+        assertNull(first.getEventDetails());
+        assertTrue(second.getRisePoint().getT().getTime() > first.getSetPoint().getT().getTime());
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Sgp4Test {
+
+    /**
+     * Test case from Vallado et al., "Revisiting Spacetrack Report #3"
+     */
+    private static final Tle VANGUARD = new Tle("VANGUARD 1",
+            "1 00005U 58002B   00179.78495062  .00000023  00000-0  28098-4 0  4753",
+            "2 00005  34.2682 348.7242 1859667 331.7664  19.3264 10.82419157413667");
+
+    private static final Tle GPS = new Tle(null,
+            "1 20413U 83020D   05363.79166667  .00000000  00000-0  00000+0 0  7041",
+            "2 20413  55.4408  61.4858 0012647 130.0000 230.0000  2.00561730111111");
+
+    private static void assertState(double[] expected, double[] actual) {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected[i], actual[i], 1e-3);
+            assertEquals(expected[i + 3], actual[i + 3], 1e-6);
+        }
+    }
+
+    @DisplayName("Test TLE parsing")
+    @Test
+    void parse()
+    {
+        Tle tle = Tle.parse(VANGUARD.toString());
+
+        assertEquals("VANGUARD 1", tle.getName());
+        assertEquals("5", tle.getCatalogNumber());
+        assertEquals(0.28098e-4, tle.getBstar(), 1e-12);
+        assertEquals(0.1859667, tle.getEccentricity(), 1e-12);
+        assertEquals(Math.toRadians(34.2682), tle.getInclination(), 1e-12);
+        assertEquals(10.82419157 * 2 * Math.PI / 1440, tle.getMeanMotion(), 1e-12);
+        // 2000-06-27 18:50:19.733568 UTC
+        assertEquals(962_131_819_734L, tle.getEpochMillis());
+    }
+
+    @DisplayName("Test propagation against the SGP4 reference vectors")
+    @Test
+    void referenceVectors()
+    {
+        Sgp4 sgp4 = new Sgp4(VANGUARD);
+
+        assertState(new double[]{7022.46529266, -1400.08296755, 0.03995155, 1.893841015, 6.405893759, 4.534807250},
+                sgp4.propagateMinutes(0));
+        assertState(new double[]{-7154.03120202, -3783.17682504, -3536.19412294,
+                4.741887409, -4.151817765, -2.093935425}, sgp4.propagateMinutes(360));
+    }
+
+    @DisplayName("Test deep-space orbit rejection")
+    @Test
+    void deepSpace()
+    {
+        assertFalse(Sgp4.isDeepSpace(VANGUARD));
+        assertTrue(Sgp4.isDeepSpace(GPS));
+        assertThrows(UnsupportedOperationException.class, () -> new Sgp4(GPS));
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.ultimalabs.sancho.predictclient.sgp4;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TleStoreTest {
+
+    private static final String VANGUARD_1 = "1 00005U 58002B   00179.78495062  .00000023  00000-0  28098-4 0  4753";
+    private static final String VANGUARD_2 = "2 00005  34.2682 348.7242 1859667 331.7664  19.3264 10.82419157413667";
+    private static final String NOAA_1 = "1 25338U 98030A   21290.51463216  .00000036  00000-0  33519-4 0  9994";
+    private static final String NOAA_2 = "2 25338  98.6864 315.4383 0010271  40.6218 319.5727 14.26104897219044";
+    private static final String NOAA_OLD_1 = "1 25338U 98030A   21289.51463216  .00000036  00000-0  33519-4 0  9993";
+    private static final String NOAA_OLD_2 = "2 25338  98.6864 314.4383 0010271  40.6218 319.5727 14.26104897219030";
+    private static final String ALPHA_1 = "1 A0001U 98030A   21290.51463216  .00000036 -11606-4 -33519-4 0  9994";
+    private static final String ALPHA_2 = "2 A0001  98.6864 315.4383 0010271  40.6218 319.5727 14.26104897219044";
+
+    private static TleStore parse(String... lines) {
+        return TleStore.parse(ByteBuffer.wrap(String.join("\r\n", lines).getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static void assertSameElements(Tle expected, Tle actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCatalogNumber(), actual.getCatalogNumber());
+        assertEquals(expected.getEpochMillis(), actual.getEpochMillis());
+        assertEquals(expected.getBstar(), actual.getBstar(), 1e-15);
+        assertEquals(expected.getInclination(), actual.getInclination(), 1e-15);
+        assertEquals(expected.getRaan(), actual.getRaan(), 1e-15);
+        assertEquals(expected.getEccentricity(), actual.getEccentricity(), 1e-15);
+        assertEquals(expected.getArgumentOfPerigee(), actual.getArgumentOfPerigee(), 1e-15);
+        assertEquals(expected.getMeanAnomaly(), actual.getMeanAnomaly(), 1e-15);
+        assertEquals(expected.getMeanMotion(), actual.getMeanMotion(), 1e-15);
+        assertEquals(expected.getLine1(), actual.getLine1());
+        assertEquals(expected.getLine2(), actual.getLine2());
+    }
+
+    @DisplayName("Test catalog parsing, in two and three line format")
+    @Test
+    void parse()
+    {
+        List<String> lines = Arrays.asList("VANGUARD 1", VANGUARD_1, VANGUARD_2, NOAA_OLD_1, NOAA_OLD_2,
+                "NOAA 15  ", "  " + NOAA_1, NOAA_2 + "  ", "", "1 broken", "garbage", ALPHA_1, ALPHA_2);
+        TleStore store = parse(lines.toArray(new String[0]));
+
+        assertEquals(3, store.size());
+        assertSameElements(new Tle("VANGUARD 1", VANGUARD_1, VANGUARD_2), store.find("00005"));
+        assertSameElements(new Tle("VANGUARD 1", VANGUARD_1, VANGUARD_2), store.find("5"));
+        assertSameElements(new Tle("NOAA 15", NOAA_1, NOAA_2), store.find("25338"));
+        assertSameElements(new Tle("garbage", ALPHA_1, ALPHA_2), store.find("A0001"));
+        assertEquals(-0.33519e-4, store.find("A0001").getBstar(), 1e-15);
+        assertNull(store.find("28654"));
+        assertNull(store.find("not a number"));
+
+        List<Tle> parsed = Tle.parseAll(lines);
+        assertEquals(4, parsed.size());
+    }
+
+    @DisplayName("Test that merging keeps the latest epoch of each object")
+    @Test
+    void merge()
+    {
+        TleStore current = parse(VANGUARD_1, VANGUARD_2, NOAA_1, NOAA_2);
+        TleStore older = parse(NOAA_OLD_1, NOAA_OLD_2);
+        TleStore newer = parse("NOAA 15", NOAA_1, NOAA_2);
+
+        TleStore merged = current.merge(older);
+
+        assertEquals(2, merged.size());
+        assertEquals(NOAA_1, merged.find("25338").getLine1());
+        assertNotNull(merged.find("5"));
+
+        merged = older.merge(newer);
+
+        assertEquals(1, merged.size());
+        assertEquals("NOAA 15", merged.find("25338").getName());
+        assertEquals("NOAA 15", current.merge(newer).find("25338").getName());
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.ultimalabs.sancho.predictclient.util;
+
+import com.ultimalabs.sancho.common.config.AntennaChain;
+import com.ultimalabs.sancho.common.config.SatelliteData;
+import com.ultimalabs.sancho.common.model.PassEventDataPoint;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PassSelectorTest {
+
+    private static final long MINUTE = 60_000;
+
+    private static SatellitePass pass(String satId, double priority, boolean rotator, long rise, long set,
+                                      double maxElevation) {
+
+        SatellitePass pass = new SatellitePass();
+        PassEventDataPoint risePoint = new PassEventDataPoint();
+        PassEventDataPoint midPoint = new PassEventDataPoint();
+        PassEventDataPoint setPoint = new PassEventDataPoint();
+
+        risePoint.setT(new Date(rise * MINUTE));
+        midPoint.setT(new Date((rise + set) / 2 * MINUTE));
+        midPoint.setEl(maxElevation);
+        setPoint.setT(new Date(set * MINUTE));
+
+        pass.setRisePoint(risePoint);
+        pass.setMidPoint(midPoint);
+        pass.setSetPoint(setPoint);
+        pass.setDuration((set - rise) * 60.0);
+        pass.setSatelliteData(new SatelliteData(satId, satId, 0, 0, 10, 20, priority, 0.5, 0, rotator, false,
+                "", ""));
+
+        return pass;
+
+    }
+
+    private static SatellitePass pass(String satId, long rise, long set) {
+        return pass(satId, 0, false, rise, set, 45);
+    }
+
+    private static SatellitePass pass(String satId, double frequency, long rise, long set) {
+        SatellitePass pass = pass(satId, rise, set);
+        pass.setSatelliteData(new SatelliteData(satId, satId, frequency, 0, 10, 20, 0, 0.5, 0, false, false,
+                "", ""));
+        return pass;
+    }
+
+    @DisplayName("Test picking the most contact time from a chain of overlapping passes")
+    @Test
+    void overlapChain()
+    {
+        SatellitePass a = pass("A", 0, 10);
+        SatellitePass b = pass("B", 8, 20);
+        SatellitePass c = pass("C", 18, 28);
+        SatellitePass d = pass("D", 30, 35);
+
+        // a greedy pick of the longest pass (B) loses A and C
+        assertEquals(Arrays.asList(a, c, d), PassSelector.select(Arrays.asList(d, c, b, a), 0));
+    }
+
+    @DisplayName("Test satellite priorities, tracking thresholds and the reposition time")
+    @Test
+    void weights()
+    {
+        SatellitePass longPass = pass("A", 0, 15);
+        SatellitePass priorityPass = pass("B", 1, true, 5, 15, 45);
+
+        assertEquals(Collections.singletonList(longPass),
+                PassSelector.select(Arrays.asList(longPass, priorityPass), 0));
+
+        priorityPass = pass("B", 2, true, 5, 15, 45);
+
+        assertEquals(Collections.singletonList(priorityPass),
+                PassSelector.select(Arrays.asList(longPass, priorityPass), 0));
+
+        SatellitePass low = pass("C", 0, false, 20, 40, 15);
+
+        assertTrue(PassSelector.select(Collections.singletonList(low), 0).isEmpty());
+
+        SatellitePass first = pass("A", 0, 10);
+        SatellitePass second = pass("B", 0, true, 11, 20, 45);
+
+        assertEquals(2, PassSelector.select(Arrays.asList(first, second), MINUTE).size());
+        assertEquals(Collections.singletonList(first),
+                PassSelector.select(Arrays.asList(first, second), 2 * MINUTE));
+    }
+
+    @DisplayName("Test assigning passes to antenna chains")
+    @Test
+    void chains()
+    {
+        AntennaChain any = new AntennaChain("any", "localhost", 4533, "localhost", 4532, 0, 0, null, null);
+        AntennaChain uhf = new AntennaChain("uhf", "localhost", 4535, "localhost", 4534, 400e6, 450e6, null, null);
+        List<AntennaChain> chains = Arrays.asList(any, uhf);
+
+        SatellitePass uhf1 = pass("U1", 435e6, 0, 10);
+        SatellitePass uhf2 = pass("U2", 435e6, 12, 20);
+        SatellitePass vhf1 = pass("V1", 137e6, 0, 10);
+        SatellitePass vhf2 = pass("V2", 137e6, 12, 22);
+        List<SatellitePass> passes = Arrays.asList(uhf1, uhf2, vhf1, vhf2);
+        Map<String, Long> busyUntil = new HashMap<>();
+
+        // the UHF passes only fit the UHF chain, so they're left to it
+        Map<String, List<SatellitePass>> assignment = PassSelector.assign(passes, chains, busyUntil, chain -> 0);
+
+        assertEquals(Arrays.asList("any", "uhf"), new ArrayList<>(assignment.keySet()));
+        assertEquals(Arrays.asList(vhf1, vhf2), assignment.get("any"));
+        assertEquals(Arrays.asList(uhf1, uhf2), assignment.get("uhf"));
+
+        busyUntil.put("any", 11 * MINUTE);
+        assignment = PassSelector.assign(passes, chains, busyUntil, chain -> 0);
+
+        assertEquals(Collections.singletonList(vhf2), assignment.get("any"));
+        assertEquals(Arrays.asList(uhf1, uhf2), assignment.get("uhf"));
+
+        // each chain's rotator needs its own reposition time
+        List<SatellitePass> tracked = Collections.singletonList(pass("T", 0, true, 12, 20, 45));
+
+        assertEquals(tracked, PassSelector.assign(tracked, chains, busyUntil, chain -> 0).get("any"));
+        assertTrue(PassSelector.assign(tracked, chains, busyUntil,
+                chain -> chain == any ? 2 * MINUTE : 0).get("any").isEmpty());
+
+        // a chain without radio control can't Doppler-correct
+        SatelliteData radioSat = new SatelliteData("R", "R", 435e6, 0, 10, 20, 0, 0.5, 0, false, true, "", "");
+
+        assertFalse(new AntennaChain("rx", "localhost", 4533, "", 0, 0, 0, null, null).canHandle(radioSat));
+        assertTrue(uhf.canHandle(radioSat));
+    }
+
+    @DisplayName("Test the selection against brute force")
+    @Test
+    void bruteForce()
+    {
+        Random random = new Random(1);
+
+        for (int round = 0; round < 200; round++) {
+
+            List<SatellitePass> passes = new ArrayList<>();
+
+            for (int i = 0; i < 10; i++) {
+                long rise = random.nextInt(100);
+                passes.add(pass("S" + i, random.nextInt(3), random.nextBoolean(), rise,
+                        rise + 1 + random.nextInt(20), 45));
+            }
+
+            List<SatellitePass> selected = PassSelector.select(passes, 2 * MINUTE);
+            double best = 0;
+
+            for (int mask = 0; mask < 1 << passes.size(); mask++) {
+                List<SatellitePass> subset = new ArrayList<>();
+                for (int i = 0; i < passes.size(); i++) {
+                    if ((mask & 1 << i) != 0) {
+                        subset.add(passes.get(i));
+                    }
+                }
+                if (isFeasible(subset, 2 * MINUTE)) {
+                    best = Math.max(best, totalWeight(subset));
+                }
+            }
+
+            assertTrue(isFeasible(selected, 2 * MINUTE));
+            assertEquals(best, totalWeight(selected), 1e-9);
+
+        }
+    }
+
+    private static double totalWeight(List<SatellitePass> passes) {
+        return passes.stream().mapToDouble(PassSelector::weight).sum();
+    }
+
+    private static boolean isFeasible(List<SatellitePass> passes, long repositionTime) {
+
+        List<SatellitePass> sorted = new ArrayList<>(passes);
+        Collections.sort(sorted);
+
+        for (int i = 1; i < sorted.size(); i++) {
+            SatellitePass next = sorted.get(i);
+            long start = next.getRisePoint().getT().getTime()
+                    - (next.getSatelliteData().isRotatorEnabled() ? repositionTime : 0);
+            if (start < sorted.get(i - 1).getSetPoint().getT().getTime()) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+}
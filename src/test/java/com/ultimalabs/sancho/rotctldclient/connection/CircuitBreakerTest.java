@@ -0,0 +1,37 @@
+package com.ultimalabs.sancho.rotctldclient.connection;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @DisplayName("Test opening, probing and closing the circuit")
+    @Test
+    void circuit()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(3, 10_000);
+
+        assertFalse(breaker.failure(0));
+        assertFalse(breaker.failure(100));
+        breaker.success();
+        assertFalse(breaker.failure(200));
+        assertFalse(breaker.failure(300));
+        assertTrue(breaker.allows(300));
+
+        assertTrue(breaker.failure(400));
+        assertFalse(breaker.allows(400));
+        assertTrue(breaker.isOpen(10_399));
+        assertFalse(breaker.failure(5_000));
+
+        assertTrue(breaker.allows(10_400));
+        assertTrue(breaker.failure(10_500));
+        assertFalse(breaker.allows(10_500));
+
+        breaker.success();
+        assertTrue(breaker.allows(10_600));
+        assertFalse(breaker.failure(10_700));
+    }
+
+}
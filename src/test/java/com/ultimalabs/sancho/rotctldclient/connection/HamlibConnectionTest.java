@@ -0,0 +1,133 @@
+package com.ultimalabs.sancho.rotctldclient.connection;
+
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import com.ultimalabs.sancho.rotctldclient.simulator.HamlibSimulator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HamlibConnectionTest {
+
+    private HamlibSimulator simulator;
+    private HamlibEventLoop eventLoop;
+    private HamlibConnection connection;
+    private WakeupMeter wakeupMeter;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        simulator = new HamlibSimulator(0).start();
+        simulator.setLatencyMillis(10);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        wakeupMeter = new WakeupMeter(meterRegistry);
+        eventLoop = new HamlibEventLoop(meterRegistry, wakeupMeter);
+        connection = eventLoop.open("simulator", "127.0.0.1", simulator.getPort());
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        eventLoop.shutdown();
+        simulator.close();
+    }
+
+    @DisplayName("Test tracking commands overtaking queued commands")
+    @Test
+    void priorities()
+    {
+        List<String> completed = Collections.synchronizedList(new ArrayList<>());
+        List<HamlibCommand<?>> commands = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            commands.add(new HamlibCommand<>(",\\set_freq " + (145_800_000 + i), HamlibResponseDecoder.TEXT));
+        }
+
+        commands.add(new HamlibCommand<>(",\\get_pos", HamlibResponseDecoder.TEXT, HamlibCommand.Priority.TRACKING));
+
+        List<CompletableFuture<Void>> recorded = new ArrayList<>();
+
+        for (HamlibCommand<?> command : commands) {
+            recorded.add(command.getFuture().thenRun(() -> completed.add(command.getMessage())));
+        }
+
+        connection.pipeline(commands);
+        CompletableFuture.allOf(recorded.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(",\\get_pos", completed.get(0));
+        assertEquals(",\\set_freq 145800000", completed.get(1));
+        assertEquals(",\\set_freq 145800005", completed.get(6));
+    }
+
+    @DisplayName("Test the event loop sleeping with no commands in flight")
+    @Test
+    void idle() throws InterruptedException
+    {
+        connection.submit(",\\get_pos", HamlibResponseDecoder.TEXT, HamlibCommand.Priority.STATUS).join();
+        Thread.sleep(50);
+
+        long wakeups = wakeupMeter.perMinute();
+        Thread.sleep(500);
+
+        assertEquals(wakeups, wakeupMeter.perMinute());
+    }
+
+    @DisplayName("Test coalescing identical status reads")
+    @Test
+    void coalescing()
+    {
+        List<CompletableFuture<String>> reads = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            reads.add(connection.submit(",\\get_freq", HamlibResponseDecoder.TEXT, HamlibCommand.Priority.STATUS));
+        }
+
+        for (CompletableFuture<String> read : reads) {
+            assertEquals("get_freq:,Frequency: 145800000,RPRT 0", read.join());
+        }
+
+        assertEquals(1, simulator.getCommands());
+
+        connection.submit(",\\get_freq", HamlibResponseDecoder.TEXT, HamlibCommand.Priority.STATUS).join();
+        assertEquals(2, simulator.getCommands());
+    }
+
+    @DisplayName("Test deadlines and the circuit breaker")
+    @Test
+    void deadlines()
+    {
+        simulator.setLatencyMillis(1500);
+        List<CompletableFuture<String>> commands = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            commands.add(connection.submit(",\\set_pos " + i + " 0", HamlibResponseDecoder.TEXT,
+                    HamlibCommand.Priority.TRACKING));
+        }
+
+        long start = System.nanoTime();
+
+        for (CompletableFuture<String> command : commands) {
+            CompletionException e = assertThrows(CompletionException.class, command::join);
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        assertTrue(System.nanoTime() - start < 1_400_000_000L);
+
+        CompletableFuture<String> failFast = connection.submit(",\\get_freq");
+        CompletionException e = assertThrows(CompletionException.class, failFast::join);
+        assertTrue(e.getCause() instanceof IOException);
+        assertTrue(System.nanoTime() - start < 1_400_000_000L);
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.ultimalabs.sancho.rotctldclient.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DopplerScheduleTest {
+
+    /**
+     * Satellite approaching at 7 km/s for the first minute, receding at 7 km/s for the second
+     */
+    private static final long[] TIMESTAMPS = {0, 30_000, 60_000, 90_000, 120_000};
+    private static final double[] RANGES = {1_000_000, 790_000, 580_000, 790_000, 1_000_000};
+
+    @DisplayName("Test Doppler-corrected frequencies")
+    @Test
+    void frequencies()
+    {
+        DopplerSchedule schedule = DopplerSchedule.fromRanges("TEST", TIMESTAMPS, RANGES, 500,
+                145_800_000, 437_800_000);
+        double factor = 1 + 7000 / 299_792_458.0;
+
+        assertEquals(120_000, schedule.getEndMillis());
+        assertTrue(schedule.hasUplink());
+        assertEquals(145_800_000 * factor, schedule.downlinkAt(0), 1e-3);
+        assertEquals(437_800_000 / factor, schedule.uplinkAt(15_000), 1e-3);
+        assertEquals(145_800_000, schedule.downlinkAt(60_000), 1e-3);
+        assertEquals(145_800_000 * (2 - factor), schedule.downlinkAt(120_000), 1e-3);
+        assertEquals(145_800_000 * (2 - factor), schedule.downlinkAt(200_000), 1e-3);
+    }
+
+    @DisplayName("Test schedule without uplink")
+    @Test
+    void noUplink()
+    {
+        DopplerSchedule schedule = DopplerSchedule.fromRanges("TEST", TIMESTAMPS, RANGES, 1000, 137_620_000, 0);
+
+        assertFalse(schedule.hasUplink());
+        assertTrue(Double.isNaN(schedule.uplinkAt(0)));
+    }
+
+}
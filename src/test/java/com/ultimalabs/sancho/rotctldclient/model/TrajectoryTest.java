@@ -0,0 +1,78 @@
+package com.ultimalabs.sancho.rotctldclient.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryTest {
+
+    @DisplayName("Test linear interpolation")
+    @Test
+    void linearInterpolation()
+    {
+        Trajectory trajectory = new Trajectory(10_000, 1000,
+                new double[]{100, 110, 120}, new double[]{10, 20, 40}, Trajectory.Interpolation.LINEAR);
+
+        assertEquals(110, trajectory.azimuthAt(11_000), 1e-9);
+        assertEquals(102.5, trajectory.azimuthAt(10_250), 1e-9);
+        assertEquals(30, trajectory.elevationAt(11_500), 1e-9);
+        assertEquals(new AzimuthElevation(118, 36), trajectory.getAzimuthElevation(11_800));
+        assertEquals(20, trajectory.elevationRateAt(11_500), 1e-9);
+    }
+
+    @DisplayName("Test Hermite interpolation")
+    @Test
+    void hermiteInterpolation()
+    {
+        double[] az = new double[5];
+        double[] el = new double[5];
+
+        for (int i = 0; i < 5; i++) {
+            az[i] = 200;
+            el[i] = i * i;
+        }
+
+        Trajectory trajectory = new Trajectory(0, 1000, az, el, Trajectory.Interpolation.HERMITE);
+
+        assertEquals(1, trajectory.elevationAt(1000), 1e-9);
+        assertEquals(2.25, trajectory.elevationAt(1500), 1e-9);
+        assertEquals(6.25, trajectory.elevationAt(2500), 1e-9);
+        assertEquals(200, trajectory.azimuthAt(2500), 1e-9);
+        assertEquals(3, trajectory.elevationRateAt(1500), 1e-9);
+    }
+
+    @DisplayName("Test azimuth wrap-around")
+    @Test
+    void azimuthWrap()
+    {
+        Trajectory trajectory = new Trajectory(0, 1000,
+                new double[]{350, 0, 10}, new double[]{5, 5, 5}, Trajectory.Interpolation.HERMITE);
+
+        assertEquals(355, trajectory.azimuthAt(500), 1e-9);
+        assertEquals(5, trajectory.azimuthAt(1500), 1e-9);
+
+        Trajectory reverse = new Trajectory(0, 1000,
+                new double[]{10, 0, 350}, new double[]{5, 5, 5}, Trajectory.Interpolation.LINEAR);
+
+        assertEquals(5, reverse.azimuthAt(500), 1e-9);
+        assertEquals(355, reverse.azimuthAt(1500), 1e-9);
+    }
+
+    @DisplayName("Test resampling and bounds")
+    @Test
+    void resampling()
+    {
+        Trajectory trajectory = Trajectory.resample(new long[]{1000, 3000, 4000},
+                new double[]{0, 20, 30}, new double[]{0, 10, 20}, 500, Trajectory.Interpolation.LINEAR);
+
+        assertEquals(7, trajectory.size());
+        assertEquals(1000, trajectory.getStartMillis());
+        assertEquals(4000, trajectory.getEndMillis());
+        assertEquals(10, trajectory.azimuthAt(2000), 1e-9);
+        assertEquals(15, trajectory.elevationAt(3500), 1e-9);
+        assertNull(trajectory.getAzimuthElevation(999));
+        assertNull(trajectory.getAzimuthElevation(4001));
+    }
+
+}
@@ -0,0 +1,478 @@
+package com.ultimalabs.sancho.rotctldclient.simulator;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process rotctld/rigctld simulator
+ * <p>
+ * Speaks the subset of the Hamlib extended protocol (',' separator) Sancho
+ * uses: <code>\set_pos</code>, <code>\get_pos</code>, <code>\set_freq</code>,
+ * <code>\get_freq</code>, <code>\set_split_vfo</code>,
+ * <code>\set_split_freq</code> and <code>\get_info</code>, answered with RPRT
+ * codes like the real daemons. Each connection is served by its own thread,
+ * one command at a time, so pipelined commands queue up like they do in
+ * rotctld/rigctld.
+ * <p>
+ * Every response is delayed by the latency plus a uniformly distributed
+ * jitter, and fails with RPRT -6 (I/O error) with the configured error
+ * probability. The rotator moves towards the commanded position at the slew
+ * rate, on both axes at once.
+ * <p>
+ * Use from JUnit:
+ * <pre>
+ * try (HamlibSimulator simulator = new HamlibSimulator(0)) {
+ *     simulator.setLatencyMillis(20);
+ *     simulator.start();
+ *     // connect to 127.0.0.1:simulator.getPort()
+ * }
+ * </pre>
+ * or standalone, see {@link #main(String[])}.
+ */
+@Slf4j
+public class HamlibSimulator implements Closeable {
+
+    /**
+     * Hamlib "I/O error" return code, used for injected errors
+     */
+    static final int RIG_EIO = -6;
+
+    /**
+     * Hamlib "function not implemented" return code, used for unknown commands
+     */
+    static final int RIG_ENIMPL = -4;
+
+    /**
+     * Hamlib "invalid parameter" return code
+     */
+    static final int RIG_EINVAL = -1;
+
+    /**
+     * Response delay, in milliseconds
+     */
+    @Getter
+    @Setter
+    private volatile long latencyMillis;
+
+    /**
+     * Maximum random delay added to the latency, in milliseconds
+     */
+    @Getter
+    @Setter
+    private volatile long jitterMillis;
+
+    /**
+     * Probability (0-1) that a command fails with an I/O error
+     */
+    @Getter
+    @Setter
+    private volatile double errorRate;
+
+    /**
+     * Rotator slew rate, in degrees per second; zero moves the rotator instantly
+     */
+    @Getter
+    @Setter
+    private volatile double slewRate;
+
+    /**
+     * Number of commands handled
+     */
+    private final AtomicLong commands = new AtomicLong();
+
+    /**
+     * Number of injected errors
+     */
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Open client connections
+     */
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+
+    /**
+     * Listening socket
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Rotator azimuth, in degrees
+     */
+    private double azimuth;
+
+    /**
+     * Rotator elevation, in degrees
+     */
+    private double elevation;
+
+    /**
+     * Commanded azimuth, in degrees
+     */
+    private double targetAzimuth;
+
+    /**
+     * Commanded elevation, in degrees
+     */
+    private double targetElevation;
+
+    /**
+     * Time (System.nanoTime()) of the last rotator position update
+     */
+    private long lastMoveNanos = System.nanoTime();
+
+    /**
+     * Main VFO frequency, in Hz
+     */
+    private long frequency = 145_800_000;
+
+    /**
+     * Split (TX) VFO frequency, in Hz
+     */
+    private long splitFrequency = 145_800_000;
+
+    /**
+     * Whether split mode is on
+     */
+    private boolean split;
+
+    private volatile boolean running = true;
+
+    /**
+     * Constructor; binds to the loopback interface
+     *
+     * @param port TCP port; zero picks a free one
+     * @throws IOException if the port can't be bound
+     */
+    public HamlibSimulator(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Runs a simulator until the process is killed
+     * <p>
+     * Arguments: port [latencyMillis [jitterMillis [errorRate [slewRate]]]],
+     * e.g. <code>./gradlew hamlibSimulator --args="4533 20 5 0.01 6"</code>.
+     * Start two simulators to stand in for both rotctld and rigctld.
+     *
+     * @param args command line arguments
+     * @throws IOException if the port can't be bound
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 1) {
+            System.err.println("Usage: HamlibSimulator port [latencyMillis [jitterMillis [errorRate [slewRate]]]]");
+            System.exit(1);
+        }
+
+        HamlibSimulator simulator = new HamlibSimulator(Integer.parseInt(args[0]));
+        simulator.setLatencyMillis(args.length > 1 ? Long.parseLong(args[1]) : 0);
+        simulator.setJitterMillis(args.length > 2 ? Long.parseLong(args[2]) : 0);
+        simulator.setErrorRate(args.length > 3 ? Double.parseDouble(args[3]) : 0);
+        simulator.setSlewRate(args.length > 4 ? Double.parseDouble(args[4]) : 0);
+        simulator.run();
+
+    }
+
+    /**
+     * Starts accepting connections on a background thread
+     *
+     * @return this simulator
+     */
+    public HamlibSimulator start() {
+        Thread thread = new Thread(this::run, "hamlib-simulator-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Port the simulator listens on
+     *
+     * @return TCP port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Number of commands handled
+     *
+     * @return command count
+     */
+    public long getCommands() {
+        return commands.get();
+    }
+
+    /**
+     * Number of injected errors
+     *
+     * @return error count
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Current rotator position
+     *
+     * @return azimuth and elevation, in degrees
+     */
+    public synchronized double[] getPosition() {
+        move();
+        return new double[]{azimuth, elevation};
+    }
+
+    /**
+     * Current main VFO frequency
+     *
+     * @return frequency, in Hz
+     */
+    public synchronized long getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Current split (TX) VFO frequency
+     *
+     * @return frequency, in Hz
+     */
+    public synchronized long getSplitFrequency() {
+        return splitFrequency;
+    }
+
+    /**
+     * Drops all client connections, as if the daemon restarted
+     */
+    public void disconnectClients() {
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+    }
+
+    /**
+     * Stops the simulator and closes all connections
+     */
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverSocket);
+        disconnectClients();
+    }
+
+    /**
+     * Accepts connections until closed
+     */
+    private void run() {
+
+        log.info("Hamlib simulator listening on port {}.", getPort());
+
+        while (running) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setTcpNoDelay(true);
+                clients.add(client);
+                Thread thread = new Thread(() -> serve(client), "hamlib-simulator-client-" + client.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Hamlib simulator failed accepting a connection: {}", e.getMessage());
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Answers the commands of a single client, in order
+     *
+     * @param client client socket
+     */
+    private void serve(Socket client) {
+
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = client.getOutputStream()) {
+
+            String line;
+
+            while ((line = in.readLine()) != null) {
+
+                String command = line.trim();
+
+                if (command.equals("q") || command.equals("\\quit")) {
+                    break;
+                }
+
+                if (command.isEmpty()) {
+                    continue;
+                }
+
+                delay();
+                out.write((respond(command) + "\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+            }
+
+        } catch (IOException e) {
+            log.debug("Hamlib simulator client disconnected: {}", e.getMessage());
+        } finally {
+            clients.remove(client);
+            closeQuietly(client);
+        }
+
+    }
+
+    /**
+     * Builds the extended response to a command
+     *
+     * @param command command line, e.g. <code>,\set_pos 180 45</code>
+     * @return response line, without the line terminator
+     */
+    String respond(String command) {
+
+        commands.incrementAndGet();
+
+        String[] parts = (command.startsWith(",") ? command.substring(1) : command).split("\\s+");
+        String name = parts[0].startsWith("\\") ? parts[0].substring(1) : parts[0];
+        StringBuilder args = new StringBuilder();
+
+        for (int i = 1; i < parts.length; i++) {
+            args.append(' ').append(parts[i]);
+        }
+
+        String echo = name + ":" + args;
+
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            return echo + ",RPRT " + RIG_EIO;
+        }
+
+        try {
+            return echo + execute(name, parts) + ",RPRT 0";
+        } catch (UnsupportedOperationException e) {
+            return echo + ",RPRT " + RIG_ENIMPL;
+        } catch (IllegalArgumentException e) {
+            return echo + ",RPRT " + RIG_EINVAL;
+        }
+
+    }
+
+    /**
+     * Executes a command
+     *
+     * @param name  command name, without the backslash
+     * @param parts command name and arguments
+     * @return value fields of the response, each starting with the separator
+     */
+    private synchronized String execute(String name, String[] parts) {
+
+        switch (name) {
+            case "set_pos":
+                move();
+                targetAzimuth = Double.parseDouble(argument(parts, 1));
+                targetElevation = Double.parseDouble(argument(parts, 2));
+                if (slewRate <= 0) {
+                    azimuth = targetAzimuth;
+                    elevation = targetElevation;
+                }
+                return "";
+            case "get_pos":
+                move();
+                return String.format(Locale.ROOT, ",Azimuth: %f,Elevation: %f", azimuth, elevation);
+            case "set_freq":
+                frequency = Math.round(Double.parseDouble(argument(parts, 1)));
+                return "";
+            case "get_freq":
+                return ",Frequency: " + frequency;
+            case "set_split_vfo":
+                split = !"0".equals(argument(parts, 1));
+                return "";
+            case "set_split_freq":
+                splitFrequency = Math.round(Double.parseDouble(argument(parts, 1)));
+                return "";
+            case "get_split_vfo":
+                return ",Split: " + (split ? 1 : 0) + ",TX VFO: VFOB";
+            case "get_info":
+                return ",Info: Sancho Hamlib simulator";
+            default:
+                throw new UnsupportedOperationException(name);
+        }
+
+    }
+
+    /**
+     * Moves the rotator towards the commanded position, at the slew rate
+     */
+    private void move() {
+
+        long now = System.nanoTime();
+        double maxStep = slewRate * (now - lastMoveNanos) / 1e9;
+        lastMoveNanos = now;
+
+        if (slewRate > 0) {
+            azimuth += clamp(targetAzimuth - azimuth, maxStep);
+            elevation += clamp(targetElevation - elevation, maxStep);
+        }
+
+    }
+
+    /**
+     * Waits for the configured latency plus jitter
+     */
+    private void delay() {
+
+        long jitter = jitterMillis;
+        long delay = latencyMillis + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+
+        if (delay <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    private static String argument(String[] parts, int index) {
+
+        if (index >= parts.length) {
+            throw new IllegalArgumentException("Missing argument " + index);
+        }
+
+        return parts[index];
+
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.ultimalabs.sancho.rotctldclient.simulator;
+
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import com.ultimalabs.sancho.rotctldclient.connection.HamlibConnection;
+import com.ultimalabs.sancho.rotctldclient.connection.HamlibEventLoop;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HamlibSimulatorTest {
+
+    private HamlibSimulator simulator;
+    private HamlibEventLoop eventLoop;
+    private HamlibConnection connection;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        simulator = new HamlibSimulator(0).start();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        eventLoop = new HamlibEventLoop(meterRegistry, new WakeupMeter(meterRegistry));
+        connection = eventLoop.open("simulator", "127.0.0.1", simulator.getPort());
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        eventLoop.shutdown();
+        simulator.close();
+    }
+
+    @DisplayName("Test pipelined rotator and radio commands")
+    @Test
+    void commands()
+    {
+        List<CompletableFuture<String>> responses = connection.sendPipelined(Arrays.asList(
+                ",\\set_pos 180.5 45.25", ",\\get_pos", ",\\set_freq 145825000", ",\\get_freq", ",\\get_nothing"));
+
+        assertEquals("set_pos: 180.5 45.25,RPRT 0", responses.get(0).join());
+        assertEquals("get_pos:,Azimuth: 180.500000,Elevation: 45.250000,RPRT 0", responses.get(1).join());
+        assertEquals("set_freq: 145825000,RPRT 0", responses.get(2).join());
+        assertEquals("get_freq:,Frequency: 145825000,RPRT 0", responses.get(3).join());
+        assertEquals("get_nothing:,RPRT " + HamlibSimulator.RIG_ENIMPL, responses.get(4).join());
+        assertEquals(5, simulator.getCommands());
+    }
+
+    @DisplayName("Test latency and error injection")
+    @Test
+    void latencyAndErrors()
+    {
+        simulator.setLatencyMillis(20);
+        simulator.setErrorRate(1);
+
+        long start = System.nanoTime();
+        String response = connection.send(",\\set_pos 10 20");
+
+        assertTrue(System.nanoTime() - start >= 20_000_000);
+        assertEquals("set_pos: 10 20,RPRT " + HamlibSimulator.RIG_EIO, response);
+        assertEquals(1, simulator.getErrors());
+    }
+
+    @DisplayName("Test rotator slew")
+    @Test
+    void slew() throws InterruptedException
+    {
+        simulator.setSlewRate(50);
+        connection.send(",\\set_pos 90 0");
+
+        Thread.sleep(200);
+        double[] moving = simulator.getPosition();
+        assertTrue(moving[0] > 0 && moving[0] < 90);
+
+        Thread.sleep(2000);
+        assertArrayEquals(new double[]{90, 0}, simulator.getPosition(), 1e-9);
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.ultimalabs.sancho.rotctldclient.tracking;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedRateTickerTest {
+
+    private static final long PERIOD = 100;
+
+    @DisplayName("Test ticks aligned to step boundaries, until the end time")
+    @Test
+    void alignment()
+    {
+        FixedRateTicker ticker = new FixedRateTicker(PERIOD / 1000.0, null);
+        long end = (System.currentTimeMillis() / PERIOD + 4) * PERIOD;
+
+        assertTrue(ticker.await(end));
+
+        long first = ticker.getTickTime();
+
+        assertEquals(0, first % PERIOD);
+        assertTrue(first <= System.currentTimeMillis());
+
+        while (ticker.await(end)) {
+            assertTrue(ticker.getTickTime() < end);
+            assertTrue(ticker.getTickTime() <= System.currentTimeMillis());
+        }
+
+        assertEquals((end - first) / PERIOD - ticker.getSkippedTicks(), ticker.getTicks());
+        assertFalse(ticker.await(end));
+    }
+
+    @DisplayName("Test skipping the ticks missed during a stall")
+    @Test
+    void stall() throws InterruptedException
+    {
+        FixedRateTicker ticker = new FixedRateTicker(PERIOD / 1000.0, null);
+
+        assertTrue(ticker.await(Long.MAX_VALUE));
+
+        long first = ticker.getTickTime();
+        Thread.sleep(3 * PERIOD + PERIOD / 2);
+
+        // fires right away, at the last boundary before now, rather than in a burst
+        long before = System.currentTimeMillis();
+        assertTrue(ticker.await(Long.MAX_VALUE));
+
+        long skipped = ticker.getSkippedTicks();
+
+        assertTrue(skipped >= 2, "skipped " + skipped);
+        assertEquals(first + (skipped + 1) * PERIOD, ticker.getTickTime());
+        assertTrue(System.currentTimeMillis() - before < PERIOD);
+        assertEquals(2, ticker.getTicks());
+        assertTrue(ticker.getMaxLatenessNanos() < PERIOD * 1_000_000);
+    }
+
+    @DisplayName("Test tick lateness statistics")
+    @Test
+    void lateness()
+    {
+        Timer timer = Timer.builder("test.lateness").register(new SimpleMeterRegistry());
+        FixedRateTicker ticker = new FixedRateTicker(PERIOD / 1000.0, timer);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(ticker.await(Long.MAX_VALUE));
+        }
+
+        assertEquals(3, ticker.getTicks());
+        assertEquals(3, timer.count());
+        assertTrue(ticker.getMeanLatenessNanos() >= 0);
+        assertTrue(ticker.getMaxLatenessNanos() >= ticker.getMeanLatenessNanos());
+    }
+
+    @DisplayName("Test stopping on interrupt")
+    @Test
+    void interrupt()
+    {
+        FixedRateTicker ticker = new FixedRateTicker(PERIOD / 1000.0, null);
+
+        Thread.currentThread().interrupt();
+
+        try {
+            assertFalse(ticker.await(Long.MAX_VALUE));
+            assertEquals(0, ticker.getTicks());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.ultimalabs.sancho.rotctldclient.tracking;
+
+import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.model.Trajectory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PointingFeedbackTest {
+
+    private static final Trajectory TRAJECTORY = new Trajectory(0, 60_000,
+            new double[]{180, 180}, new double[]{10, 70}, Trajectory.Interpolation.LINEAR);
+
+    @DisplayName("Test pointing and command errors")
+    @Test
+    void errors()
+    {
+        PointingFeedback feedback = new PointingFeedback(TRAJECTORY);
+
+        feedback.record(new AzimuthElevation(180, 12), new AzimuthElevation(180, 12), 0);
+        feedback.record(new AzimuthElevation(180, 40), new AzimuthElevation(180, 44), 30_000);
+        feedback.record(null, new AzimuthElevation(180, 44), 31_000);
+
+        assertEquals(2, feedback.getSamples());
+        assertEquals(1, feedback.getMeanError(), 1e-6);
+        assertEquals(2, feedback.getMaxError(), 1e-6);
+        assertEquals(Math.sqrt(2), feedback.getRmsError(), 1e-6);
+        assertEquals(2, feedback.getMeanCommandError(), 1e-6);
+        assertEquals(4, feedback.getMaxCommandError(), 1e-6);
+        assertFalse(feedback.takeRecoveryRequest());
+    }
+
+    @DisplayName("Test stall detection")
+    @Test
+    void stall()
+    {
+        PointingFeedback feedback = new PointingFeedback(TRAJECTORY);
+        AzimuthElevation target = new AzimuthElevation(180, 30);
+
+        feedback.record(new AzimuthElevation(180, 20), target, 10_000);
+        feedback.record(new AzimuthElevation(180, 25), target, 11_000);
+        feedback.record(new AzimuthElevation(180, 25), target, 12_000);
+        assertFalse(feedback.takeRecoveryRequest());
+
+        feedback.record(new AzimuthElevation(180, 25), target, 13_000);
+        assertTrue(feedback.takeRecoveryRequest());
+        assertFalse(feedback.takeRecoveryRequest());
+        assertEquals(1, feedback.getRecoveries());
+
+        feedback.record(new AzimuthElevation(180, 30), target, 14_000);
+        feedback.record(new AzimuthElevation(180, 30), target, 15_000);
+        feedback.record(new AzimuthElevation(180, 30), target, 16_000);
+        assertFalse(feedback.takeRecoveryRequest());
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.ultimalabs.sancho.rotctldclient.tracking;
+
+import com.ultimalabs.sancho.common.config.RotatorConfig;
+import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.model.Trajectory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RotatorCommandPolicyTest {
+
+    /**
+     * Elevation rising at 1 degree per second, for 60 seconds
+     */
+    private static final Trajectory TRAJECTORY = new Trajectory(0, 60_000,
+            new double[]{180, 180}, new double[]{10, 70}, Trajectory.Interpolation.LINEAR);
+
+    private static int countCommands(RotatorCommandPolicy policy) {
+
+        int commands = 0;
+
+        for (long t = 0; t < 60_000; t += 250) {
+            if (policy.next(t) != null) {
+                commands++;
+            }
+        }
+
+        return commands;
+
+    }
+
+    @DisplayName("Test pointing tolerance")
+    @Test
+    void pointingTolerance()
+    {
+        assertEquals(6.12, RotatorCommandPolicy.pointingTolerance(30, 0.5), 0.01);
+        assertEquals(0, RotatorCommandPolicy.pointingTolerance(0, 0.5));
+    }
+
+    @DisplayName("Test commanding on every position change")
+    @Test
+    void everyChange()
+    {
+        RotatorCommandPolicy policy = new RotatorCommandPolicy(new RotatorConfig("", 0, 0.25, 0, 0, 0, false, 0, 0),
+                TRAJECTORY, new AzimuthElevation(180, 10), null);
+
+        assertEquals(60, countCommands(policy));
+        assertEquals(new AzimuthElevation(180, 70), policy.getCommanded());
+    }
+
+    @DisplayName("Test tolerance dead-band")
+    @Test
+    void deadBand()
+    {
+        RotatorCommandPolicy policy = new RotatorCommandPolicy(new RotatorConfig("", 0, 0.25, 30, 0.5, 0, false, 0, 0),
+                TRAJECTORY, new AzimuthElevation(180, 10), null);
+
+        int commands = countCommands(policy);
+
+        assertTrue(commands >= 9 && commands <= 11, "commands: " + commands);
+        assertTrue(policy.getWithinTolerance() > 0);
+    }
+
+    @DisplayName("Test command rate limit")
+    @Test
+    void rateLimit()
+    {
+        RotatorCommandPolicy policy = new RotatorCommandPolicy(new RotatorConfig("", 0, 0.25, 0, 0, 0.2, false, 0, 0),
+                TRAJECTORY, new AzimuthElevation(180, 10), null);
+
+        assertEquals(12, countCommands(policy));
+        assertTrue(policy.getRateLimited() > 0);
+    }
+
+    @DisplayName("Test lead compensation")
+    @Test
+    void leadCompensation()
+    {
+        LeadCompensator leadCompensator = new LeadCompensator();
+        leadCompensator.recordRoundTrip(2_000_000_000L);
+
+        RotatorCommandPolicy policy = new RotatorCommandPolicy(new RotatorConfig("", 0, 0.25, 0, 0, 0, true, 0, 0),
+                TRAJECTORY, new AzimuthElevation(180, 10), leadCompensator);
+
+        assertEquals(new AzimuthElevation(180, 12), policy.next(0));
+        assertEquals(2000, leadCompensator.getLeadMillis());
+        assertEquals(new AzimuthElevation(180, 70), policy.next(59_000));
+    }
+
+}
@@ -23,4 +23,15 @@ class AzimuthElevationUtilTest {
 
     }
 
-}
\ No newline at end of file
+    @DisplayName("Test angularDistance()")
+    @Test
+    void angularDistance() {
+
+        assertEquals(10, AzimuthElevationUtil.angularDistance(100, 20, 100, 30), 1e-9);
+        assertEquals(5, AzimuthElevationUtil.angularDistance(355, 0, 0, 0), 1e-9);
+        assertEquals(0, AzimuthElevationUtil.angularDistance(0, 90, 180, 90), 1e-6);
+        assertEquals(0, AzimuthElevationUtil.angularDistance(30, 70, 210, 110), 1e-6);
+
+    }
+
+}
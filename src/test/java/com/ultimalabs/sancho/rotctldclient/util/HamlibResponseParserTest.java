@@ -0,0 +1,98 @@
+package com.ultimalabs.sancho.rotctldclient.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HamlibResponseParserTest {
+
+    private static final String GET_POS = "get_pos:,Azimuth: 180.500000,Elevation: -2.250000,RPRT 0";
+    private static final String GET_FREQ = "get_freq:,Frequency: 145800000,RPRT 0";
+    private static final String SET_POS_FAILED = "set_pos: 10 20,RPRT -9";
+
+    @DisplayName("Test rprtCode()")
+    @Test
+    void rprtCode() {
+
+        assertEquals(0, rprtCode(GET_POS));
+        assertEquals(-9, rprtCode(SET_POS_FAILED));
+        assertEquals(HamlibResponseParser.NO_RPRT, rprtCode("get_pos:,Azimuth: 180.000000"));
+        assertEquals(HamlibResponseParser.NO_RPRT, rprtCode(""));
+
+        assertTrue(isOk(GET_FREQ));
+        assertFalse(isOk(SET_POS_FAILED));
+
+    }
+
+    @DisplayName("Test numericField()")
+    @Test
+    void numericField() {
+
+        assertEquals(180.5, numericField(GET_POS, 1));
+        assertEquals(-2.25, numericField(GET_POS, 2));
+        assertEquals(145800000.0, numericField(GET_FREQ, 1));
+        assertTrue(Double.isNaN(numericField(GET_POS, 0)));
+        assertTrue(Double.isNaN(numericField(GET_POS, 4)));
+
+    }
+
+    @DisplayName("Test parsing a line in the middle of a buffer")
+    @Test
+    void lineWithinBuffer() {
+
+        String lines = "set_pos: 1 2,RPRT 0\n" + GET_POS + "\nget_";
+        ByteBuffer buf = ByteBuffer.wrap(lines.getBytes(StandardCharsets.US_ASCII));
+        int start = lines.indexOf(GET_POS);
+        int end = start + GET_POS.length();
+
+        assertEquals(0, HamlibResponseParser.rprtCode(buf, start, end));
+        assertEquals(180.5, HamlibResponseParser.numericField(buf, start, end, 1));
+        assertEquals(-2.25, HamlibResponseParser.numericField(buf, start, end, 2));
+        assertEquals(0, buf.position());
+        assertEquals(lines.length(), buf.limit());
+
+    }
+
+    @DisplayName("Test parseDouble()")
+    @Test
+    void parseDouble() {
+
+        assertEquals(0.0, parseDouble("0"));
+        assertEquals(12.0, parseDouble(" 12 "));
+        assertEquals(-0.25, parseDouble("-.25"));
+        assertEquals(359.999999, parseDouble("359.999999"));
+        assertEquals(1.4e8, parseDouble("1.4e8"));
+        assertEquals(2.5e-3, parseDouble("+2.5E-3"));
+        assertEquals(10489750000.0, parseDouble("10489750000.000000"));
+
+        assertTrue(Double.isNaN(parseDouble("")));
+        assertTrue(Double.isNaN(parseDouble("-")));
+        assertTrue(Double.isNaN(parseDouble("12a")));
+
+    }
+
+    private static ByteBuffer wrap(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int rprtCode(String s) {
+        return HamlibResponseParser.rprtCode(wrap(s), 0, s.length());
+    }
+
+    private static boolean isOk(String s) {
+        return HamlibResponseParser.isOk(wrap(s), 0, s.length());
+    }
+
+    private static double numericField(String s, int field) {
+        return HamlibResponseParser.numericField(wrap(s), 0, s.length(), field);
+    }
+
+    private static double parseDouble(String s) {
+        return HamlibResponseParser.parseDouble(wrap(s), 0, s.length());
+    }
+
+}
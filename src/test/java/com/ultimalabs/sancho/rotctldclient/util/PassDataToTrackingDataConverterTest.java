@@ -0,0 +1,90 @@
+package com.ultimalabs.sancho.rotctldclient.util;
+
+import com.ultimalabs.sancho.common.config.SatelliteData;
+import com.ultimalabs.sancho.common.model.PassEventDataPoint;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import com.ultimalabs.sancho.rotctldclient.model.Trajectory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PassDataToTrackingDataConverterTest {
+
+    private static final long PASS_START = 1_600_000_000_000L;
+
+    /**
+     * Straight-line pass south of the station, 800 km up, at 7 km/s
+     *
+     * @param t        milliseconds since closest approach
+     * @param distance ground distance at closest approach, in km
+     * @return pass event data point
+     */
+    private static PassEventDataPoint dataPoint(long t, double distance) {
+
+        double x = 7.0 * t / 1000;
+        PassEventDataPoint dataPoint = new PassEventDataPoint();
+
+        dataPoint.setT(new Date(PASS_START + t));
+        dataPoint.setAz(180 - Math.toDegrees(Math.atan2(x, distance)));
+        dataPoint.setEl(Math.toDegrees(Math.atan2(800, Math.hypot(x, distance))));
+
+        return dataPoint;
+
+    }
+
+    private static SatellitePass pass(double distance, int fetchStep) {
+
+        List<PassEventDataPoint> entries = new ArrayList<>();
+
+        for (long t = -300_000; t <= 300_000; t += fetchStep * 1000L) {
+            entries.add(dataPoint(t, distance));
+        }
+
+        SatellitePass pass = new SatellitePass();
+        pass.setEventDetails(entries);
+        pass.setRisePoint(entries.get(0));
+        pass.setMidPoint(dataPoint(0, distance));
+        pass.setSetPoint(entries.get(entries.size() - 1));
+        pass.setSatelliteData(new SatelliteData("25338", "NOAA15", 137.62, 0, 10.0, 10.0, 0, 0.5, fetchStep,
+                true, false, "", ""));
+
+        return pass;
+
+    }
+
+    @DisplayName("Test coarse trajectory densification")
+    @Test
+    void densification()
+    {
+        SatellitePass pass = pass(1500, 20);
+
+        assertTrue(PassDataToTrackingDataConverter.estimateDensificationError(pass)
+                <= PassDataToTrackingDataConverter.MAX_DENSIFICATION_ERROR);
+
+        Trajectory trajectory = PassDataToTrackingDataConverter.convert(pass).getTrajectory();
+
+        assertEquals(500, trajectory.getStepMillis());
+
+        for (long t = -300_000; t <= 300_000; t += 500) {
+            PassEventDataPoint expected = dataPoint(t, 1500);
+            assertEquals(expected.getAz(), trajectory.azimuthAt(PASS_START + t), 0.05);
+            assertEquals(expected.getEl(), trajectory.elevationAt(PASS_START + t), 0.05);
+        }
+    }
+
+    @DisplayName("Test densification error check on a fast overhead pass")
+    @Test
+    void densificationErrorCheck()
+    {
+        assertTrue(PassDataToTrackingDataConverter.estimateDensificationError(pass(100, 20))
+                > PassDataToTrackingDataConverter.MAX_DENSIFICATION_ERROR);
+        assertTrue(PassDataToTrackingDataConverter.estimateDensificationError(pass(100, 1))
+                <= PassDataToTrackingDataConverter.MAX_DENSIFICATION_ERROR);
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.ultimalabs.sancho.scheduler.service;
+
+import com.ultimalabs.sancho.common.config.RadioConfig;
+import com.ultimalabs.sancho.common.config.RotatorConfig;
+import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.common.config.StationDetails;
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import com.ultimalabs.sancho.rotctldclient.service.DeviceStatePoller;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdleModeServiceTest {
+
+    private static final int POOL_SIZE = 4;
+    private static final long MINUTE = 60_000;
+
+    private ThreadPoolTaskScheduler taskScheduler;
+    private StubDeviceStatePoller deviceStatePoller;
+    private WakeupMeter wakeupMeter;
+
+    @BeforeEach
+    void setUp()
+    {
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(POOL_SIZE);
+        taskScheduler.initialize();
+        wakeupMeter = new WakeupMeter(new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        taskScheduler.shutdown();
+    }
+
+    private IdleModeService idleModeService(int idleWindow) {
+
+        SanchoConfig config = new SanchoConfig(true, 180, 1, idleWindow, "http://sattrackapi", "",
+                new StationDetails("Test station", 45.0, 16.0, 100),
+                new RotatorConfig("", 0, 0.25, 30, 0.5, 2, false, 0, 60), new RadioConfig("", 0, 0, 10),
+                new ArrayList<>(), new ArrayList<>());
+
+        deviceStatePoller = new StubDeviceStatePoller(config, taskScheduler, wakeupMeter);
+
+        IdleModeService idleModeService = new IdleModeService(config, taskScheduler, deviceStatePoller,
+                wakeupMeter);
+        idleModeService.init();
+
+        return idleModeService;
+
+    }
+
+    private int poolSize() {
+        return taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize();
+    }
+
+    @DisplayName("Test going idle at startup, and staying active for overlapping passes")
+    @Test
+    void activePeriods()
+    {
+        IdleModeService idleModeService = idleModeService(300);
+
+        // nothing scheduled yet
+        assertTrue(idleModeService.isIdle());
+        assertEquals(1, poolSize());
+        assertEquals(Collections.singletonList(true), deviceStatePoller.pauses);
+
+        // far enough ahead that the switch timers don't fire during the test
+        long start = System.currentTimeMillis() + 24 * 3_600_000L;
+        idleModeService.passScheduled(new Date(start + 10 * MINUTE), new Date(start + 20 * MINUTE));
+        idleModeService.passScheduled(new Date(start + 15 * MINUTE), new Date(start + 30 * MINUTE));
+
+        idleModeService.update(start + 4 * MINUTE);
+
+        assertTrue(idleModeService.isIdle());
+
+        // active from the idle window before the first pass rises until the second one sets
+        idleModeService.update(start + 5 * MINUTE);
+
+        assertFalse(idleModeService.isIdle());
+        assertEquals(POOL_SIZE, poolSize());
+
+        idleModeService.update(start + 25 * MINUTE);
+
+        assertFalse(idleModeService.isIdle());
+
+        idleModeService.update(start + 30 * MINUTE);
+
+        assertTrue(idleModeService.isIdle());
+        assertEquals(1, poolSize());
+        assertEquals(Arrays.asList(true, false, true), deviceStatePoller.pauses);
+    }
+
+    @DisplayName("Test switching modes on the timer")
+    @Test
+    void switchTimer() throws InterruptedException
+    {
+        IdleModeService idleModeService = idleModeService(1);
+        long now = System.currentTimeMillis();
+
+        idleModeService.passScheduled(new Date(now + 1050), new Date(now + 1150));
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (deviceStatePoller.pauses.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Arrays.asList(true, false, true), deviceStatePoller.pauses);
+        assertTrue(idleModeService.isIdle());
+        assertTrue(System.currentTimeMillis() >= now + 150);
+    }
+
+    @DisplayName("Test idle mode disabled")
+    @Test
+    void disabled()
+    {
+        IdleModeService idleModeService = idleModeService(0);
+        long now = System.currentTimeMillis();
+
+        idleModeService.passScheduled(new Date(now + 60 * MINUTE), new Date(now + 70 * MINUTE));
+
+        assertFalse(idleModeService.isIdle());
+        assertEquals(POOL_SIZE, poolSize());
+        assertTrue(deviceStatePoller.pauses.isEmpty());
+    }
+
+    /**
+     * Device state poller stub; records the pauses instead of polling
+     */
+    private static final class StubDeviceStatePoller extends DeviceStatePoller {
+
+        private final List<Boolean> pauses = Collections.synchronizedList(new ArrayList<>());
+
+        private StubDeviceStatePoller(SanchoConfig config, ThreadPoolTaskScheduler taskScheduler,
+                                      WakeupMeter wakeupMeter)
+        {
+            super(config, null, taskScheduler, wakeupMeter);
+        }
+
+        @Override
+        public synchronized void setPaused(boolean paused)
+        {
+            pauses.add(paused);
+        }
+
+    }
+
+}
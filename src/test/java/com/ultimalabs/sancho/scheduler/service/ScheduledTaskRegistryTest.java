@@ -0,0 +1,100 @@
+package com.ultimalabs.sancho.scheduler.service;
+
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import com.ultimalabs.sancho.scheduler.model.ScheduledTaskDetails;
+import com.ultimalabs.sancho.scheduler.model.TaskCounts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduledTaskRegistryTest {
+
+    private ThreadPoolTaskScheduler taskScheduler;
+    private ScheduledTaskRegistry registry;
+
+    @BeforeEach
+    void setUp()
+    {
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(4);
+        taskScheduler.initialize();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        registry = new ScheduledTaskRegistry(taskScheduler, meterRegistry, new WakeupMeter(meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        taskScheduler.shutdown();
+    }
+
+    @DisplayName("Test task states, removal on completion and cancellation")
+    @Test
+    void lifecycle() throws InterruptedException
+    {
+        Date now = new Date();
+        Date later = new Date(now.getTime() + 3_600_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        registry.schedule(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        }, now, later, "running");
+        registry.schedule(() -> {
+            throw new IllegalStateException("failing");
+        }, now, now, "failing");
+        registry.schedule(() -> { }, later, later, "pending");
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        awaitCounts(new TaskCounts(1, 1, 0, 1));
+
+        List<ScheduledTaskDetails> snapshot = registry.getTasks();
+
+        assertEquals(2, snapshot.size());
+        assertEquals("running", snapshot.get(0).getDescription());
+        assertEquals("pending", snapshot.get(1).getDescription());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(0));
+        assertEquals(1, registry.getTasks(now, now, 0, 10).size());
+        assertFalse(registry.cancel(snapshot.get(0)));
+
+        release.countDown();
+        awaitCounts(new TaskCounts(1, 0, 1, 1));
+        registry.cancelAll();
+
+        assertEquals(new TaskCounts(0, 0, 1, 1), registry.getCounts());
+        assertTrue(registry.getTasks().isEmpty());
+        assertEquals(2, snapshot.size());
+    }
+
+    private void awaitCounts(TaskCounts expected) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (!expected.equals(registry.getCounts()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(expected, registry.getCounts());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.ultimalabs.sancho.scheduler.service;
+
+import com.ultimalabs.sancho.common.config.AntennaChain;
+import com.ultimalabs.sancho.common.config.RadioConfig;
+import com.ultimalabs.sancho.common.config.RotatorConfig;
+import com.ultimalabs.sancho.common.config.SanchoConfig;
+import com.ultimalabs.sancho.common.config.SatelliteData;
+import com.ultimalabs.sancho.common.config.StationDetails;
+import com.ultimalabs.sancho.common.metrics.WakeupMeter;
+import com.ultimalabs.sancho.common.model.PassEventDataPoint;
+import com.ultimalabs.sancho.common.model.SatellitePass;
+import com.ultimalabs.sancho.predictclient.service.PassHorizon;
+import com.ultimalabs.sancho.predictclient.service.PredictClientService;
+import com.ultimalabs.sancho.rotctldclient.model.AzimuthElevation;
+import com.ultimalabs.sancho.rotctldclient.service.DeviceStatePoller;
+import com.ultimalabs.sancho.rotctldclient.service.HamlibClientService;
+import com.ultimalabs.sancho.scheduler.model.ScheduledTaskDetails;
+import com.ultimalabs.sancho.shellexec.service.ShellExecService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulerServiceTest {
+
+    private static final long MINUTE = 60_000;
+    private static final int ERROR_WAIT = 180;
+
+    private ThreadPoolTaskScheduler taskScheduler;
+    private ScheduledTaskRegistry taskRegistry;
+    private StubPredictClientService predictClient;
+    private StubHamlibClientService hamlibClient;
+    private SchedulerService schedulerService;
+    private AntennaChain chain;
+    private SatellitePass pass;
+
+    @BeforeEach
+    void setUp()
+    {
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(2);
+        taskScheduler.initialize();
+
+        SatelliteData sat = new SatelliteData("25338", "NOAA15", 137.62, 0, 10, 10, 0, 0.5, 0, true, false,
+                "echo rise", "echo set");
+        sat.setSatRiseShellCmdSubstituted("echo rise");
+        sat.setSatSetShellCmdSubstituted("echo set");
+
+        SanchoConfig config = new SanchoConfig(true, ERROR_WAIT, 0, 0, "http://sattrackapi", "",
+                new StationDetails("Test station", 45.0, 16.0, 100),
+                new RotatorConfig("127.0.0.1", 4533, 0.25, 30, 0.5, 2, false, 0, 60),
+                new RadioConfig("", 0, 0, 10), new ArrayList<>(), Collections.singletonList(sat));
+
+        long rise = System.currentTimeMillis() + 60 * MINUTE;
+        pass = pass(sat, rise, rise + 10 * MINUTE);
+        chain = AntennaChain.of(config).get(0);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WakeupMeter wakeupMeter = new WakeupMeter(meterRegistry);
+        DeviceStatePoller deviceStatePoller = new DeviceStatePoller(config, null, taskScheduler, wakeupMeter);
+
+        taskRegistry = new ScheduledTaskRegistry(taskScheduler, meterRegistry, wakeupMeter);
+        predictClient = new StubPredictClientService(config);
+        hamlibClient = new StubHamlibClientService(config);
+        schedulerService = new SchedulerService(config, new StubPassHorizon(config, pass), predictClient,
+                new ShellExecService(), hamlibClient, taskScheduler, taskRegistry,
+                new IdleModeService(config, taskScheduler, deviceStatePoller, wakeupMeter));
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        taskScheduler.shutdown();
+    }
+
+    private static SatellitePass pass(SatelliteData sat, long rise, long set) {
+
+        List<PassEventDataPoint> details = new ArrayList<>();
+
+        for (long t = rise; t <= set; t += 10_000) {
+            PassEventDataPoint point = new PassEventDataPoint();
+            point.setT(new Date(t));
+            point.setAz(90 + 180.0 * (t - rise) / (set - rise));
+            point.setEl(10 + 60 * Math.sin(Math.PI * (t - rise) / (set - rise)));
+            details.add(point);
+        }
+
+        SatellitePass pass = new SatellitePass();
+        pass.setEventDetails(details);
+        pass.setRisePoint(details.get(0));
+        pass.setMidPoint(details.get(details.size() / 2));
+        pass.setSetPoint(details.get(details.size() - 1));
+        pass.setDuration((set - rise) / 1000.0);
+        pass.setSatelliteData(sat);
+
+        return pass;
+
+    }
+
+    private List<String> descriptions() {
+        return taskRegistry.getTasks().stream()
+                .map(ScheduledTaskDetails::getDescription)
+                .map(description -> description.replaceAll(" .*", ""))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks that the pass was dropped, and the chain picks again after the error wait
+     */
+    private void assertRetry()
+    {
+        long retryDelay = taskRegistry.getTasks().get(0).getStartTime().getTime() - System.currentTimeMillis();
+
+        assertEquals(Collections.singletonList("Next"), descriptions());
+        assertTrue(Math.abs(retryDelay - ERROR_WAIT * 1000L) < 5000, "retry in " + retryDelay + " ms");
+    }
+
+    @DisplayName("Test scheduling tracking with the pass details")
+    @Test
+    void tracking()
+    {
+        schedulerService.scheduleNextEvent(chain);
+
+        assertEquals(Arrays.asList("Pass", "Rise-time", "Set-time", "Next"), descriptions());
+
+        predictClient.details = pass;
+        schedulerService.scheduleTracking(chain, pass);
+
+        assertEquals(Arrays.asList("Pass", "Rise-time", "Tracking", "Set-time", "Next"), descriptions());
+        assertEquals(pass.getSetPoint().getT(), taskRegistry.getTasks().get(4).getStartTime());
+    }
+
+    @DisplayName("Test picking again after the error wait when the pass details can't be fetched")
+    @Test
+    void detailsFailure()
+    {
+        schedulerService.scheduleNextEvent(chain);
+        schedulerService.scheduleTracking(chain, pass);
+
+        assertRetry();
+    }
+
+    @DisplayName("Test a pass details fetch for a dropped pass")
+    @Test
+    void droppedPass()
+    {
+        schedulerService.scheduleNextEvent(chain);
+        schedulerService.scheduleTracking(chain, pass);
+
+        // e.g. a details task that was already running when the pass was dropped
+        predictClient.details = pass;
+        schedulerService.scheduleTracking(chain, pass);
+
+        assertRetry();
+    }
+
+    @DisplayName("Test picking again after the error wait when the rotator can't be parked")
+    @Test
+    void parkingFailure()
+    {
+        schedulerService.scheduleNextEvent(chain);
+
+        predictClient.details = pass;
+        hamlibClient.parkOk = false;
+        schedulerService.scheduleTracking(chain, pass);
+
+        assertRetry();
+    }
+
+    @DisplayName("Test Doppler correction with the chain's own radio settings")
+    @Test
+    void chainSettings()
+    {
+        // Doppler correction is disabled in the shared radio config
+        AntennaChain radioChain = new AntennaChain("radio", "", 0, "127.0.0.1", 4532, 0, 0, null,
+                new RadioConfig("", 0, 1, 10));
+        SatelliteData sat = new SatelliteData("25338", "NOAA15", 137.62, 0, 10, 10, 0, 0.5, 0, false, true,
+                "", "");
+        sat.setSatRiseShellCmdSubstituted("");
+        sat.setSatSetShellCmdSubstituted("");
+        pass.setSatelliteData(sat);
+
+        schedulerService.scheduleNextEvent(radioChain);
+
+        predictClient.details = pass;
+        schedulerService.scheduleTracking(radioChain, pass);
+
+        assertEquals(Arrays.asList("Pass", "Doppler", "Next"), descriptions());
+    }
+
+    private static final class StubPassHorizon extends PassHorizon {
+
+        private final SatellitePass pass;
+
+        private StubPassHorizon(SanchoConfig config, SatellitePass pass)
+        {
+            super(config, null);
+            this.pass = pass;
+        }
+
+        @Override
+        public SatellitePass getNextPass(AntennaChain chain)
+        {
+            return pass;
+        }
+
+    }
+
+    private static final class StubPredictClientService extends PredictClientService {
+
+        private SatellitePass details;
+
+        private StubPredictClientService(SanchoConfig config)
+        {
+            super(config, null, null, null);
+        }
+
+        @Override
+        public SatellitePass fetchPassDetails(SatellitePass summary)
+        {
+            return details;
+        }
+
+    }
+
+    private static final class StubHamlibClientService extends HamlibClientService {
+
+        private boolean parkOk = true;
+
+        private StubHamlibClientService(SanchoConfig config)
+        {
+            super(config, null, null);
+        }
+
+        @Override
+        public boolean parkRotator(String chainName, AzimuthElevation position)
+        {
+            return parkOk;
+        }
+
+    }
+
+}